@@ -0,0 +1,77 @@
+package com.StockMaster.inventory_backend.benchmarks;
+
+import com.StockMaster.inventory_backend.InventoryBackendApplication;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Application context for benchmarks, backed by an embedded mongod unless
+ * -Dbenchmark.mongodb.uri points at an existing server. The benchmark database
+ * is dropped on start so every trial seeds from scratch; an existing server is
+ * only dropped when -Dbenchmark.allow-drop=true is also given.
+ */
+final class BenchmarkEnvironment implements AutoCloseable {
+
+    private static final String DATABASE = "stockmaster_bench";
+
+    private final TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkEnvironment(TransitionWalker.ReachedState<RunningMongodProcess> mongod,
+                                 ConfigurableApplicationContext context) {
+        this.mongod = mongod;
+        this.context = context;
+    }
+
+    static BenchmarkEnvironment start() {
+        TransitionWalker.ReachedState<RunningMongodProcess> mongod = null;
+        String uri = System.getProperty("benchmark.mongodb.uri");
+        if (uri == null) {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+            ServerAddress address = mongod.current().getServerAddress();
+            uri = "mongodb://" + address.getHost() + ":" + address.getPort() + "/" + DATABASE;
+        }
+
+        // Passed as command line arguments: default properties would lose to application.properties,
+        // which points at the development database
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(InventoryBackendApplication.class)
+                .run(
+                        "--spring.data.mongodb.uri=" + uri,
+                        "--spring.data.mongodb.database=" + DATABASE,
+                        "--server.port=0",
+                        "--mongo.index-advisor.enabled=false",
+                        "--stock.snapshot.enabled=false",
+                        "--ledger.archive.enabled=false",
+                        "--logging.level.com.StockMaster.inventory_backend=WARN",
+                        "--logging.level.org.springframework.data.mongodb.core.MongoTemplate=WARN");
+
+        return new BenchmarkEnvironment(mongod, context);
+    }
+
+    /**
+     * Whether the seeder may drop the database the context is connected to: only the
+     * benchmark database, and on an existing server only when explicitly opted in.
+     */
+    boolean mayDropDatabase() {
+        boolean benchmarkDatabase = DATABASE.equals(bean(MongoTemplate.class).getDb().getName());
+        return benchmarkDatabase && (mongod != null || Boolean.getBoolean("benchmark.allow-drop"));
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.StockMaster.inventory_backend.benchmarks;
+
+import com.StockMaster.inventory_backend.models.Delivery;
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.models.Receipt;
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.Warehouse;
+import com.StockMaster.inventory_backend.services.DashboardRollupService;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds a synthetic catalog: warehouses, products spread over a fixed set of
+ * categories, one stock row per product and warehouse, and DRAFT receipts and
+ * deliveries referencing random products. Uses a fixed seed so runs are comparable.
+ */
+final class CatalogSeeder {
+
+    private static final String[] CATEGORIES = {"Electronics", "Hardware", "Office", "Packaging", "Apparel",
+            "Food", "Chemicals", "Tools", "Furniture", "Spare Parts"};
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int ITEMS_PER_DOCUMENT = 5;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean mayDropDatabase;
+    private final Random random = new Random(42);
+
+    CatalogSeeder(MongoTemplate mongoTemplate, boolean mayDropDatabase) {
+        this.mongoTemplate = mongoTemplate;
+        this.mayDropDatabase = mayDropDatabase;
+    }
+
+    Catalog seed(int productCount, int warehouseCount, int documentCount) {
+        if (!mayDropDatabase) {
+            throw new IllegalStateException("Refusing to drop database " + mongoTemplate.getDb().getName()
+                    + ": only the benchmark database is seeded, and on an existing server only with -Dbenchmark.allow-drop=true");
+        }
+        mongoTemplate.getDb().drop();
+
+        List<Warehouse> warehouses = new ArrayList<>();
+        for (int i = 0; i < warehouseCount; i++) {
+            warehouses.add(new Warehouse("Warehouse " + i, "Location " + i));
+        }
+        warehouses = new ArrayList<>(mongoTemplate.insertAll(warehouses));
+
+        List<Product> products = new ArrayList<>(productCount);
+        for (int i = 0; i < productCount; i++) {
+            products.add(new Product("Product " + i, String.format("SKU-%07d", i),
+                    CATEGORIES[i % CATEGORIES.length], "pcs", 10));
+        }
+        products = insertInChunks(products, Product.class);
+
+        List<Stock> stock = new ArrayList<>(productCount * warehouseCount);
+        for (Warehouse warehouse : warehouses) {
+            for (Product product : products) {
+                stock.add(new Stock(product.getId(), warehouse.getId(), random.nextInt(200)));
+            }
+        }
+        insertInChunks(stock, Stock.class);
+
+        List<Receipt> receipts = new ArrayList<>(documentCount);
+        List<Delivery> deliveries = new ArrayList<>(documentCount);
+        for (int i = 0; i < documentCount; i++) {
+            Warehouse warehouse = warehouses.get(i % warehouses.size());
+
+            Receipt receipt = new Receipt();
+            receipt.setReceiptNumber(String.format("REC-%06d", i));
+            receipt.setSupplier("Supplier " + (i % 20));
+            receipt.setWarehouseId(warehouse.getId());
+            receipt.setReceiptDate(LocalDateTime.now());
+            receipt.setStatus("DRAFT");
+            receipt.setCreatedAt(LocalDateTime.now());
+            List<Receipt.ReceiptItem> receiptItems = new ArrayList<>();
+            for (Product product : randomProducts(products)) {
+                receiptItems.add(new Receipt.ReceiptItem(product.getId(), 1 + random.nextInt(20),
+                        product.getName(), product.getSku()));
+            }
+            receipt.setItems(receiptItems);
+            receipts.add(receipt);
+
+            Delivery delivery = new Delivery();
+            delivery.setDeliveryNumber(String.format("DEL-%06d", i));
+            delivery.setCustomer("Customer " + (i % 20));
+            delivery.setWarehouseId(warehouse.getId());
+            delivery.setDeliveryDate(LocalDateTime.now());
+            delivery.setStatus("DRAFT");
+            delivery.setCreatedAt(LocalDateTime.now());
+            List<Delivery.DeliveryItem> deliveryItems = new ArrayList<>();
+            for (Product product : randomProducts(products)) {
+                deliveryItems.add(new Delivery.DeliveryItem(product.getId(), 1 + random.nextInt(5),
+                        product.getName(), product.getSku()));
+            }
+            delivery.setItems(deliveryItems);
+            deliveries.add(delivery);
+        }
+        insertInChunks(receipts, Receipt.class);
+        insertInChunks(deliveries, Delivery.class);
+
+        return new Catalog(warehouses, products);
+    }
+
+    void rebuildRollups(DashboardRollupService rollupService) {
+        rollupService.rebuild();
+    }
+
+    private List<Product> randomProducts(List<Product> products) {
+        List<Product> picked = new ArrayList<>(ITEMS_PER_DOCUMENT);
+        for (int i = 0; i < ITEMS_PER_DOCUMENT; i++) {
+            picked.add(products.get(random.nextInt(products.size())));
+        }
+        return picked;
+    }
+
+    private <T> List<T> insertInChunks(List<T> documents, Class<T> type) {
+        List<T> inserted = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i += CHUNK_SIZE) {
+            List<T> chunk = documents.subList(i, Math.min(i + CHUNK_SIZE, documents.size()));
+            // insert rather than bulkOps, which does not write the generated ids back to the objects
+            inserted.addAll(mongoTemplate.insert(chunk, type));
+        }
+        return inserted;
+    }
+
+    record Catalog(List<Warehouse> warehouses, List<Product> products) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.StockMaster.inventory_backend.benchmarks;
+
+import com.StockMaster.inventory_backend.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token validation throughput: the previous JwtUtil (key and parser rebuilt per call,
+ * token parsed three times) against the current one with and without the claims cache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmarks {
+
+    private static final String SECRET = "BenchmarkSecretKeyForHmacSha256SigningOnly1234567890";
+    private static final String EMAIL = "benchmark@stockmaster.local";
+
+    private JwtUtil jwtUtil;
+    private JwtUtil cachingJwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, TimeUnit.HOURS.toMillis(1), 0);
+        cachingJwtUtil = new JwtUtil(SECRET, TimeUnit.HOURS.toMillis(1), 1024);
+        token = jwtUtil.generateToken(EMAIL, "USER");
+    }
+
+    @Benchmark
+    public boolean legacyValidateToken() {
+        // extractEmail, then validateToken's extractEmail and extractExpiration
+        String email = legacyClaims(token).getSubject();
+        String extracted = legacyClaims(token).getSubject();
+        Date expiration = legacyClaims(token).getExpiration();
+        return extracted.equals(email) && !expiration.before(new Date());
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token, EMAIL);
+    }
+
+    @Benchmark
+    public boolean validateTokenCached() {
+        return cachingJwtUtil.validateToken(token, EMAIL);
+    }
+
+    @Benchmark
+    public Claims parseClaims() {
+        return jwtUtil.parseClaims(token);
+    }
+
+    @Benchmark
+    public Claims parseClaimsCached() {
+        return cachingJwtUtil.parseClaims(token);
+    }
+
+    private static Claims legacyClaims(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes());
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
@@ -0,0 +1,83 @@
+package com.StockMaster.inventory_backend.benchmarks;
+
+import com.StockMaster.inventory_backend.dto.ProductDTO;
+import com.StockMaster.inventory_backend.services.ProductSearchService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory product search over a seeded catalog, the budget is 5 ms per query at
+ * 100k products. Product names are "Product N", SKUs "SKU-000000N" and categories
+ * one of CatalogSeeder's ten, so each query below hits a known slice of the catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProductSearchBenchmarks {
+
+    @Param({"100000"})
+    public int products;
+
+    private BenchmarkEnvironment environment;
+    private ProductSearchService productSearchService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start();
+        new CatalogSeeder(environment.bean(MongoTemplate.class), environment.mayDropDatabase()).seed(products, 1, 0);
+        productSearchService = environment.bean(ProductSearchService.class);
+        productSearchService.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    /**
+     * Typeahead: ten suggestions for a name prefix every product shares
+     */
+    @Benchmark
+    public List<ProductDTO> suggestNamePrefix() {
+        return productSearchService.search("prod", 10);
+    }
+
+    /**
+     * Typeahead that falls through the name tiers to the token and trigram indexes
+     */
+    @Benchmark
+    public List<ProductDTO> suggestSkuFragment() {
+        return productSearchService.search("0012", 10);
+    }
+
+    @Benchmark
+    public List<ProductDTO> exactSku() {
+        return productSearchService.search("sku-0054321", 10);
+    }
+
+    /**
+     * Full search ranking every match, a tenth of the catalog
+     */
+    @Benchmark
+    public List<ProductDTO> searchCategorySubstring() {
+        return productSearchService.search("lectron", 0);
+    }
+}
@@ -0,0 +1,90 @@
+package com.StockMaster.inventory_backend.benchmarks;
+
+import com.StockMaster.inventory_backend.dto.ReceiptDTO;
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.models.Receipt;
+import com.StockMaster.inventory_backend.services.DashboardRollupService;
+import com.StockMaster.inventory_backend.services.ReceiptService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validating one large receipt: claim, the batched stock write, the ledger insert and the
+ * final transition. The budget is well under a second for 1000 lines. Every invocation gets
+ * a fresh DRAFT receipt over the first lines products of the catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReceiptValidationBenchmarks {
+
+    @Param({"1000"})
+    public int lines;
+
+    private BenchmarkEnvironment environment;
+    private MongoTemplate mongoTemplate;
+    private ReceiptService receiptService;
+    private List<Product> products;
+    private String warehouseId;
+    private String receiptId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start();
+        mongoTemplate = environment.bean(MongoTemplate.class);
+        CatalogSeeder seeder = new CatalogSeeder(mongoTemplate, environment.mayDropDatabase());
+        CatalogSeeder.Catalog catalog = seeder.seed(lines, 1, 0);
+        seeder.rebuildRollups(environment.bean(DashboardRollupService.class));
+
+        receiptService = environment.bean(ReceiptService.class);
+        products = catalog.products();
+        warehouseId = catalog.warehouses().get(0).getId();
+    }
+
+    @Setup(Level.Invocation)
+    public void draftReceipt() {
+        List<Receipt.ReceiptItem> items = new ArrayList<>(lines);
+        for (Product product : products.subList(0, lines)) {
+            items.add(new Receipt.ReceiptItem(product.getId(), 1, product.getName(), product.getSku()));
+        }
+        Receipt receipt = new Receipt();
+        receipt.setReceiptNumber("BENCH-" + System.nanoTime());
+        receipt.setWarehouseId(warehouseId);
+        receipt.setReceiptDate(LocalDateTime.now());
+        receipt.setStatus("DRAFT");
+        receipt.setCreatedBy("bench");
+        receipt.setCreatedAt(LocalDateTime.now());
+        receipt.setItems(items);
+        receiptId = mongoTemplate.insert(receipt).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public ReceiptDTO validateReceipt() {
+        return receiptService.validateReceipt(receiptId, "bench");
+    }
+}
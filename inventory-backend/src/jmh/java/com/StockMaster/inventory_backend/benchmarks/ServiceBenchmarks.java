@@ -0,0 +1,104 @@
+package com.StockMaster.inventory_backend.benchmarks;
+
+import com.StockMaster.inventory_backend.dto.DashboardDTO;
+import com.StockMaster.inventory_backend.dto.DeliveryDTO;
+import com.StockMaster.inventory_backend.dto.ReceiptDTO;
+import com.StockMaster.inventory_backend.dto.StockDTO;
+import com.StockMaster.inventory_backend.services.DashboardRollupService;
+import com.StockMaster.inventory_backend.services.DashboardService;
+import com.StockMaster.inventory_backend.services.DeliveryService;
+import com.StockMaster.inventory_backend.services.ReceiptService;
+import com.StockMaster.inventory_backend.services.StockService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-layer read paths against a seeded catalog. Catalog size is a parameter,
+ * e.g. -Djmh.args="ServiceBenchmarks -p products=10000 -p warehouses=10".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ServiceBenchmarks {
+
+    @Param({"1000", "10000", "100000"})
+    public int products;
+
+    @Param({"5"})
+    public int warehouses;
+
+    @Param({"500"})
+    public int documents;
+
+    private BenchmarkEnvironment environment;
+    private StockService stockService;
+    private DashboardService dashboardService;
+    private ReceiptService receiptService;
+    private DeliveryService deliveryService;
+    private String warehouseId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start();
+        CatalogSeeder seeder = new CatalogSeeder(environment.bean(MongoTemplate.class), environment.mayDropDatabase());
+        CatalogSeeder.Catalog catalog = seeder.seed(products, warehouses, documents);
+        seeder.rebuildRollups(environment.bean(DashboardRollupService.class));
+
+        stockService = environment.bean(StockService.class);
+        dashboardService = environment.bean(DashboardService.class);
+        receiptService = environment.bean(ReceiptService.class);
+        deliveryService = environment.bean(DeliveryService.class);
+        warehouseId = catalog.warehouses().get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    /**
+     * One warehouse's stock rows through the batched stock DTO conversion
+     */
+    @Benchmark
+    public List<StockDTO> stockByWarehouse() {
+        return stockService.getStockByWarehouse(warehouseId);
+    }
+
+    @Benchmark
+    public DashboardDTO dashboard() {
+        return dashboardService.getDashboardData();
+    }
+
+    @Benchmark
+    public DashboardDTO dashboardRecompute() {
+        return dashboardService.recomputeDashboardData();
+    }
+
+    @Benchmark
+    public List<ReceiptDTO> receipts() {
+        return receiptService.getAllReceipts();
+    }
+
+    @Benchmark
+    public List<DeliveryDTO> deliveries() {
+        return deliveryService.getAllDeliveries();
+    }
+}
@@ -0,0 +1,78 @@
+package com.StockMaster.inventory_backend.loadtest;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Minimal JSON client for the REST API that records the latency of every call
+ */
+final class ApiClient {
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final String baseUrl;
+    private final LatencyRecorder recorder;
+    private volatile String token;
+
+    ApiClient(String baseUrl, LatencyRecorder recorder) {
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+    }
+
+    void setToken(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Send a request and record it under {@code endpoint}. Latency is measured from
+     * {@code scheduledAtNanos} so a backed-up client doesn't hide server queueing.
+     */
+    Response send(String endpoint, String method, String path, Object body, long scheduledAtNanos) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        request.method(method, body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(jsonMapper.writeValueAsString(body)));
+
+        int status = 0;
+        String responseBody = null;
+        try {
+            HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            status = response.statusCode();
+            responseBody = response.body();
+        } catch (IOException e) {
+            // Connection failures are recorded as status 0
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        recorder.record(endpoint, status, System.nanoTime() - scheduledAtNanos);
+        return new Response(status, responseBody);
+    }
+
+    Response send(String endpoint, String method, String path, Object body) {
+        return send(endpoint, method, path, body, System.nanoTime());
+    }
+
+    JsonNode json(Response response) {
+        return jsonMapper.readTree(response.body());
+    }
+
+    record Response(int status, String body) {
+        boolean ok() {
+            return status >= 200 && status < 300;
+        }
+    }
+}
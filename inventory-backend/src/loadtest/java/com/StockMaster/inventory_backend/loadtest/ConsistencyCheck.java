@@ -0,0 +1,68 @@
+package com.StockMaster.inventory_backend.loadtest;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays the stock ledger of the seeded products and compares the summed
+ * quantity changes per product and warehouse with the stock collection
+ */
+final class ConsistencyCheck {
+
+    private final String mongoUri;
+    private final String database;
+
+    ConsistencyCheck(String mongoUri, String database) {
+        this.mongoUri = mongoUri;
+        this.database = database;
+    }
+
+    /**
+     * Returns a description of every mismatching product/warehouse, empty when consistent
+     */
+    List<String> run(List<String> productIds) {
+        try (MongoClient client = MongoClients.create(mongoUri)) {
+            MongoDatabase db = client.getDatabase(database);
+            Document seeded = new Document("productId", new Document("$in", productIds));
+
+            Map<String, Long> replayed = new HashMap<>();
+            List<Document> pipeline = List.of(
+                    new Document("$match", seeded),
+                    new Document("$group", new Document("_id",
+                            new Document("productId", "$productId").append("warehouseId", "$warehouseId"))
+                            .append("quantity", new Document("$sum", "$quantityChange"))));
+            for (Document row : db.getCollection("stock_ledger").aggregate(pipeline)) {
+                Document key = row.get("_id", Document.class);
+                replayed.put(key(key.getString("productId"), key.getString("warehouseId")),
+                        ((Number) row.get("quantity")).longValue());
+            }
+
+            List<String> mismatches = new ArrayList<>();
+            for (Document stock : db.getCollection("stock").find(seeded)) {
+                String key = key(stock.getString("productId"), stock.getString("warehouseId"));
+                long quantity = ((Number) stock.get("quantity")).longValue();
+                Long ledger = replayed.remove(key);
+                if (ledger == null || ledger != quantity) {
+                    mismatches.add(key + " stock=" + quantity + " ledger=" + ledger);
+                }
+            }
+            replayed.forEach((key, ledger) -> {
+                if (ledger != 0) {
+                    mismatches.add(key + " stock=missing ledger=" + ledger);
+                }
+            });
+            return mismatches;
+        }
+    }
+
+    private static String key(String productId, String warehouseId) {
+        return productId + "/" + warehouseId;
+    }
+}
@@ -0,0 +1,66 @@
+package com.StockMaster.inventory_backend.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-endpoint latency samples and status counts
+ */
+final class LatencyRecorder {
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    void record(String endpoint, int status, long latencyNanos) {
+        endpoints.computeIfAbsent(endpoint, name -> new Endpoint()).record(status, latencyNanos);
+    }
+
+    String report(double elapsedSeconds) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-36s %8s %8s %8s %9s %9s %9s %9s %9s  %s%n",
+                "endpoint", "count", "rps", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "statuses"));
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+            Endpoint endpoint = entry.getValue();
+            long[] samples = endpoint.samples();
+            Arrays.sort(samples);
+            report.append(String.format("%-36s %8d %8.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    entry.getKey(), samples.length, samples.length / elapsedSeconds, endpoint.errors.get(),
+                    percentile(samples, 0.50), percentile(samples, 0.90), percentile(samples, 0.99),
+                    percentile(samples, 0.999), percentile(samples, 1.0), endpoint.statuses));
+        }
+        return report.toString();
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1_000_000.0;
+    }
+
+    private static final class Endpoint {
+        private long[] samples = new long[1024];
+        private int size;
+        private final AtomicLong errors = new AtomicLong();
+        private final Map<Integer, AtomicLong> statuses = new ConcurrentSkipListMap<>();
+
+        synchronized void record(int status, long latencyNanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = latencyNanos;
+            statuses.computeIfAbsent(status, code -> new AtomicLong()).incrementAndGet();
+            if (status == 0 || status >= 500) {
+                errors.incrementAndGet();
+            }
+        }
+
+        synchronized long[] samples() {
+            return Arrays.copyOf(samples, size);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.StockMaster.inventory_backend.loadtest;
+
+import tools.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test against a running backend and its MongoDB.
+ *
+ * Seeds warehouses, products and opening stock through the REST API, runs an
+ * open-loop workload at a fixed request rate, prints latency percentiles and
+ * throughput per endpoint, then checks that stock equals the replayed ledger.
+ * Exits non-zero when the consistency check fails.
+ *
+ * Run: ./mvnw -Ploadtest test-compile exec:java -Dloadtest.rps=500 -Dloadtest.duration-seconds=60
+ */
+public final class LoadTest {
+
+    private static final int RECEIPT_CHUNK = 100;
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        if (config.warehouses() < 2) {
+            throw new IllegalArgumentException("Transfers need at least two warehouses");
+        }
+
+        LatencyRecorder setupRecorder = new LatencyRecorder();
+        ApiClient setup = new ApiClient(config.baseUrl(), setupRecorder);
+        String token = authenticate(setup, config);
+        setup.setToken(token);
+
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<String> warehouseIds = seedWarehouses(setup, config, runId);
+        List<String> productIds = seedProducts(setup, config, runId);
+        seedOpeningStock(setup, config, warehouseIds, productIds);
+        System.out.printf("Seeded run %s: %d warehouses, %d products, %d units each%n",
+                runId, warehouseIds.size(), productIds.size(), config.initialQuantity());
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        ApiClient client = new ApiClient(config.baseUrl(), recorder);
+        client.setToken(token);
+        WorkloadGenerator workload = new WorkloadGenerator(client, warehouseIds, productIds, config.mix());
+
+        double elapsedSeconds = drive(workload, config);
+        System.out.println();
+        System.out.print(recorder.report(elapsedSeconds));
+
+        ConsistencyCheck check = new ConsistencyCheck(config.mongoUri(), config.mongoDatabase());
+        List<String> mismatches = check.run(productIds);
+        // An async ledger writer may still be flushing, give it a few seconds
+        for (int attempt = 0; attempt < 10 && !mismatches.isEmpty(); attempt++) {
+            Thread.sleep(1000);
+            mismatches = check.run(productIds);
+        }
+
+        if (mismatches.isEmpty()) {
+            System.out.println("Consistency check passed: stock equals replayed ledger for all seeded products");
+        } else {
+            System.out.println("Consistency check FAILED for " + mismatches.size() + " product/warehouse pairs:");
+            mismatches.stream().limit(50).forEach(mismatch -> System.out.println("  " + mismatch));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Issue operations at the target rate on virtual threads. The schedule does not wait for
+     * responses; when max-in-flight is reached further operations are dropped and counted.
+     */
+    private static double drive(WorkloadGenerator workload, LoadTestConfig config) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.rps();
+        long total = (long) config.rps() * config.durationSeconds();
+        Semaphore inFlight = new Semaphore(config.maxInFlight());
+        AtomicLong dropped = new AtomicLong();
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < total; i++) {
+                long scheduledAt = start + i * intervalNanos;
+                long wait = scheduledAt - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (!inFlight.tryAcquire()) {
+                    dropped.incrementAndGet();
+                    continue;
+                }
+                executor.submit(() -> {
+                    try {
+                        workload.runOne(scheduledAt);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Issued %d operations in %.1fs (target %d/s), dropped %d at max-in-flight %d%n",
+                total - dropped.get(), elapsedSeconds, config.rps(), dropped.get(), config.maxInFlight());
+        return elapsedSeconds;
+    }
+
+    private static String authenticate(ApiClient client, LoadTestConfig config) {
+        Map<String, Object> credentials = new HashMap<>();
+        credentials.put("email", config.email());
+        credentials.put("password", config.password());
+
+        ApiClient.Response login = client.send("POST /api/auth/login", "POST", "/api/auth/login", credentials);
+        if (!login.ok()) {
+            ApiClient.Response registered = client.send("POST /api/auth/register", "POST", "/api/auth/register", credentials);
+            if (!registered.ok()) {
+                throw new IllegalStateException("Could not register load test user: " + registered.body());
+            }
+            login = registered;
+        }
+        return client.json(login).get("token").asString();
+    }
+
+    private static List<String> seedWarehouses(ApiClient client, LoadTestConfig config, String runId) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < config.warehouses(); i++) {
+            Map<String, Object> body = Map.of("name", "LT " + runId + " Warehouse " + i, "location", "Load Test");
+            ids.add(idOf(client, client.send("POST /api/warehouses", "POST", "/api/warehouses", body)));
+        }
+        return ids;
+    }
+
+    private static List<String> seedProducts(ApiClient client, LoadTestConfig config, String runId) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < config.products(); i++) {
+            Map<String, Object> body = Map.of(
+                    "name", "LT Product " + i,
+                    "sku", "LT-" + runId + "-" + i,
+                    "category", "Load Test " + (i % 10),
+                    "unit", "pcs",
+                    "reorderLevel", 10);
+            ids.add(idOf(client, client.send("POST /api/products", "POST", "/api/products", body)));
+        }
+        return ids;
+    }
+
+    /**
+     * Opening stock goes through validated receipts so it is in the ledger too
+     */
+    private static void seedOpeningStock(ApiClient client, LoadTestConfig config,
+                                         List<String> warehouseIds, List<String> productIds) {
+        for (String warehouseId : warehouseIds) {
+            for (int i = 0; i < productIds.size(); i += RECEIPT_CHUNK) {
+                List<Map<String, Object>> items = new ArrayList<>();
+                for (String productId : productIds.subList(i, Math.min(i + RECEIPT_CHUNK, productIds.size()))) {
+                    items.add(Map.of("productId", productId, "quantity", config.initialQuantity()));
+                }
+                Map<String, Object> body = Map.of("supplier", "Opening Stock", "warehouseId", warehouseId, "items", items);
+                String id = idOf(client, client.send("POST /api/receipts", "POST", "/api/receipts", body));
+                ApiClient.Response validated = client.send("PUT /api/receipts/{id}/validate", "PUT",
+                        "/api/receipts/" + id + "/validate", null);
+                if (!validated.ok()) {
+                    throw new IllegalStateException("Could not validate opening stock receipt: " + validated.body());
+                }
+            }
+        }
+    }
+
+    private static String idOf(ApiClient client, ApiClient.Response response) {
+        if (!response.ok()) {
+            throw new IllegalStateException("Seeding request failed with " + response.status() + ": " + response.body());
+        }
+        JsonNode id = client.json(response).get("id");
+        return id.asString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.StockMaster.inventory_backend.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, read from -Dloadtest.* system properties
+ */
+record LoadTestConfig(
+        String baseUrl,
+        int rps,
+        int durationSeconds,
+        int products,
+        int warehouses,
+        int initialQuantity,
+        int maxInFlight,
+        Map<Operation, Integer> mix,
+        String email,
+        String password,
+        String mongoUri,
+        String mongoDatabase) {
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                property("base-url", "http://localhost:8080"),
+                Integer.parseInt(property("rps", "500")),
+                Integer.parseInt(property("duration-seconds", "60")),
+                Integer.parseInt(property("products", "200")),
+                Integer.parseInt(property("warehouses", "4")),
+                Integer.parseInt(property("initial-quantity", "1000")),
+                Integer.parseInt(property("max-in-flight", "5000")),
+                parseMix(property("mix", "receipt=20,delivery=20,transfer=10,adjust=20,dashboard=30")),
+                property("email", "loadtest@stockmaster.local"),
+                property("password", "loadtest-password"),
+                property("mongodb-uri", "mongodb://localhost:27017"),
+                property("mongodb-database", "stockmaster"));
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    /**
+     * Parse "receipt=20,delivery=20,..." into relative weights
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid workload mix entry: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Workload mix has no operations: " + mix);
+        }
+        return weights;
+    }
+
+    enum Operation {
+        RECEIPT, DELIVERY, TRANSFER, ADJUST, DASHBOARD
+    }
+}
@@ -0,0 +1,124 @@
+package com.StockMaster.inventory_backend.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Synthetic warehouse traffic: picks an operation by weight from the configured mix
+ * and drives it through the same endpoints the frontend uses
+ */
+final class WorkloadGenerator {
+
+    private final ApiClient client;
+    private final List<String> warehouseIds;
+    private final List<String> productIds;
+    private final LoadTestConfig.Operation[] wheel;
+
+    WorkloadGenerator(ApiClient client, List<String> warehouseIds, List<String> productIds,
+                      Map<LoadTestConfig.Operation, Integer> mix) {
+        this.client = client;
+        this.warehouseIds = warehouseIds;
+        this.productIds = productIds;
+
+        List<LoadTestConfig.Operation> slots = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                slots.add(operation);
+            }
+        });
+        this.wheel = slots.toArray(new LoadTestConfig.Operation[0]);
+    }
+
+    void runOne(long scheduledAtNanos) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (wheel[random.nextInt(wheel.length)]) {
+            case RECEIPT -> receipt(scheduledAtNanos);
+            case DELIVERY -> delivery(scheduledAtNanos);
+            case TRANSFER -> transfer(scheduledAtNanos);
+            case ADJUST -> adjust(scheduledAtNanos);
+            case DASHBOARD -> client.send("GET /api/dashboard", "GET", "/api/dashboard", null, scheduledAtNanos);
+        }
+    }
+
+    private void receipt(long scheduledAtNanos) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("supplier", "Load Test Supplier");
+        body.put("warehouseId", randomWarehouse());
+        body.put("items", randomItems(20));
+
+        ApiClient.Response created = client.send("POST /api/receipts", "POST", "/api/receipts", body, scheduledAtNanos);
+        if (created.ok()) {
+            String id = client.json(created).get("id").asString();
+            client.send("PUT /api/receipts/{id}/validate", "PUT", "/api/receipts/" + id + "/validate", null);
+        }
+    }
+
+    private void delivery(long scheduledAtNanos) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("customer", "Load Test Customer");
+        body.put("warehouseId", randomWarehouse());
+        body.put("items", randomItems(10));
+
+        ApiClient.Response created = client.send("POST /api/deliveries", "POST", "/api/deliveries", body, scheduledAtNanos);
+        if (created.ok()) {
+            String id = client.json(created).get("id").asString();
+            // Insufficient stock answers 400, which is expected under a random mix
+            client.send("PUT /api/deliveries/{id}/validate", "PUT", "/api/deliveries/" + id + "/validate", null);
+        }
+    }
+
+    private void transfer(long scheduledAtNanos) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(warehouseIds.size());
+        int to = (from + 1 + random.nextInt(warehouseIds.size() - 1)) % warehouseIds.size();
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("productId", randomProduct());
+        body.put("fromWarehouseId", warehouseIds.get(from));
+        body.put("toWarehouseId", warehouseIds.get(to));
+        body.put("quantity", 1 + random.nextInt(10));
+        body.put("createdBy", "loadtest");
+
+        ApiClient.Response created = client.send("POST /api/transfers", "POST", "/api/transfers", body, scheduledAtNanos);
+        if (created.ok()) {
+            String id = client.json(created).get("id").asString();
+            client.send("PUT /api/transfers/{id}/complete", "PUT", "/api/transfers/" + id + "/complete",
+                    Map.of("completedBy", "loadtest"));
+        }
+    }
+
+    private void adjust(long scheduledAtNanos) {
+        int adjustment = ThreadLocalRandom.current().nextInt(-10, 11);
+        if (adjustment == 0) {
+            adjustment = 1;
+        }
+        String path = "/api/stock/adjust?productId=" + randomProduct() + "&warehouseId=" + randomWarehouse()
+                + "&adjustment=" + adjustment + "&reason=loadtest";
+        client.send("PUT /api/stock/adjust", "PUT", path, null, scheduledAtNanos);
+    }
+
+    private List<Map<String, Object>> randomItems(int maxQuantity) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Distinct products per document, the services apply one line per product
+        Map<String, Object> lines = new LinkedHashMap<>();
+        int count = 1 + random.nextInt(5);
+        for (int i = 0; i < count; i++) {
+            lines.put(randomProduct(), 1 + random.nextInt(maxQuantity));
+        }
+        List<Map<String, Object>> items = new ArrayList<>();
+        lines.forEach((productId, quantity) -> items.add(Map.of("productId", productId, "quantity", quantity)));
+        return items;
+    }
+
+    private String randomWarehouse() {
+        return warehouseIds.get(ThreadLocalRandom.current().nextInt(warehouseIds.size()));
+    }
+
+    private String randomProduct() {
+        return productIds.get(ThreadLocalRandom.current().nextInt(productIds.size()));
+    }
+}
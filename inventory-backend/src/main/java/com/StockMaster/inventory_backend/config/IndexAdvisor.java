@@ -0,0 +1,183 @@
+package com.StockMaster.inventory_backend.config;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Runs explain() on every repository query shape at startup and reports any that
+ * would resolve to a collection scan. Product search is not covered here, it runs
+ * against the in-memory search index or the products text index.
+ */
+@Component
+public class IndexAdvisor {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexAdvisor.class);
+
+    private static final String PROBE = "index-advisor-probe";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${mongo.index-advisor.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mongo.index-advisor.fail-on-collscan:false}")
+    private boolean failOnCollectionScan;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkQueryShapes() {
+        if (!enabled) {
+            return;
+        }
+
+        List<String> collectionScans = new ArrayList<>();
+        for (QueryShape shape : queryShapes()) {
+            try {
+                Document explain = mongoTemplate.getCollection(shape.collection)
+                        .find(shape.filter)
+                        .sort(shape.sort)
+                        .explain();
+                Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+                if (containsStage(winningPlan, "COLLSCAN")) {
+                    collectionScans.add(shape.name);
+                    log.warn("Query shape {} on {} resolves to COLLSCAN: filter={} sort={}",
+                            shape.name, shape.collection, shape.filter.toJson(), shape.sort.toJson());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not explain query shape {}: {}", shape.name, e.getMessage());
+            }
+        }
+
+        if (collectionScans.isEmpty()) {
+            log.info("Index advisor: all {} query shapes use an index", queryShapes().size());
+        } else if (failOnCollectionScan) {
+            throw new IllegalStateException("Query shapes without a usable index: " + collectionScans);
+        }
+    }
+
+    private List<QueryShape> queryShapes() {
+        Date now = new Date();
+        Document dateRange = new Document("$gte", now).append("$lte", now);
+        Document newestFirst = new Document("createdAt", -1);
+
+        List<QueryShape> shapes = new ArrayList<>();
+
+        // StockLedgerService keyset pages, newest first
+        Document ledgerOrder = new Document("createdAt", -1).append("_id", -1);
+        shapes.add(new QueryShape("ledger.byProduct", "stock_ledger", eq("productId"), ledgerOrder));
+        shapes.add(new QueryShape("ledger.byWarehouse", "stock_ledger", eq("warehouseId"), ledgerOrder));
+        shapes.add(new QueryShape("ledger.byChangeType", "stock_ledger", eq("changeType"), ledgerOrder));
+        shapes.add(new QueryShape("ledger.byUser", "stock_ledger", eq("userId"), ledgerOrder));
+        shapes.add(new QueryShape("ledger.byReference", "stock_ledger", eq("referenceId"), ledgerOrder));
+        shapes.add(new QueryShape("ledger.byDateRange", "stock_ledger", new Document("createdAt", dateRange), ledgerOrder));
+        shapes.add(new QueryShape("ledger.byProductAndWarehouse", "stock_ledger",
+                eq("productId").append("warehouseId", PROBE), ledgerOrder));
+
+        // LedgerArchiveService buckets
+        Document newestBucket = new Document("lastEntryAt", -1);
+        shapes.add(new QueryShape("archive.byEntryId", "stock_ledger_archive", eq("entryIds"), new Document()));
+        shapes.add(new QueryShape("archive.lastOfMonth", "stock_ledger_archive",
+                eq("productId").append("warehouseId", PROBE).append("month", PROBE), new Document("seq", -1)));
+        shapes.add(new QueryShape("archive.byChangeType", "stock_ledger_archive", eq("changeTypes"), newestBucket));
+        shapes.add(new QueryShape("archive.byUser", "stock_ledger_archive", eq("userIds"), newestBucket));
+        shapes.add(new QueryShape("archive.byReference", "stock_ledger_archive", eq("referenceIds"), newestBucket));
+        shapes.add(new QueryShape("archive.newest", "stock_ledger_archive", new Document(), newestBucket));
+
+        shapes.add(new QueryShape("ledger.byWarehouseSince", "stock_ledger",
+                eq("warehouseId").append("createdAt", dateRange), new Document("createdAt", 1).append("_id", 1)));
+
+        // StockSnapshotRepository
+        shapes.add(new QueryShape("snapshots.latestForWarehouse", "stock_snapshots",
+                eq("warehouseId").append("takenAt", new Document("$lte", now)), new Document("takenAt", -1)));
+        shapes.add(new QueryShape("snapshotLines.bySnapshot", "stock_snapshot_lines", eq("snapshotId"), new Document()));
+
+        // StockRepository
+        shapes.add(new QueryShape("stock.byProductAndWarehouse", "stock",
+                eq("productId").append("warehouseId", PROBE), new Document()));
+        shapes.add(new QueryShape("stock.byProduct", "stock", eq("productId"), new Document()));
+        shapes.add(new QueryShape("stock.byWarehouse", "stock", eq("warehouseId"), new Document()));
+        shapes.add(new QueryShape("stock.byQuantityLessThan", "stock",
+                new Document("quantity", new Document("$lt", 10)), new Document()));
+
+        // ReceiptRepository and DeliveryRepository
+        shapes.add(new QueryShape("receipts.byNumber", "receipts", eq("receiptNumber"), new Document()));
+        shapes.add(new QueryShape("receipts.byStatus", "receipts", eq("status"), newestFirst));
+        shapes.add(new QueryShape("receipts.byWarehouse", "receipts", eq("warehouseId"), newestFirst));
+        shapes.add(new QueryShape("receipts.byDateRange", "receipts",
+                new Document("receiptDate", dateRange), new Document()));
+        shapes.add(new QueryShape("deliveries.byNumber", "deliveries", eq("deliveryNumber"), new Document()));
+        shapes.add(new QueryShape("deliveries.byStatus", "deliveries", eq("status"), newestFirst));
+        shapes.add(new QueryShape("deliveries.byWarehouse", "deliveries", eq("warehouseId"), newestFirst));
+        shapes.add(new QueryShape("deliveries.byDateRange", "deliveries",
+                new Document("deliveryDate", dateRange), new Document()));
+
+        // InternalTransferRepository
+        shapes.add(new QueryShape("transfers.byStatus", "internal_transfers", eq("status"), newestFirst));
+        shapes.add(new QueryShape("transfers.byFromWarehouse", "internal_transfers", eq("fromWarehouseId"), newestFirst));
+        shapes.add(new QueryShape("transfers.byToWarehouse", "internal_transfers", eq("toWarehouseId"), newestFirst));
+        shapes.add(new QueryShape("transfers.byProduct", "internal_transfers", eq("productId"), newestFirst));
+        shapes.add(new QueryShape("transfers.byCreatedBy", "internal_transfers", eq("createdBy"), newestFirst));
+
+        // Default sorts of the paged list endpoints, an unfiltered sort must walk an index;
+        // PagedQueryService ends every sort on _id
+        Document newestPageFirst = new Document("createdAt", -1).append("_id", -1);
+        shapes.add(new QueryShape("products.pageByName", "products", new Document(), new Document("name", 1).append("_id", 1)));
+        shapes.add(new QueryShape("products.pageByCategory", "products", new Document(), new Document("category", 1).append("_id", 1)));
+        shapes.add(new QueryShape("stock.pageByQuantity", "stock", new Document(), new Document("quantity", 1).append("_id", 1)));
+        shapes.add(new QueryShape("receipts.page", "receipts", new Document(), newestPageFirst));
+        shapes.add(new QueryShape("deliveries.page", "deliveries", new Document(), newestPageFirst));
+        shapes.add(new QueryShape("transfers.page", "internal_transfers", new Document(), newestPageFirst));
+        shapes.add(new QueryShape("warehouses.pageByName", "warehouses", new Document(), new Document("name", 1).append("_id", 1)));
+
+        return shapes;
+    }
+
+    private static Document eq(String field) {
+        return new Document(field, PROBE);
+    }
+
+    private static boolean containsStage(Object node, String stage) {
+        if (node instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            for (Object value : document.values()) {
+                if (containsStage(value, stage)) {
+                    return true;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                if (containsStage(value, stage)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static class QueryShape {
+        private final String name;
+        private final String collection;
+        private final Document filter;
+        private final Document sort;
+
+        QueryShape(String name, String collection, Document filter, Document sort) {
+            this.name = name;
+            this.collection = collection;
+            this.filter = filter;
+            this.sort = sort;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.StockMaster.inventory_backend.config;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control on the MongoDB connection pool itself. The pool's connections are the
+ * permits: they are held only while a command or cursor actually uses one, and a checkout
+ * waits at most mongo.admission.max-wait-ms (see MongoConfig). This listener tracks the
+ * checkouts in flight so MongoAdmissionFilter can turn requests away once too many are
+ * already queued for a connection.
+ */
+@Component
+public class MongoAdmission implements ConnectionPoolListener {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${mongo.admission.max-waiting:200}")
+    private int maxWaiting;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gauge("mongo.admission.in_use", inUse);
+        meterRegistry.gauge("mongo.admission.waiting", waiting);
+    }
+
+    /**
+     * Whether a new request may queue for a connection; counts a rejection when it may not.
+     */
+    public boolean admit() {
+        if (waiting.get() < maxWaiting) {
+            return true;
+        }
+        meterRegistry.counter("mongo.admission.rejected", "reason", "queue_full").increment();
+        return false;
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        waiting.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        waiting.decrementAndGet();
+        inUse.incrementAndGet();
+        meterRegistry.timer("mongo.admission.wait").record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        waiting.decrementAndGet();
+        meterRegistry.timer("mongo.admission.wait").record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        if (event.getReason() == ConnectionCheckOutFailedEvent.Reason.TIMEOUT) {
+            meterRegistry.counter("mongo.admission.rejected", "reason", "wait_timeout").increment();
+        }
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        inUse.decrementAndGet();
+    }
+}
@@ -0,0 +1,57 @@
+package com.StockMaster.inventory_backend.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Load shedding in front of the MongoDB connection pool. With virtual threads the server
+ * accepts far more concurrent requests than there are connections; the pool itself bounds
+ * concurrent Mongo work and how long a checkout waits (MongoAdmission). API requests arriving
+ * while max-waiting checkouts are already queued are answered with 503 and Retry-After instead
+ * of joining the queue. No permit is held by the request, so streamed and async responses
+ * only occupy a connection while they actually read from MongoDB.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 100)
+public class MongoAdmissionFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private MongoAdmission mongoAdmission;
+
+    @Value("${mongo.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mongo.admission.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !enabled || !path.startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!mongoAdmission.admit()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", Integer.toString(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\":\"Server is busy, retry later\"}");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
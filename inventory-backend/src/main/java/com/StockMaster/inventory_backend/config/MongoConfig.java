@@ -4,6 +4,11 @@ import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import com.StockMaster.inventory_backend.metrics.MongoOperationCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -23,22 +28,49 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     @Value("${spring.data.mongodb.database}")
     private String databaseName;
 
+    @Value("${mongo.pool.max-size:20}")
+    private int poolMaxSize;
+
+    @Value("${mongo.admission.max-wait-ms:2000}")
+    private long admissionMaxWaitMs;
+
+    @Autowired
+    private MongoOperationCounter mongoOperationCounter;
+
+    @Autowired
+    private MongoAdmission mongoAdmission;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Override
     protected String getDatabaseName() {
         return databaseName;
     }
 
+    @Override
+    protected boolean autoIndexCreation() {
+        // Stock mutations rely on the unique product/warehouse index to reject bad upserts
+        return true;
+    }
+
     @Override
     public MongoClient mongoClient() {
         ConnectionString connectionString = new ConnectionString(mongoUri);
         
         MongoClientSettings mongoClientSettings = MongoClientSettings.builder()
                 .applyConnectionString(connectionString)
+                // Built by hand, so Boot's Mongo metrics customizers never see it; register them here
+                .addCommandListener(new MongoMetricsCommandListener(meterRegistry))
+                .addCommandListener(mongoOperationCounter)
                 .applyToConnectionPoolSettings(builder -> 
-                    builder.maxConnectionIdleTime(60000, TimeUnit.MILLISECONDS)
+                    builder.addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry))
+                           .addConnectionPoolListener(mongoAdmission)
+                           .maxConnectionIdleTime(60000, TimeUnit.MILLISECONDS)
                            .maxConnectionLifeTime(120000, TimeUnit.MILLISECONDS)
                            .minSize(5)
-                           .maxSize(20))
+                           .maxSize(poolMaxSize)
+                           .maxWaitTime(admissionMaxWaitMs, TimeUnit.MILLISECONDS))
                 .applyToSocketSettings(builder -> 
                     builder.connectTimeout(10000, TimeUnit.MILLISECONDS)
                            .readTimeout(10000, TimeUnit.MILLISECONDS))
@@ -1,12 +1,15 @@
 package com.StockMaster.inventory_backend.controllers;
 
 import com.StockMaster.inventory_backend.dto.AuthResponse;
+import com.StockMaster.inventory_backend.dto.ChangePasswordRequest;
+import com.StockMaster.inventory_backend.dto.ChangeRoleRequest;
 import com.StockMaster.inventory_backend.dto.LoginRequest;
 import com.StockMaster.inventory_backend.dto.RegisterRequest;
 import com.StockMaster.inventory_backend.services.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -39,6 +42,34 @@ public class AuthController {
         }
     }
 
+    /**
+     * Change the caller's own password; the response carries a new token, older ones stop working
+     */
+    @PutMapping("/password")
+    public ResponseEntity<?> changePassword(@RequestBody ChangePasswordRequest request,
+                                            Authentication authentication) {
+        try {
+            AuthResponse response = authService.changePassword(authentication.getName(),
+                    request.getCurrentPassword(), request.getNewPassword());
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    // Admins only, see SecurityConfig
+    @PutMapping("/users/{email}/role")
+    public ResponseEntity<?> changeRole(@PathVariable String email, @RequestBody ChangeRoleRequest request) {
+        try {
+            authService.changeRole(email, request.getRole());
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/test")
     public ResponseEntity<String> test() {
         return ResponseEntity.ok("Auth API is working!");
@@ -1,11 +1,14 @@
 package com.StockMaster.inventory_backend.controllers;
 
 import com.StockMaster.inventory_backend.dto.DashboardDTO;
+import com.StockMaster.inventory_backend.models.DashboardRollup;
+import com.StockMaster.inventory_backend.services.DashboardRollupService;
 import com.StockMaster.inventory_backend.services.DashboardService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,6 +19,9 @@ public class DashboardController {
     @Autowired
     private DashboardService dashboardService;
 
+    @Autowired
+    private DashboardRollupService rollupService;
+
     @GetMapping
     public ResponseEntity<DashboardDTO> getDashboard() {
         DashboardDTO dashboard = dashboardService.getDashboardData();
@@ -27,4 +33,23 @@ public class DashboardController {
         Map<String, Object> analysis = dashboardService.getStockValueAnalysis();
         return ResponseEntity.ok(analysis);
     }
+
+    // The endpoints below scan all stock and products, so SecurityConfig limits them to admins
+
+    @GetMapping("/recompute")
+    public ResponseEntity<DashboardDTO> recomputeDashboard() {
+        DashboardDTO dashboard = dashboardService.recomputeDashboardData();
+        return ResponseEntity.ok(dashboard);
+    }
+
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<?> rebuildRollups() {
+        List<DashboardRollup> rollups = rollupService.rebuild();
+        return ResponseEntity.ok(Map.of("message", "Dashboard rollups rebuilt", "documents", rollups.size()));
+    }
+
+    @GetMapping("/rollups/consistency")
+    public ResponseEntity<?> checkRollupConsistency() {
+        return ResponseEntity.ok(rollupService.checkConsistency());
+    }
 }
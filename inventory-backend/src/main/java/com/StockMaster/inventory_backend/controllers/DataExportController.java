@@ -0,0 +1,56 @@
+package com.StockMaster.inventory_backend.controllers;
+
+import com.StockMaster.inventory_backend.services.DataExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin endpoints for the nightly stock and ledger file extracts, see {@link DataExportService}.
+ * SecurityConfig keeps them to admins.
+ */
+@RestController
+@RequestMapping("/api/exports")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class DataExportController {
+    
+    @Autowired
+    private DataExportService dataExportService;
+    
+    @GetMapping("/status")
+    public ResponseEntity<?> getStatus() {
+        return ResponseEntity.ok(dataExportService.getStatus());
+    }
+    
+    /**
+     * Start an export in the background, dataset is stock, ledger or all. force=true rewrites
+     * today's stock extract. Answers 202 with the run to poll, or 409 with the run still going.
+     */
+    @PostMapping("/run")
+    public ResponseEntity<?> runExport(@RequestParam(defaultValue = "all") String dataset,
+                                       @RequestParam(defaultValue = "false") boolean force) {
+        if (!List.of(DataExportService.STOCK, DataExportService.LEDGER, "all").contains(dataset)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", "Unknown dataset: " + dataset));
+        }
+        DataExportService.ExportRun run = dataExportService.startExport(dataset, force);
+        if (run == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(dataExportService.getLastRun());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(run);
+    }
+    
+    @GetMapping("/runs/{id}")
+    public ResponseEntity<?> getRun(@PathVariable String id) {
+        DataExportService.ExportRun run = dataExportService.getRun(id);
+        if (run == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", "Export run not found: " + id));
+        }
+        return ResponseEntity.ok(run);
+    }
+}
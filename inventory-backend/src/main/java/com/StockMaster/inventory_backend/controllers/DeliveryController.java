@@ -2,12 +2,18 @@ package com.StockMaster.inventory_backend.controllers;
 
 import com.StockMaster.inventory_backend.dto.DeliveryDTO;
 import com.StockMaster.inventory_backend.services.DeliveryService;
+import com.StockMaster.inventory_backend.services.InvalidPageRequestException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -19,12 +25,38 @@ public class DeliveryController {
     @Autowired
     private DeliveryService deliveryService;
 
+    @Autowired
+    private JsonArrayStreamer jsonArrayStreamer;
+
     @GetMapping
     public ResponseEntity<List<DeliveryDTO>> getAllDeliveries() {
         List<DeliveryDTO> deliveries = deliveryService.getAllDeliveries();
         return ResponseEntity.ok(deliveries);
     }
 
+    /**
+     * Same as the list endpoint, written incrementally from a MongoDB cursor
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDeliveries() {
+        return jsonArrayStreamer.stream(deliveryService::streamAllDeliveries);
+    }
+
+    /**
+     * One page of the list endpoint, e.g. ?page=0&size=50&sort=createdAt,desc&fields=deliveryNumber,status.
+     * Only indexed fields can be sorted on and size is capped at 200.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getPage(@PageableDefault(size = 50, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+                                     @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(deliveryService.getDeliveriesPage(pageable, fields));
+        } catch (InvalidPageRequestException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/status/{status}")
     public ResponseEntity<List<DeliveryDTO>> getDeliveriesByStatus(@PathVariable String status) {
         List<DeliveryDTO> deliveries = deliveryService.getDeliveriesByStatus(status.toUpperCase());
@@ -2,10 +2,16 @@ package com.StockMaster.inventory_backend.controllers;
 
 import com.StockMaster.inventory_backend.models.InternalTransfer;
 import com.StockMaster.inventory_backend.services.InternalTransferService;
+import com.StockMaster.inventory_backend.services.InvalidPageRequestException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -20,11 +26,37 @@ public class InternalTransferController {
     @Autowired
     private InternalTransferService transferService;
     
+    @Autowired
+    private JsonArrayStreamer jsonArrayStreamer;
+    
     @GetMapping
     public ResponseEntity<List<InternalTransfer>> getAllTransfers() {
         return ResponseEntity.ok(transferService.getAllTransfers());
     }
     
+    /**
+     * Same as the list endpoint, written incrementally from a MongoDB cursor
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTransfers() {
+        return jsonArrayStreamer.stream(transferService::streamAllTransfers);
+    }
+    
+    /**
+     * One page of the list endpoint, e.g. ?page=0&size=50&sort=createdAt,desc&fields=productName,status.
+     * Only indexed fields can be sorted on and size is capped at 200.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getPage(@PageableDefault(size = 50, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+                                     @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(transferService.getTransfersPage(pageable, fields));
+        } catch (InvalidPageRequestException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<?> getTransferById(@PathVariable String id) {
         Optional<InternalTransfer> transfer = transferService.getTransferById(id);
@@ -0,0 +1,44 @@
+package com.StockMaster.inventory_backend.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a cursor-backed stream as one JSON array, element by element. The next
+ * document is only pulled from the cursor once the previous one has been written,
+ * so a slow client slows the cursor down instead of growing the heap. If the cursor
+ * fails halfway the connection is aborted rather than the array being closed, so
+ * clients never mistake a partial result for a complete one.
+ */
+@Component
+public class JsonArrayStreamer {
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> source) {
+        StreamingResponseBody body = out -> {
+            // On failure the generator is deliberately left open: closing it would write the
+            // missing "]" and make a truncated array look complete. The exception propagates
+            // instead, and the container aborts the already committed response.
+            try (Stream<T> items = source.get()) {
+                JsonGenerator generator = jsonMapper.createGenerator(out);
+                generator.writeStartArray();
+                items.forEach(item -> jsonMapper.writeValue(generator, item));
+                generator.writeEndArray();
+                generator.close();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
@@ -1,13 +1,21 @@
 package com.StockMaster.inventory_backend.controllers;
 
 import com.StockMaster.inventory_backend.dto.ProductDTO;
+import com.StockMaster.inventory_backend.services.InvalidPageRequestException;
+import com.StockMaster.inventory_backend.services.ProductImportService;
 import com.StockMaster.inventory_backend.services.ProductService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -18,6 +26,12 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private JsonArrayStreamer jsonArrayStreamer;
+
     @GetMapping
     public ResponseEntity<List<ProductDTO>> getAllProducts() {
         try {
@@ -28,6 +42,29 @@ public class ProductController {
         }
     }
 
+    /**
+     * Same as the list endpoint, written incrementally from a MongoDB cursor
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamProducts() {
+        return jsonArrayStreamer.stream(productService::streamAllProducts);
+    }
+
+    /**
+     * One page of the list endpoint, e.g. ?page=0&size=50&sort=name&fields=id,name,sku.
+     * Only indexed fields can be sorted on and size is capped at 200.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getPage(@PageableDefault(size = 50, sort = "name") Pageable pageable,
+                                     @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(productService.getProductsPage(pageable, fields));
+        } catch (InvalidPageRequestException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/active")
     public ResponseEntity<List<ProductDTO>> getActiveProducts() {
         try {
@@ -70,6 +107,20 @@ public class ProductController {
         }
     }
 
+    /**
+     * Typeahead: best matches for what has been typed so far
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductDTO>> suggestProducts(@RequestParam String q,
+                                                            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<ProductDTO> products = productService.suggestProducts(q, limit);
+            return ResponseEntity.ok(products);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/category/{category}")
     public ResponseEntity<List<ProductDTO>> getProductsByCategory(@PathVariable String category) {
         try {
@@ -91,6 +142,26 @@ public class ProductController {
         }
     }
 
+    /**
+     * Bulk import from a text/csv or application/x-ndjson body, read as it streams in.
+     * Returns counts and the failed rows by line number; the valid rows are imported either way.
+     * With upsert=true, rows for existing SKUs update those products instead of failing.
+     */
+    @PostMapping(value = "/bulk", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                            @RequestParam(defaultValue = "false") boolean upsert,
+                                            InputStream body) {
+        ProductImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.NDJSON;
+        try {
+            return ResponseEntity.ok(productImportService.importProducts(body, format, upsert));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateProduct(@PathVariable String id, 
                                           @Valid @RequestBody ProductDTO productDTO) {
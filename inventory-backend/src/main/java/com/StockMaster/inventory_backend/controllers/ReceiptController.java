@@ -1,13 +1,19 @@
 package com.StockMaster.inventory_backend.controllers;
 
 import com.StockMaster.inventory_backend.dto.ReceiptDTO;
+import com.StockMaster.inventory_backend.services.InvalidPageRequestException;
 import com.StockMaster.inventory_backend.services.ReceiptService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -19,12 +25,38 @@ public class ReceiptController {
     @Autowired
     private ReceiptService receiptService;
 
+    @Autowired
+    private JsonArrayStreamer jsonArrayStreamer;
+
     @GetMapping
     public ResponseEntity<List<ReceiptDTO>> getAllReceipts() {
         List<ReceiptDTO> receipts = receiptService.getAllReceipts();
         return ResponseEntity.ok(receipts);
     }
 
+    /**
+     * Same as the list endpoint, written incrementally from a MongoDB cursor
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamReceipts() {
+        return jsonArrayStreamer.stream(receiptService::streamAllReceipts);
+    }
+
+    /**
+     * One page of the list endpoint, e.g. ?page=0&size=50&sort=createdAt,desc&fields=receiptNumber,status.
+     * Only indexed fields can be sorted on and size is capped at 200.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getPage(@PageableDefault(size = 50, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+                                     @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(receiptService.getReceiptsPage(pageable, fields));
+        } catch (InvalidPageRequestException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/status/{status}")
     public ResponseEntity<List<ReceiptDTO>> getReceiptsByStatus(@PathVariable String status) {
         List<ReceiptDTO> receipts = receiptService.getReceiptsByStatus(status.toUpperCase());
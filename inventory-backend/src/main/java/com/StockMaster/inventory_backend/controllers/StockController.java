@@ -1,14 +1,26 @@
 package com.StockMaster.inventory_backend.controllers;
 
+import com.StockMaster.inventory_backend.dto.CycleCountDTO;
+import com.StockMaster.inventory_backend.dto.CycleCountResultDTO;
 import com.StockMaster.inventory_backend.dto.StockDTO;
+import com.StockMaster.inventory_backend.services.CycleCountService;
+import com.StockMaster.inventory_backend.services.InvalidPageRequestException;
 import com.StockMaster.inventory_backend.services.StockService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/stock")
@@ -18,12 +30,41 @@ public class StockController {
     @Autowired
     private StockService stockService;
 
+    @Autowired
+    private CycleCountService cycleCountService;
+
+    @Autowired
+    private JsonArrayStreamer jsonArrayStreamer;
+
     @GetMapping
     public ResponseEntity<List<StockDTO>> getAllStock() {
         List<StockDTO> stock = stockService.getAllStock();
         return ResponseEntity.ok(stock);
     }
 
+    /**
+     * Same as the list endpoint, written incrementally from a MongoDB cursor
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStock() {
+        return jsonArrayStreamer.stream(stockService::streamAllStock);
+    }
+
+    /**
+     * One page of the list endpoint, e.g. ?page=0&size=50&sort=quantity&fields=productName,quantity.
+     * Only indexed fields can be sorted on and size is capped at 200.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getPage(@PageableDefault(size = 50, sort = "quantity") Pageable pageable,
+                                     @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(stockService.getStockPage(pageable, fields));
+        } catch (InvalidPageRequestException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/warehouse/{warehouseId}")
     public ResponseEntity<List<StockDTO>> getStockByWarehouse(@PathVariable String warehouseId) {
         List<StockDTO> stock = stockService.getStockByWarehouse(warehouseId);
@@ -59,6 +100,21 @@ public class StockController {
         }
     }
 
+    @GetMapping("/as-of")
+    public ResponseEntity<List<StockDTO>> getStockAsOf(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime timestamp,
+            @RequestParam(required = false) String warehouseId) {
+        List<StockDTO> stock = stockService.getStockAsOf(timestamp, warehouseId);
+        return ResponseEntity.ok(stock);
+    }
+
+    // Admins only, see SecurityConfig
+    @PostMapping("/snapshots")
+    public ResponseEntity<Map<String, Object>> takeSnapshots() {
+        int warehouses = stockService.takeSnapshots();
+        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("warehouses", warehouses));
+    }
+
     @GetMapping("/low")
     public ResponseEntity<List<StockDTO>> getLowStock(@RequestParam(defaultValue = "10") Integer threshold) {
         List<StockDTO> lowStock = stockService.getLowStock(threshold);
@@ -95,6 +151,29 @@ public class StockController {
         }
     }
 
+    /**
+     * Reconcile a warehouse against a counted snapshot. With dryRun=true nothing is written and
+     * the response is the variance report. Otherwise each differing row is set to its counted
+     * quantity unless it moved since it was read, and logged as an ADJUSTMENT ledger entry under
+     * the returned countId; rows that moved are listed as conflicts to recount. A run that stops
+     * partway answers 500 with the report of what it wrote, and rerunning the count finishes it.
+     */
+    @PostMapping("/reconcile/{warehouseId}")
+    public ResponseEntity<?> reconcile(@PathVariable String warehouseId,
+                                       @RequestParam(defaultValue = "false") boolean dryRun,
+                                       @Valid @RequestBody CycleCountDTO count,
+                                       Authentication authentication) {
+        try {
+            String username = authentication != null ? authentication.getName() : "system";
+            CycleCountResultDTO result = cycleCountService.reconcile(warehouseId, count, dryRun, username);
+            return ResponseEntity.status(result.isComplete() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(result);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     static class ErrorResponse {
         private String message;
 
@@ -1,29 +1,102 @@
 package com.StockMaster.inventory_backend.controllers;
 
+import com.StockMaster.inventory_backend.dto.LedgerPageDTO;
 import com.StockMaster.inventory_backend.models.StockLedger;
+import com.StockMaster.inventory_backend.services.LedgerFilter;
 import com.StockMaster.inventory_backend.services.StockLedgerService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/ledger")
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
 public class StockLedgerController {
     
+    private static final String NDJSON = "application/x-ndjson";
+    
     @Autowired
     private StockLedgerService ledgerService;
     
+    @Autowired
+    private JsonMapper jsonMapper;
+    
+    /**
+     * @deprecated returns only the newest entries, up to the /page size cap, with a Link to
+     * the next page; use /page to walk the ledger or /export to stream it
+     */
+    @Deprecated
     @GetMapping
     public ResponseEntity<List<StockLedger>> getAllLedgerEntries() {
-        return ResponseEntity.ok(ledgerService.getAllLedgerEntries());
+        return deprecatedList(ledgerService.getRecentLedgerEntries(null, null), new LedgerFilter());
+    }
+    
+    @GetMapping("/page")
+    public ResponseEntity<?> getLedgerPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String productId,
+            @RequestParam(required = false) String warehouseId,
+            @RequestParam(required = false) String changeType,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String referenceId) {
+        LedgerFilter filter = new LedgerFilter()
+                .product(productId)
+                .warehouse(warehouseId)
+                .changeType(changeType)
+                .user(userId)
+                .reference(referenceId)
+                .between(startDate, endDate);
+        try {
+            return ResponseEntity.ok(ledgerService.getLedgerPage(filter, cursor, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportLedger(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        StreamingResponseBody body = out -> {
+            try (Stream<StockLedger> entries = ledgerService.streamLedgerEntries(startDate, endDate)) {
+                entries.forEach(entry -> {
+                    try {
+                        out.write(jsonMapper.writeValueAsBytes(entry));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+    
+    // Admins only, see SecurityConfig
+    @PostMapping("/archive/run")
+    public ResponseEntity<Map<String, Object>> archiveLedger() {
+        return ResponseEntity.ok(ledgerService.archiveLedger());
     }
     
     @GetMapping("/{id}")
@@ -36,42 +109,88 @@ public class StockLedgerController {
                 .body(Map.of("message", "Ledger entry not found"));
     }
     
+    /**
+     * @deprecated the filtered lists below are capped like {@link #getAllLedgerEntries()}; use
+     * /page with the same filter as a query parameter
+     */
+    @Deprecated
     @GetMapping("/product/{productId}")
     public ResponseEntity<List<StockLedger>> getLedgerEntriesByProduct(@PathVariable String productId) {
-        return ResponseEntity.ok(ledgerService.getLedgerEntriesByProduct(productId));
+        return deprecatedList(ledgerService.getLedgerEntriesByProduct(productId), new LedgerFilter().product(productId));
     }
     
+    @Deprecated
     @GetMapping("/warehouse/{warehouseId}")
     public ResponseEntity<List<StockLedger>> getLedgerEntriesByWarehouse(@PathVariable String warehouseId) {
-        return ResponseEntity.ok(ledgerService.getLedgerEntriesByWarehouse(warehouseId));
+        return deprecatedList(ledgerService.getLedgerEntriesByWarehouse(warehouseId), new LedgerFilter().warehouse(warehouseId));
     }
     
+    @Deprecated
     @GetMapping("/change-type/{changeType}")
     public ResponseEntity<List<StockLedger>> getLedgerEntriesByChangeType(@PathVariable String changeType) {
-        return ResponseEntity.ok(ledgerService.getLedgerEntriesByChangeType(changeType));
+        return deprecatedList(ledgerService.getLedgerEntriesByChangeType(changeType), new LedgerFilter().changeType(changeType));
     }
     
+    @Deprecated
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<StockLedger>> getLedgerEntriesByUser(@PathVariable String userId) {
-        return ResponseEntity.ok(ledgerService.getLedgerEntriesByUser(userId));
+        return deprecatedList(ledgerService.getLedgerEntriesByUser(userId), new LedgerFilter().user(userId));
     }
     
+    @Deprecated
     @GetMapping("/reference/{referenceId}")
     public ResponseEntity<List<StockLedger>> getLedgerEntriesByReference(@PathVariable String referenceId) {
-        return ResponseEntity.ok(ledgerService.getLedgerEntriesByReference(referenceId));
+        return deprecatedList(ledgerService.getLedgerEntriesByReference(referenceId), new LedgerFilter().reference(referenceId));
     }
     
+    /**
+     * @deprecated capped like {@link #getAllLedgerEntries()}; use /page or /export with startDate/endDate
+     */
+    @Deprecated
     @GetMapping("/date-range")
     public ResponseEntity<List<StockLedger>> getLedgerEntriesByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        return ResponseEntity.ok(ledgerService.getLedgerEntriesByDateRange(startDate, endDate));
+        return deprecatedList(ledgerService.getRecentLedgerEntries(startDate, endDate),
+                new LedgerFilter().between(startDate, endDate));
     }
     
+    @Deprecated
     @GetMapping("/product/{productId}/warehouse/{warehouseId}")
     public ResponseEntity<List<StockLedger>> getLedgerEntriesByProductAndWarehouse(
             @PathVariable String productId,
             @PathVariable String warehouseId) {
-        return ResponseEntity.ok(ledgerService.getLedgerEntriesByProductAndWarehouse(productId, warehouseId));
+        return deprecatedList(ledgerService.getLedgerEntriesByProductAndWarehouse(productId, warehouseId),
+                new LedgerFilter().product(productId).warehouse(warehouseId));
+    }
+    
+    /**
+     * Flags a deprecated list endpoint and, when it was cut off, says so in X-Truncated and links
+     * the /page request with the same filter that continues it
+     */
+    private static ResponseEntity<List<StockLedger>> deprecatedList(LedgerPageDTO page, LedgerFilter filter) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header("Deprecation", "true")
+                .header("X-Truncated", String.valueOf(page.isHasMore()));
+        if (page.isHasMore()) {
+            UriComponentsBuilder next = UriComponentsBuilder.fromPath("/api/ledger/page")
+                    .queryParam("cursor", page.getNextCursor())
+                    .queryParam("limit", page.getEntries().size());
+            queryParam(next, "productId", filter.getProductId());
+            queryParam(next, "warehouseId", filter.getWarehouseId());
+            queryParam(next, "changeType", filter.getChangeType());
+            queryParam(next, "userId", filter.getUserId());
+            queryParam(next, "referenceId", filter.getReferenceId());
+            queryParam(next, "startDate", filter.getStartDate());
+            queryParam(next, "endDate", filter.getEndDate());
+            response.header(HttpHeaders.LINK, "<" + next.build().encode().toUriString() + ">; rel=\"next\"");
+        }
+        return response.body(page.getEntries());
+    }
+    
+    private static void queryParam(UriComponentsBuilder uri, String name, Object value) {
+        if (value != null) {
+            uri.queryParam(name, value);
+        }
     }
 }
@@ -1,9 +1,12 @@
 package com.StockMaster.inventory_backend.controllers;
 
 import com.StockMaster.inventory_backend.dto.WarehouseDTO;
+import com.StockMaster.inventory_backend.services.InvalidPageRequestException;
 import com.StockMaster.inventory_backend.services.WarehouseService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +27,21 @@ public class WarehouseController {
         return ResponseEntity.ok(warehouses);
     }
 
+    /**
+     * One page of the list endpoint, e.g. ?page=0&size=50&sort=name&fields=id,name.
+     * Only indexed fields can be sorted on and size is capped at 200.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getPage(@PageableDefault(size = 50, sort = "name") Pageable pageable,
+                                     @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(warehouseService.getWarehousesPage(pageable, fields));
+        } catch (InvalidPageRequestException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/active")
     public ResponseEntity<List<WarehouseDTO>> getActiveWarehouses() {
         List<WarehouseDTO> warehouses = warehouseService.getActiveWarehouses();
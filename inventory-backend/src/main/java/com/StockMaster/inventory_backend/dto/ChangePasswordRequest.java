@@ -0,0 +1,14 @@
+package com.StockMaster.inventory_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangePasswordRequest {
+    
+    private String currentPassword;
+    private String newPassword;
+}
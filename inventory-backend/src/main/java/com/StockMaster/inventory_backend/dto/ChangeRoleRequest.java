@@ -0,0 +1,13 @@
+package com.StockMaster.inventory_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeRoleRequest {
+    
+    private String role;
+}
@@ -0,0 +1,41 @@
+package com.StockMaster.inventory_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CycleCountDTO {
+    
+    @NotEmpty(message = "At least one counted line is required")
+    @Valid
+    private List<CountLine> lines;
+    
+    // Treat products with stock in the warehouse but no counted line as counted at zero
+    private boolean missingAsZero;
+    
+    private String notes;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CountLine {
+        
+        // Either the product id or its SKU
+        private String productId;
+        private String sku;
+        
+        @NotNull(message = "Counted quantity is required")
+        @Min(value = 0, message = "Counted quantity must be non-negative")
+        private Integer quantity;
+    }
+}
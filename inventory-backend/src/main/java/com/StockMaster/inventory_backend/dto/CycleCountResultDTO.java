@@ -0,0 +1,58 @@
+package com.StockMaster.inventory_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CycleCountResultDTO {
+    
+    // Reference id of the ADJUSTMENT ledger entries, null for a dry run
+    private String countId;
+    
+    private String warehouseId;
+    private String warehouseName;
+    private boolean dryRun;
+    
+    private long linesCounted;
+    private long productsCounted;
+    private long unchanged;
+    private long adjusted;
+    private long created;
+    
+    // Sum of the signed variances, and of their absolute values
+    private long netVariance;
+    private long absoluteVariance;
+    
+    // Rows that were written, or for a dry run would be
+    private List<Variance> variances = new ArrayList<>();
+    
+    // Rows whose quantity moved between the diff and the write, left as they are; recount them
+    private List<Variance> conflicts = new ArrayList<>();
+    
+    // False when the run stopped partway, see errors; rerunning the same count finishes it
+    private boolean complete = true;
+    
+    // Lines that could not be matched to a product, which are left out of the reconciliation,
+    // and rows that could not be written
+    private List<String> errors = new ArrayList<>();
+    
+    private long elapsedMs;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Variance {
+        private String productId;
+        private String productSku;
+        private String productName;
+        private int quantityBefore;
+        private int quantityCounted;
+        private int variance;
+    }
+}
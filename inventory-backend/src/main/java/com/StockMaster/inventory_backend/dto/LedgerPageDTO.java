@@ -0,0 +1,21 @@
+package com.StockMaster.inventory_backend.dto;
+
+import com.StockMaster.inventory_backend.models.StockLedger;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerPageDTO {
+    
+    private List<StockLedger> entries;
+    
+    // Opaque cursor for the next page, null on the last page
+    private String nextCursor;
+    
+    private boolean hasMore;
+}
@@ -0,0 +1,21 @@
+package com.StockMaster.inventory_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageDTO<T> {
+    
+    // DTOs, or maps holding only the requested fields when fields= is given
+    private List<T> content;
+    
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+}
@@ -0,0 +1,36 @@
+package com.StockMaster.inventory_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResultDTO {
+
+    private long received;
+    private long created;
+    private long updated;
+    private long failed;
+
+    // The first failures only, failed has the full count
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    private long elapsedMs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+
+        // Line number in the uploaded file, the CSV header being line 1
+        private long line;
+        private String sku;
+        private String message;
+    }
+}
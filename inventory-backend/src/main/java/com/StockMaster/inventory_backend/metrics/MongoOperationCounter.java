@@ -0,0 +1,35 @@
+package com.StockMaster.inventory_backend.metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Number of MongoDB commands issued by the current request thread, counted by this driver
+ * listener. The sync driver reports commands on the calling thread, so background writers
+ * are not counted. Command timings themselves are Micrometer's mongodb.driver.commands.
+ */
+@Component
+public class MongoOperationCounter implements CommandListener {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        COUNT.get()[0]++;
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        COUNT.get()[0]++;
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public static int get() {
+        return COUNT.get()[0];
+    }
+}
@@ -0,0 +1,95 @@
+package com.StockMaster.inventory_backend.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * In debug mode ({@code metrics.mongo-ops-header.enabled}) adds an X-Mongo-Operations
+ * header with the number of MongoDB commands the request issued before its response
+ * was committed, which makes N+1 query patterns visible from the client.
+ */
+@Component
+public class MongoOperationsHeaderFilter extends OncePerRequestFilter {
+
+    static final String HEADER = "X-Mongo-Operations";
+
+    @Value("${metrics.mongo-ops-header.enabled:false}")
+    private boolean enabled;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        MongoOperationCounter.reset();
+        HeaderOnCommitResponse wrapped = new HeaderOnCommitResponse(response);
+        try {
+            filterChain.doFilter(request, wrapped);
+        } finally {
+            wrapped.addCountHeader();
+            MongoOperationCounter.reset();
+        }
+    }
+
+    /**
+     * Sets the header just before the first byte of the body is written
+     */
+    private static class HeaderOnCommitResponse extends HttpServletResponseWrapper {
+
+        private boolean headerAdded;
+
+        HeaderOnCommitResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        void addCountHeader() {
+            if (!headerAdded && !isCommitted()) {
+                headerAdded = true;
+                setHeader(HEADER, Integer.toString(MongoOperationCounter.get()));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addCountHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addCountHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addCountHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addCountHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addCountHeader();
+            super.sendError(sc);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.StockMaster.inventory_backend.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Records the annotated method's duration in a {@code service.method} timer tagged
+ * with the given name. Only calls through the Spring bean are timed, not self-calls.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Timed {
+
+    String value();
+}
@@ -0,0 +1,98 @@
+package com.StockMaster.inventory_backend.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wraps application repositories and beans with {@link Timed} methods in a timing proxy:
+ * every repository call is recorded in the {@code mongo.repository} Micrometer timer,
+ * annotated service methods in {@code service.method}.
+ */
+@Component
+public class TimingBeanPostProcessor implements BeanPostProcessor {
+
+    private static final String APPLICATION_PACKAGE = "com.StockMaster.inventory_backend";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public TimingBeanPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> repository = applicationRepository(bean);
+        if (repository != null) {
+            String repositoryName = repository.getSimpleName();
+            ProxyFactory proxy = new ProxyFactory();
+            proxy.setTarget(bean);
+            proxy.addInterface(repository);
+            proxy.addAdvice((MethodInterceptor) invocation -> {
+                Timer timer = meterRegistry.getObject().timer("mongo.repository",
+                        "repository", repositoryName, "method", invocation.getMethod().getName());
+                long start = System.nanoTime();
+                try {
+                    return invocation.proceed();
+                } finally {
+                    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+            return proxy.getProxy();
+        }
+
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        if (targetClass.getName().startsWith(APPLICATION_PACKAGE) && hasTimedMethod(targetClass)) {
+            ProxyFactory proxy = new ProxyFactory(bean);
+            proxy.setProxyTargetClass(true);
+            proxy.addAdvice((MethodInterceptor) invocation -> {
+                Timed timed = AnnotationUtils.findAnnotation(
+                        AopUtils.getMostSpecificMethod(invocation.getMethod(), targetClass), Timed.class);
+                if (timed == null) {
+                    return invocation.proceed();
+                }
+                Timer timer = meterRegistry.getObject().timer("service.method", "name", timed.value());
+                long start = System.nanoTime();
+                try {
+                    return invocation.proceed();
+                } finally {
+                    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+            return proxy.getProxy();
+        }
+
+        return bean;
+    }
+
+    private static Class<?> applicationRepository(Object bean) {
+        if (!(bean instanceof Repository<?, ?>)) {
+            return null;
+        }
+        for (Class<?> type : bean.getClass().getInterfaces()) {
+            if (Repository.class.isAssignableFrom(type) && type.getName().startsWith(APPLICATION_PACKAGE)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasTimedMethod(Class<?> type) {
+        AtomicBoolean found = new AtomicBoolean();
+        ReflectionUtils.doWithMethods(type, method -> found.set(true),
+                (Method method) -> !found.get() && method.isAnnotationPresent(Timed.class));
+        return found.get();
+    }
+}
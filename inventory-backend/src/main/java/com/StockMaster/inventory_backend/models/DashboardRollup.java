@@ -0,0 +1,65 @@
+package com.StockMaster.inventory_backend.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Incrementally maintained dashboard aggregate. Each document holds one
+ * rollup: the global totals, one warehouse, one category or one low stock row.
+ */
+@Document(collection = "dashboard_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardRollup {
+
+    public static final String TOTALS = "TOTALS";
+    public static final String WAREHOUSE = "WAREHOUSE";
+    public static final String CATEGORY = "CATEGORY";
+    public static final String LOW_STOCK = "LOW_STOCK";
+
+    @Id
+    private String id;
+
+    private String type; // TOTALS, WAREHOUSE, CATEGORY, LOW_STOCK
+
+    private String warehouseId;
+
+    private String category;
+
+    private String productId;
+
+    private String productName;
+
+    private String sku;
+
+    private Integer reorderLevel;
+
+    private Long productCount;
+
+    private Long itemCount;
+
+    private Long quantity;
+
+    private LocalDateTime updatedAt;
+
+    // Only set on TOTALS, by a full rebuild; deltas alone never set it
+    private LocalDateTime builtAt;
+
+    public static String warehouseKey(String warehouseId) {
+        return WAREHOUSE + ":" + warehouseId;
+    }
+
+    public static String categoryKey(String category) {
+        return CATEGORY + ":" + category;
+    }
+
+    public static String lowStockKey(String productId, String warehouseId) {
+        return LOW_STOCK + ":" + productId + ":" + warehouseId;
+    }
+}
@@ -4,6 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -13,7 +16,14 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Delivery {
+@CompoundIndexes({
+    @CompoundIndex(name = "status_created_idx", def = "{'status': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "warehouse_created_idx", def = "{'warehouseId': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "created_id_idx", def = "{'createdAt': -1, '_id': -1}"),
+    @CompoundIndex(name = "delivery_date_id_idx", def = "{'deliveryDate': 1, '_id': 1}"),
+    @CompoundIndex(name = "delivery_number_id_idx", def = "{'deliveryNumber': 1, '_id': 1}")
+})
+public class Delivery implements WorkflowDocument {
     
     @Id
     private String id;
@@ -26,7 +36,7 @@ public class Delivery {
     
     private LocalDateTime deliveryDate;
     
-    private String status; // DRAFT, VALIDATED
+    private String status; // DRAFT, VALIDATING, VALIDATED
     
     private List<DeliveryItem> items;
     
@@ -40,6 +50,15 @@ public class Delivery {
     
     private String validatedBy;
     
+    // Set by the DRAFT -> VALIDATING claim. A claim left behind by a crash is finished or handed
+    // back going by the stock rows' applied tags, see WorkflowRecoveryService
+    private LocalDateTime claimedAt;
+    
+    private String claimedBy;
+    
+    @Version
+    private Long version;
+    
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
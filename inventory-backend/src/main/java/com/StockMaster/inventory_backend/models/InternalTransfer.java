@@ -1,11 +1,22 @@
 package com.StockMaster.inventory_backend.models;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Document(collection = "internal_transfers")
-public class InternalTransfer {
+@CompoundIndexes({
+    @CompoundIndex(name = "status_created_idx", def = "{'status': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "from_warehouse_created_idx", def = "{'fromWarehouseId': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "to_warehouse_created_idx", def = "{'toWarehouseId': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "product_created_idx", def = "{'productId': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "created_by_idx", def = "{'createdBy': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "created_id_idx", def = "{'createdAt': -1, '_id': -1}")
+})
+public class InternalTransfer implements WorkflowDocument {
     
     @Id
     private String id;
@@ -22,7 +33,7 @@ public class InternalTransfer {
     
     private Integer quantity;
     
-    private String status; // DRAFT, COMPLETED, CANCELLED
+    private String status; // DRAFT, COMPLETING, COMPLETED, CANCELLED
     
     private String notes;
     
@@ -32,6 +43,14 @@ public class InternalTransfer {
     private LocalDateTime createdAt;
     private LocalDateTime completedAt;
     
+    // Set by the DRAFT -> COMPLETING claim. A claim left behind by a crash is finished or handed
+    // back going by the stock rows' applied tags, see WorkflowRecoveryService
+    private LocalDateTime claimedAt;
+    private String claimedBy;
+    
+    @Version
+    private Long version;
+    
     // Constructors
     public InternalTransfer() {
         this.createdAt = LocalDateTime.now();
@@ -175,4 +194,28 @@ public class InternalTransfer {
     public void setCompletedAt(LocalDateTime completedAt) {
         this.completedAt = completedAt;
     }
+    
+    public LocalDateTime getClaimedAt() {
+        return claimedAt;
+    }
+    
+    public void setClaimedAt(LocalDateTime claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+    
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+    
+    public void setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
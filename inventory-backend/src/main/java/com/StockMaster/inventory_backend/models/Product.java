@@ -5,7 +5,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 
 import java.time.LocalDateTime;
 
@@ -13,16 +16,24 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@CompoundIndexes({
+    @CompoundIndex(name = "name_id_idx", def = "{'name': 1, '_id': 1}"),
+    @CompoundIndex(name = "sku_id_idx", def = "{'sku': 1, '_id': 1}"),
+    @CompoundIndex(name = "category_id_idx", def = "{'category': 1, '_id': 1}")
+})
 public class Product {
     
     @Id
     private String id;
     
+    @TextIndexed(weight = 3)
     private String name;
     
     @Indexed(unique = true)
+    @TextIndexed(weight = 5)
     private String sku;
     
+    @TextIndexed
     private String category;
     
     private String unit;
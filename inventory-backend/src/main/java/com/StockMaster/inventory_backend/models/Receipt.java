@@ -4,6 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -13,7 +16,14 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Receipt {
+@CompoundIndexes({
+    @CompoundIndex(name = "status_created_idx", def = "{'status': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "warehouse_created_idx", def = "{'warehouseId': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "created_id_idx", def = "{'createdAt': -1, '_id': -1}"),
+    @CompoundIndex(name = "receipt_date_id_idx", def = "{'receiptDate': 1, '_id': 1}"),
+    @CompoundIndex(name = "receipt_number_id_idx", def = "{'receiptNumber': 1, '_id': 1}")
+})
+public class Receipt implements WorkflowDocument {
     
     @Id
     private String id;
@@ -26,7 +36,7 @@ public class Receipt {
     
     private LocalDateTime receiptDate;
     
-    private String status; // DRAFT, VALIDATED
+    private String status; // DRAFT, VALIDATING, VALIDATED
     
     private List<ReceiptItem> items;
     
@@ -40,6 +50,15 @@ public class Receipt {
     
     private String validatedBy;
     
+    // Set by the DRAFT -> VALIDATING claim. A claim left behind by a crash is finished or handed
+    // back going by the stock rows' applied tags, see WorkflowRecoveryService
+    private LocalDateTime claimedAt;
+    
+    private String claimedBy;
+    
+    @Version
+    private Long version;
+    
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -4,18 +4,23 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.CompoundIndexes;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Document(collection = "stock")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @CompoundIndexes({
-    @CompoundIndex(name = "product_warehouse_idx", def = "{'productId': 1, 'warehouseId': 1}", unique = true)
+    @CompoundIndex(name = "product_warehouse_idx", def = "{'productId': 1, 'warehouseId': 1}", unique = true),
+    @CompoundIndex(name = "warehouse_id_idx", def = "{'warehouseId': 1, '_id': 1}"),
+    @CompoundIndex(name = "quantity_id_idx", def = "{'quantity': 1, '_id': 1}"),
+    @CompoundIndex(name = "applied_at_idx", def = "{'applied.appliedAt': 1}", sparse = true)
 })
 public class Stock {
     
@@ -32,10 +37,32 @@ public class Stock {
     
     private LocalDateTime lastUpdated;
     
+    // Bumped by every write, including the $inc updates in StockMutationEngine
+    @Version
+    private Long version;
+    
+    // Document lines applied to this row, written by the same update as the quantity change and
+    // kept until the document is finished, so a crash can't leave a change nobody knows about;
+    // see StockMutationEngine and WorkflowRecoveryService
+    private List<AppliedLine> applied;
+    
     public Stock(String productId, String warehouseId, Integer quantity) {
         this.productId = productId;
         this.warehouseId = warehouseId;
         this.quantity = quantity;
         this.lastUpdated = LocalDateTime.now();
     }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AppliedLine {
+        private String key;
+        // Id for the change's ledger entry, so writing it again after a crash is a no-op
+        private String ledgerId;
+        private Integer quantityBefore;
+        private Integer quantityChange;
+        private Integer quantityAfter;
+        private LocalDateTime appliedAt;
+    }
 }
@@ -1,10 +1,20 @@
 package com.StockMaster.inventory_backend.models;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Document(collection = "stock_ledger")
+@CompoundIndexes({
+    @CompoundIndex(name = "product_warehouse_created_idx", def = "{'productId': 1, 'warehouseId': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "warehouse_created_idx", def = "{'warehouseId': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "change_type_created_idx", def = "{'changeType': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "created_id_idx", def = "{'createdAt': -1, '_id': -1}")
+})
 public class StockLedger {
     
     @Id
@@ -23,8 +33,9 @@ public class StockLedger {
     private Integer quantityChange;
     private Integer quantityAfter;
     
+    @Indexed
     private String referenceId; // ID of receipt, delivery, transfer, or adjustment
-    private String referenceType; // RECEIPT, DELIVERY, TRANSFER, ADJUSTMENT
+    private String referenceType; // RECEIPT, DELIVERY, TRANSFER, ADJUSTMENT, CYCLE_COUNT
     
     private String userId;
     private String userName;
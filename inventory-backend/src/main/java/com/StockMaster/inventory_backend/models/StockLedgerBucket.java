@@ -0,0 +1,87 @@
+package com.StockMaster.inventory_backend.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cold-tier ledger storage. Archived changes for one product, warehouse and month are
+ * split over numbered buckets of at most ledger.archive.bucket-max-entries changes; names
+ * are stored once per bucket and the changes themselves as one compressed BSON array.
+ * The entry ids, change types, references and users inside are kept as plain arrays so
+ * lookups by them stay indexed.
+ */
+@Document(collection = "stock_ledger_archive")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@CompoundIndexes({
+    @CompoundIndex(name = "product_warehouse_month_seq_idx", def = "{'productId': 1, 'warehouseId': 1, 'month': 1, 'seq': -1}"),
+    @CompoundIndex(name = "warehouse_month_idx", def = "{'warehouseId': 1, 'month': 1}"),
+    @CompoundIndex(name = "entry_range_idx", def = "{'firstEntryAt': 1, 'lastEntryAt': 1}"),
+    @CompoundIndex(name = "last_entry_idx", def = "{'lastEntryAt': -1}"),
+    @CompoundIndex(name = "entry_id_idx", def = "{'entryIds': 1}"),
+    @CompoundIndex(name = "change_type_idx", def = "{'changeTypes': 1, 'lastEntryAt': -1}"),
+    @CompoundIndex(name = "reference_idx", def = "{'referenceIds': 1, 'lastEntryAt': -1}"),
+    @CompoundIndex(name = "user_idx", def = "{'userIds': 1, 'lastEntryAt': -1}")
+})
+public class StockLedgerBucket {
+
+    @Id
+    private String id;
+
+    @Version
+    private Long version;
+
+    private String productId;
+    private String productName;
+    private String productSku;
+
+    private String warehouseId;
+    private String warehouseName;
+
+    private String month; // yyyy-MM
+    private int seq; // bucket number within the month, a new one is started when the last is full
+    private int count;
+
+    private LocalDateTime firstEntryAt;
+    private LocalDateTime lastEntryAt;
+
+    private List<String> entryIds = new ArrayList<>();
+    private List<String> changeTypes = new ArrayList<>();
+    private List<String> referenceIds = new ArrayList<>();
+    private List<String> userIds = new ArrayList<>();
+
+    // Deflated BSON document {entries: [ArchivedChange...]} in (createdAt, entryId) order
+    private byte[] compressedEntries;
+
+    public static String bucketKey(String productId, String warehouseId, String month, int seq) {
+        return productId + ":" + warehouseId + ":" + month + ":" + seq;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ArchivedChange {
+        private String entryId;
+        private String changeType;
+        private Integer quantityBefore;
+        private Integer quantityChange;
+        private Integer quantityAfter;
+        private String referenceId;
+        private String referenceType;
+        private String userId;
+        private String userName;
+        private String notes;
+        private LocalDateTime createdAt;
+    }
+}
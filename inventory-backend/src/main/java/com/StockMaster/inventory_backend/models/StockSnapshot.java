@@ -0,0 +1,32 @@
+package com.StockMaster.inventory_backend.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoint of every stock quantity in one warehouse, used as the starting point
+ * for point-in-time stock queries. The quantities are {@link StockSnapshotLine}
+ * documents with this snapshot's id; the header is written once they all are.
+ */
+@Document(collection = "stock_snapshots")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@CompoundIndex(name = "warehouse_taken_idx", def = "{'warehouseId': 1, 'takenAt': -1}")
+public class StockSnapshot {
+    
+    @Id
+    private String id;
+    
+    private String warehouseId;
+    
+    private LocalDateTime takenAt;
+    
+    private int lineCount;
+}
@@ -0,0 +1,34 @@
+package com.StockMaster.inventory_backend.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * One product's quantity in a {@link StockSnapshot}
+ */
+@Document(collection = "stock_snapshot_lines")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockSnapshotLine {
+    
+    @Id
+    private String id;
+    
+    @Indexed
+    private String snapshotId;
+    
+    // Copied from the snapshot so retention can remove lines without looking up their header
+    @Indexed
+    private LocalDateTime takenAt;
+    
+    private String productId;
+    
+    private Integer quantity;
+}
@@ -22,6 +22,7 @@ public class User {
     
     private String password;
     
+    @Indexed
     private String role;
     
     private String warehouseId;
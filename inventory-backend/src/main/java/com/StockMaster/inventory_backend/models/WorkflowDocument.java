@@ -0,0 +1,20 @@
+package com.StockMaster.inventory_backend.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * A versioned document that moves through statuses (receipts, deliveries, transfers),
+ * see {@link com.StockMaster.inventory_backend.services.DocumentWorkflowService}
+ */
+public interface WorkflowDocument {
+    
+    String getId();
+    
+    String getStatus();
+    
+    LocalDateTime getClaimedAt();
+    
+    String getClaimedBy();
+    
+    Long getVersion();
+}
@@ -0,0 +1,9 @@
+package com.StockMaster.inventory_backend.repositories;
+
+import com.StockMaster.inventory_backend.models.DashboardRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DashboardRollupRepository extends MongoRepository<DashboardRollup, String> {
+}
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DeliveryRepository extends MongoRepository<Delivery, String> {
@@ -22,4 +23,7 @@ public interface DeliveryRepository extends MongoRepository<Delivery, String> {
     List<Delivery> findByDeliveryDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     
     Boolean existsByDeliveryNumber(String deliveryNumber);
+    
+    // Cursor-backed, the caller must close the stream
+    Stream<Delivery> streamAllBy();
 }
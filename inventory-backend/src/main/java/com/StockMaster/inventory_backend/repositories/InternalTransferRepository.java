@@ -5,6 +5,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface InternalTransferRepository extends MongoRepository<InternalTransfer, String> {
@@ -18,4 +19,7 @@ public interface InternalTransferRepository extends MongoRepository<InternalTran
     List<InternalTransfer> findByProductId(String productId);
     
     List<InternalTransfer> findByCreatedBy(String createdBy);
+    
+    // Cursor-backed, the caller must close the stream
+    Stream<InternalTransfer> streamAllBy();
 }
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends MongoRepository<Product, String> {
@@ -16,7 +17,10 @@ public interface ProductRepository extends MongoRepository<Product, String> {
     
     List<Product> findByCategory(String category);
     
-    List<Product> findByNameContainingIgnoreCase(String name);
-    
     List<Product> findByActive(boolean active);
+    
+    long countByActive(boolean active);
+    
+    // Cursor-backed, the caller must close the stream
+    Stream<Product> streamAllBy();
 }
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReceiptRepository extends MongoRepository<Receipt, String> {
@@ -22,4 +23,7 @@ public interface ReceiptRepository extends MongoRepository<Receipt, String> {
     List<Receipt> findByReceiptDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     
     Boolean existsByReceiptNumber(String receiptNumber);
+    
+    // Cursor-backed, the caller must close the stream
+    Stream<Receipt> streamAllBy();
 }
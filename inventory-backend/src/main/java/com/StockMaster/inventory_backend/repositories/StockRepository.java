@@ -6,6 +6,7 @@ import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface StockRepository extends MongoRepository<Stock, String> {
@@ -17,4 +18,7 @@ public interface StockRepository extends MongoRepository<Stock, String> {
     List<Stock> findByWarehouseId(String warehouseId);
     
     List<Stock> findByQuantityLessThan(Integer quantity);
+    
+    // Cursor-backed, the caller must close the stream
+    Stream<Stock> streamAllBy();
 }
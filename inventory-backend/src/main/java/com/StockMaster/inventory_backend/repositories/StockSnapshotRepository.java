@@ -0,0 +1,14 @@
+package com.StockMaster.inventory_backend.repositories;
+
+import com.StockMaster.inventory_backend.models.StockSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface StockSnapshotRepository extends MongoRepository<StockSnapshot, String> {
+    
+    Optional<StockSnapshot> findFirstByWarehouseIdAndTakenAtLessThanEqualOrderByTakenAtDesc(String warehouseId, LocalDateTime takenAt);
+}
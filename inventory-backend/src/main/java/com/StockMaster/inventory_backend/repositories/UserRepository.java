@@ -12,4 +12,6 @@ public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByEmail(String email);
     
     Boolean existsByEmail(String email);
+    
+    long countByRole(String role);
 }
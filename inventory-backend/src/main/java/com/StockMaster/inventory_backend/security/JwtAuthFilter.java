@@ -1,19 +1,22 @@
 package com.StockMaster.inventory_backend.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
@@ -22,30 +25,33 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private PrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String email = null;
+        Claims claims = null;
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
             try {
-                email = jwtUtil.extractEmail(token);
+                // Verifies signature and expiry once, everything below reads these claims
+                claims = jwtUtil.parseClaims(authHeader.substring(7));
             } catch (Exception e) {
                 logger.error("JWT Token extraction failed: " + e.getMessage());
             }
         }
 
-        if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if (claims != null && claims.getSubject() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+                String email = claims.getSubject();
+                PrincipalCache.AccountState account = principalCache.get(email);
                 
-                if (jwtUtil.validateToken(token, userDetails.getUsername())) {
+                if (account != null && account.accepts(claims.getIssuedAt())) {
+                    // Authorities come from the stored role, never from what the token claims
+                    UserDetails userDetails = principal(email, account.getRole());
                     UsernamePasswordAuthenticationToken authToken = 
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -58,4 +64,11 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
+
+    private static UserDetails principal(String email, String role) {
+        return User.withUsername(email)
+                .password("")
+                .authorities(role != null ? List.of(new SimpleGrantedAuthority("ROLE_" + role)) : List.of())
+                .build();
+    }
 }
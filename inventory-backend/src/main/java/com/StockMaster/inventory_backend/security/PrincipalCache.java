@@ -0,0 +1,124 @@
+package com.StockMaster.inventory_backend.security;
+
+import com.StockMaster.inventory_backend.models.User;
+import com.StockMaster.inventory_backend.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, TTL-expiring cache of the account state JwtAuthFilter needs to accept a
+ * token, so authenticated requests don't look the user up in MongoDB every time.
+ * AuthService invalidates an entry whenever that user's password or role changes; the
+ * invalidation is versioned, so a lookup that was already in flight cannot put the old
+ * account state back.
+ */
+@Component
+public class PrincipalCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${jwt.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${jwt.principal-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    // Invalidations leave a versioned entry with a null state behind
+    private Cache<String, Versioned> accounts;
+    private final AtomicLong versions = new AtomicLong();
+    private volatile long clearedAt;
+
+    @PostConstruct
+    public void init() {
+        accounts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Account state for an email, loaded from MongoDB on a miss or after the TTL. Returns
+     * null when no such user exists; misses are not cached so new registrations work at once.
+     */
+    public AccountState get(String email) {
+        Versioned cached = accounts.getIfPresent(email);
+        if (cached != null && cached.state != null) {
+            return cached.state;
+        }
+
+        long loadedAt = versions.get();
+        AccountState loaded = userRepository.findByEmail(email)
+                .map(user -> new AccountState(user.getRole(), credentialsValidFrom(user)))
+                .orElse(null);
+        if (loaded != null && loadedAt >= clearedAt) {
+            Versioned fresh = new Versioned(loaded, loadedAt);
+            accounts.asMap().compute(email, (key, existing) ->
+                    existing != null && existing.version > loadedAt ? existing : fresh);
+        }
+        return loaded;
+    }
+
+    public void invalidate(String email) {
+        accounts.put(email, new Versioned(null, versions.incrementAndGet()));
+    }
+
+    public void clear() {
+        clearedAt = versions.incrementAndGet();
+        accounts.invalidateAll();
+    }
+
+    public long size() {
+        return accounts.estimatedSize();
+    }
+
+    private static long credentialsValidFrom(User user) {
+        if (user.getUpdatedAt() == null) {
+            return 0L;
+        }
+        // JWT iat has second precision, so compare against the start of the change's second
+        return user.getUpdatedAt().truncatedTo(ChronoUnit.SECONDS)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static class Versioned {
+        private final AccountState state;
+        private final long version;
+
+        Versioned(AccountState state, long version) {
+            this.state = state;
+            this.version = version;
+        }
+    }
+
+    public static class AccountState {
+        private final String role;
+        private final long credentialsValidFrom;
+
+        AccountState(String role, long credentialsValidFrom) {
+            this.role = role;
+            this.credentialsValidFrom = credentialsValidFrom;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        /**
+         * Tokens issued before the user's last password or role change are no longer accepted
+         */
+        public boolean accepts(Date issuedAt) {
+            return issuedAt != null && issuedAt.getTime() >= credentialsValidFrom;
+        }
+    }
+}
@@ -6,15 +6,29 @@ import com.StockMaster.inventory_backend.dto.RegisterRequest;
 import com.StockMaster.inventory_backend.models.User;
 import com.StockMaster.inventory_backend.repositories.UserRepository;
 import com.StockMaster.inventory_backend.security.JwtUtil;
+import com.StockMaster.inventory_backend.security.PrincipalCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Set;
+
 @Service
 public class AuthService {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+
+    private static final String USER = "USER";
+    private static final String ADMIN = "ADMIN";
+    private static final Set<String> ROLES = Set.of(USER, ADMIN);
+
     @Autowired
     private UserRepository userRepository;
 
@@ -27,6 +41,42 @@ public class AuthService {
     @Autowired
     private AuthenticationManager authenticationManager;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Value("${auth.bootstrap-admin.email:}")
+    private String bootstrapAdminEmail;
+
+    @Value("${auth.bootstrap-admin.password:}")
+    private String bootstrapAdminPassword;
+
+    /**
+     * Registration only creates users, so the first admin comes from configuration: while no
+     * account has the ADMIN role, auth.bootstrap-admin.email is promoted, or created with
+     * auth.bootstrap-admin.password when it doesn't exist yet. Further admins are made through
+     * changeRole.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrapAdmin() {
+        if (bootstrapAdminEmail.isBlank() || userRepository.countByRole(ADMIN) > 0) {
+            return;
+        }
+        User user = userRepository.findByEmail(bootstrapAdminEmail).orElse(null);
+        if (user == null) {
+            if (bootstrapAdminPassword.isBlank()) {
+                log.warn("No admin account yet and auth.bootstrap-admin.password is not set, {} was not created",
+                        bootstrapAdminEmail);
+                return;
+            }
+            user = new User(bootstrapAdminEmail, passwordEncoder.encode(bootstrapAdminPassword), ADMIN);
+        }
+        user.setRole(ADMIN);
+        user.setUpdatedAt(java.time.LocalDateTime.now());
+        userRepository.save(user);
+        principalCache.invalidate(bootstrapAdminEmail);
+        log.info("No admin account found, {} is now an admin", bootstrapAdminEmail);
+    }
+
     public AuthResponse register(RegisterRequest request) {
         // Check if user already exists
         if (userRepository.existsByEmail(request.getEmail())) {
@@ -37,7 +87,7 @@ public class AuthService {
         User user = new User();
         user.setEmail(request.getEmail());
         user.setPassword(passwordEncoder.encode(request.getPassword()));
-        user.setRole(request.getRole() != null ? request.getRole() : "USER");
+        user.setRole(USER);
         user.setCreatedAt(java.time.LocalDateTime.now());
         user.setUpdatedAt(java.time.LocalDateTime.now());
 
@@ -64,4 +114,50 @@ public class AuthService {
 
         return new AuthResponse(token, user.getEmail(), user.getRole());
     }
+
+    /**
+     * Change a user's password. Tokens issued before the change stop working, the
+     * response carries a fresh one.
+     */
+    public AuthResponse changePassword(String email, String currentPassword, String newPassword) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        if (newPassword == null || newPassword.isBlank()) {
+            throw new RuntimeException("New password is required");
+        }
+        if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
+            throw new RuntimeException("Current password is incorrect");
+        }
+
+        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setUpdatedAt(java.time.LocalDateTime.now());
+        userRepository.save(user);
+        principalCache.invalidate(email);
+
+        String token = jwtUtil.generateToken(user.getEmail(), user.getRole());
+
+        return new AuthResponse(token, user.getEmail(), user.getRole());
+    }
+
+    /**
+     * Change a user's role to USER or ADMIN. Their existing tokens carry the old role, so
+     * they stop working and the user has to log in again. The last admin can't be demoted.
+     */
+    public void changeRole(String email, String role) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        if (role == null || !ROLES.contains(role)) {
+            throw new RuntimeException("Role must be one of " + ROLES);
+        }
+        if (ADMIN.equals(user.getRole()) && !ADMIN.equals(role) && userRepository.countByRole(ADMIN) <= 1) {
+            throw new RuntimeException("Cannot remove the last admin");
+        }
+
+        user.setRole(role);
+        user.setUpdatedAt(java.time.LocalDateTime.now());
+        userRepository.save(user);
+        principalCache.invalidate(email);
+    }
 }
@@ -0,0 +1,299 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.security.PrincipalCache;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the in-process caches of every instance coherent. One change stream over the
+ * products, warehouses and users collections evicts the matching ReferenceDataCache,
+ * ProductSearchService and PrincipalCache entries on this node, whichever node made the
+ * write. The resume token is saved per node in cache_coherence_tokens so a restarted
+ * node replays what it missed; if the oplog no longer has that point, it clears its
+ * caches and starts from now. Change streams need a replica set; on a standalone
+ * server this logs a warning and the caches fall back to their TTLs.
+ */
+@Service
+public class CacheCoherenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheCoherenceService.class);
+
+    private static final String TOKENS = "cache_coherence_tokens";
+    private static final Set<String> WATCHED = Set.of("products", "warehouses", "users");
+
+    // ChangeStreamHistoryLost and ChangeStreamFatalError: the saved token is past the oplog window
+    private static final Set<Integer> RESUME_FAILED = Set.of(280, 286);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.coherence.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.coherence.node-id:}")
+    private String nodeId;
+
+    @Value("${cache.coherence.token-save-interval-ms:1000}")
+    private long tokenSaveIntervalMs;
+
+    private volatile boolean running;
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private Thread watcher;
+    private BsonDocument lastToken;
+    private long lastSavedAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!changeStreamsSupported()) {
+            log.warn("MongoDB is not a replica set, cross-instance cache invalidation is off; caches rely on their TTL");
+            return;
+        }
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = hostName();
+        }
+
+        running = true;
+        watcher = new Thread(this::watchLoop, "cache-coherence");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Cache coherence listener started for node {}", nodeId);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        // The watcher notices within one await period and closes its own cursor
+        running = false;
+        watcher.join(5000);
+        saveToken(true);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void watchLoop() {
+        lastToken = loadToken();
+        while (running) {
+            try {
+                cursor = open(lastToken);
+                while (running) {
+                    ChangeStreamDocument<Document> event = cursor.tryNext();
+                    if (event != null && event.getOperationType() == OperationType.INVALIDATE) {
+                        // The database was dropped, the stream can't be resumed past this point
+                        log.info("Cache invalidation stream invalidated, clearing local caches");
+                        clearAll();
+                        lastToken = null;
+                        saveToken(true);
+                        break;
+                    }
+                    if (event != null) {
+                        apply(event);
+                    }
+                    lastToken = cursor.getResumeToken();
+                    saveToken(false);
+                }
+            } catch (MongoCommandException e) {
+                if (RESUME_FAILED.contains(e.getErrorCode())) {
+                    log.warn("Cannot resume cache invalidation stream ({}), clearing local caches", e.getErrorCodeName());
+                    clearAll();
+                    lastToken = null;
+                    saveToken(true);
+                } else if (running) {
+                    log.error("Cache invalidation stream failed: {}", e.getMessage());
+                    sleepQuietly(1000);
+                }
+            } catch (RuntimeException e) {
+                if (running) {
+                    log.error("Cache invalidation stream failed: {}", e.getMessage());
+                    sleepQuietly(1000);
+                }
+            } finally {
+                closeCursor();
+            }
+        }
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open(BsonDocument resumeToken) {
+        ChangeStreamIterable<Document> stream = mongoTemplate.getDb()
+                .watch(List.of(Aggregates.match(Filters.in("ns.coll", WATCHED))))
+                // Updates carry the current document, which is where a user's email comes from
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+        return stream.cursor();
+    }
+
+    private void apply(ChangeStreamDocument<Document> event) {
+        String operation = event.getOperationTypeString();
+        String collection = event.getNamespace() != null ? event.getNamespace().getCollectionName() : null;
+        meterRegistry.counter("cache.coherence.events", "collection", String.valueOf(collection)).increment();
+
+        if (collection == null || event.getDocumentKey() == null) {
+            // drop, rename or dropDatabase, nothing narrower to evict
+            log.info("Cache invalidation stream saw {}, clearing local caches", operation);
+            clearAll();
+            return;
+        }
+
+        String id = idOf(event.getDocumentKey().get("_id"));
+        switch (collection) {
+            case "products" -> {
+                referenceDataCache.evictProduct(id);
+                // The looked-up document saves a read per event; deletes and updates to a
+                // since-deleted product come without one and drop it from the index
+                Document product = event.getFullDocument();
+                productSearchService.refresh(id, product != null
+                        ? mongoTemplate.getConverter().read(Product.class, product) : null);
+            }
+            case "warehouses" -> referenceDataCache.evictWarehouse(id);
+            case "users" -> {
+                Document user = event.getFullDocument();
+                if (user != null && user.getString("email") != null) {
+                    principalCache.invalidate(user.getString("email"));
+                } else {
+                    // Deletes don't carry the email the principal cache is keyed by
+                    principalCache.clear();
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void clearAll() {
+        referenceDataCache.clear();
+        principalCache.clear();
+        productSearchService.rebuild();
+    }
+
+    private BsonDocument loadToken() {
+        Document saved = tokens().find(Filters.eq("_id", nodeId)).first();
+        if (saved == null || saved.get("token") == null) {
+            return null;
+        }
+        return BsonDocument.parse(saved.get("token", Document.class).toJson());
+    }
+
+    /**
+     * Persist the resume token at most once per interval, or right away when forced
+     */
+    private void saveToken(boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && now - lastSavedAt < tokenSaveIntervalMs) {
+            return;
+        }
+        lastSavedAt = now;
+        try {
+            if (lastToken == null) {
+                tokens().deleteOne(Filters.eq("_id", nodeId));
+                return;
+            }
+            Document document = new Document("_id", nodeId)
+                    .append("token", Document.parse(lastToken.toJson()))
+                    .append("updatedAt", new Date(now));
+            tokens().replaceOne(Filters.eq("_id", nodeId), document, new ReplaceOptions().upsert(true));
+        } catch (RuntimeException e) {
+            log.warn("Could not save cache invalidation resume token: {}", e.getMessage());
+        }
+    }
+
+    private MongoCollection<Document> tokens() {
+        return mongoTemplate.getCollection(TOKENS);
+    }
+
+    private boolean changeStreamsSupported() {
+        try {
+            Document hello = mongoTemplate.getDb().runCommand(new Document("hello", 1));
+            return hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg"));
+        } catch (RuntimeException e) {
+            log.warn("Could not check MongoDB topology: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void closeCursor() {
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (RuntimeException e) {
+                log.debug("Closing cache invalidation stream failed: {}", e.getMessage());
+            }
+            cursor = null;
+        }
+    }
+
+    private static String idOf(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node-" + ProcessHandle.current().pid();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
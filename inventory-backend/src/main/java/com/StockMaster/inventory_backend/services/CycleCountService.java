@@ -0,0 +1,292 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.dto.CycleCountDTO;
+import com.StockMaster.inventory_backend.dto.CycleCountResultDTO;
+import com.StockMaster.inventory_backend.metrics.Timed;
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.StockLedger;
+import com.StockMaster.inventory_backend.models.Warehouse;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Reconciles a warehouse against a counted snapshot, e.g. a quarterly cycle count.
+ * Current stock is read once from a cursor and diffed against the counts in a single
+ * pass; only rows whose quantity differs are written, in chunked bulk writes that set
+ * each row to its counted quantity as long as it still holds the quantity the diff read.
+ * A row that moved in between is left alone and reported as a conflict to recount, so
+ * every ADJUSTMENT ledger entry (sharing the count's reference id) has the exact before
+ * and after quantities. A dry run stops after the diff and returns the variance report.
+ *
+ * Rerunning the same count is safe: rows it already set are unchanged the second time.
+ * That is how a run that stops partway is finished; the report says where it stopped.
+ */
+@Service
+public class CycleCountService {
+
+    private static final Logger log = LoggerFactory.getLogger(CycleCountService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private StockMutationEngine stockMutationEngine;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Value("${cycle-count.chunk-size:1000}")
+    private int chunkSize;
+
+    @Timed("stock.reconcile")
+    public CycleCountResultDTO reconcile(String warehouseId, CycleCountDTO count, boolean dryRun, String username) {
+        long start = System.currentTimeMillis();
+        Warehouse warehouse = referenceDataCache.findWarehouse(warehouseId)
+                .orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + warehouseId));
+
+        CycleCountResultDTO result = new CycleCountResultDTO();
+        result.setWarehouseId(warehouseId);
+        result.setWarehouseName(warehouse.getName());
+        result.setDryRun(dryRun);
+        result.setLinesCounted(count.getLines().size());
+
+        Map<String, Integer> counted = countedByProduct(count.getLines(), result.getErrors());
+        result.setProductsCounted(counted.size());
+
+        // Single pass over the warehouse's stock, each row is matched with its count and dropped from the map
+        List<StockMutationEngine.StockMutation> changes = new ArrayList<>();
+        Query current = new Query(Criteria.where("warehouseId").is(warehouseId));
+        current.fields().include("productId").include("quantity");
+        try (Stream<Stock> rows = mongoTemplate.stream(current, Stock.class)) {
+            rows.forEach(stock -> {
+                Integer quantity = counted.remove(stock.getProductId());
+                if (quantity == null && !count.isMissingAsZero()) {
+                    return;
+                }
+                diff(stock.getProductId(), warehouseId, stock.getQuantity(), quantity != null ? quantity : 0,
+                        false, changes, result);
+            });
+        }
+
+        // What is left was counted but has no stock row yet, as long as the product exists
+        List<String> uncounted = new ArrayList<>(counted.keySet());
+        for (int i = 0; i < uncounted.size(); i += chunkSize) {
+            List<String> ids = uncounted.subList(i, Math.min(i + chunkSize, uncounted.size()));
+            Map<String, Product> products = referenceDataCache.findProducts(ids);
+            for (String productId : ids) {
+                if (!products.containsKey(productId)) {
+                    result.getErrors().add("Product not found with id: " + productId);
+                    continue;
+                }
+                diff(productId, warehouseId, 0, counted.get(productId), true, changes, result);
+            }
+        }
+
+        changes.sort(Comparator.comparingInt((StockMutationEngine.StockMutation change) -> Math.abs(change.getQuantityChange()))
+                .reversed());
+
+        String countId = dryRun ? null : new ObjectId().toHexString();
+        result.setCountId(countId);
+        for (int i = 0; i < changes.size(); i += chunkSize) {
+            List<StockMutationEngine.StockMutation> chunk = changes.subList(i, Math.min(i + chunkSize, changes.size()));
+            if (dryRun) {
+                report(chunk, referenceDataCache.findProducts(productIds(chunk)), result);
+                continue;
+            }
+            if (!write(warehouseId, chunk, warehouse, countId, username, count.getNotes(), result)) {
+                result.setComplete(false);
+                result.getErrors().add("Stopped with " + (result.getAdjusted() + result.getCreated()) + " of " +
+                        changes.size() + " changes written, rerun the count to apply the rest");
+                break;
+            }
+        }
+
+        result.setElapsedMs(System.currentTimeMillis() - start);
+        log.info("Cycle count for warehouse {}{}: {} products counted, {} adjusted, {} created, {} unchanged, {} conflicts{} in {}ms",
+                warehouseId, dryRun ? " (dry run)" : "", result.getProductsCounted(), result.getAdjusted(),
+                result.getCreated(), result.getUnchanged(), result.getConflicts().size(),
+                result.isComplete() ? "" : " (stopped early)", result.getElapsedMs());
+        return result;
+    }
+
+    /**
+     * Counted quantity per product id. Lines given by SKU are resolved with one $in query per
+     * chunk, and lines for the same product (counted in several locations) are added up.
+     */
+    private Map<String, Integer> countedByProduct(List<CycleCountDTO.CountLine> lines, List<String> errors) {
+        Map<String, Integer> counted = new HashMap<>();
+        Map<String, Integer> bySku = new HashMap<>();
+        for (CycleCountDTO.CountLine line : lines) {
+            if (line.getProductId() != null) {
+                counted.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+            } else if (line.getSku() != null) {
+                bySku.merge(line.getSku(), line.getQuantity(), Integer::sum);
+            } else {
+                errors.add("Counted line needs a productId or a sku");
+            }
+        }
+
+        List<String> skus = new ArrayList<>(bySku.keySet());
+        for (int i = 0; i < skus.size(); i += chunkSize) {
+            List<String> chunk = skus.subList(i, Math.min(i + chunkSize, skus.size()));
+            Query query = new Query(Criteria.where("sku").in(chunk));
+            query.fields().include("sku");
+            Map<String, String> ids = new HashMap<>();
+            for (Product product : mongoTemplate.find(query, Product.class)) {
+                ids.put(product.getSku(), product.getId());
+            }
+            for (String sku : chunk) {
+                String productId = ids.get(sku);
+                if (productId == null) {
+                    errors.add("Product not found with SKU: " + sku);
+                } else {
+                    counted.merge(productId, bySku.get(sku), Integer::sum);
+                }
+            }
+        }
+        return counted;
+    }
+
+    private static void diff(String productId, String warehouseId, int before, int quantity, boolean newRow,
+                             List<StockMutationEngine.StockMutation> changes, CycleCountResultDTO result) {
+        if (before == quantity) {
+            result.setUnchanged(result.getUnchanged() + 1);
+            return;
+        }
+        changes.add(new StockMutationEngine.StockMutation(new Stock(productId, warehouseId, quantity),
+                before, quantity - before, quantity, newRow));
+    }
+
+    /**
+     * Write one chunk and its ledger entries. Returns false when the chunk could not be written
+     * as a whole; what it did write is taken back out first, so nothing is left without a ledger
+     * entry, and conflicts and failed rows are reported either way.
+     */
+    private boolean write(String warehouseId, List<StockMutationEngine.StockMutation> chunk, Warehouse warehouse,
+                          String countId, String username, String notes, CycleCountResultDTO result) {
+        StockMutationEngine.CountedWrite write;
+        try {
+            write = stockMutationEngine.setCounted(warehouseId, chunk);
+        } catch (RuntimeException e) {
+            // Not known which rows made it; a rerun sees those as already counted
+            log.error("Cycle count {} write failed for warehouse {}: {}", countId, warehouseId, e.getMessage());
+            result.getErrors().add("Stock write failed: " + e.getMessage());
+            return false;
+        }
+        Map<String, Product> products = referenceDataCache.findProducts(productIds(chunk));
+        result.getErrors().addAll(write.getErrors());
+        result.getConflicts().addAll(variances(write.getConflicts(), products));
+
+        try {
+            stockLedgerService.createLedgerEntries(ledgerEntries(write.getApplied(), products, warehouse, countId, username, notes));
+        } catch (RuntimeException e) {
+            log.error("Cycle count {} ledger write failed for warehouse {}, reverting {} rows: {}",
+                    countId, warehouseId, write.getApplied().size(), e.getMessage());
+            result.getErrors().add("Ledger write failed: " + e.getMessage());
+            revert(warehouseId, write.getApplied(), result);
+            return false;
+        }
+        report(write.getApplied(), products, result);
+        return write.getErrors().isEmpty();
+    }
+
+    /**
+     * Put rows back to their before quantity, again only where nothing moved since
+     */
+    private void revert(String warehouseId, List<StockMutationEngine.StockMutation> applied, CycleCountResultDTO result) {
+        List<StockMutationEngine.StockMutation> inverse = new ArrayList<>(applied.size());
+        for (StockMutationEngine.StockMutation change : applied) {
+            inverse.add(new StockMutationEngine.StockMutation(change.getStock(), change.getQuantityAfter(),
+                    -change.getQuantityChange(), change.getQuantityBefore(), false));
+        }
+        try {
+            StockMutationEngine.CountedWrite reverted = stockMutationEngine.setCounted(warehouseId, inverse);
+            for (StockMutationEngine.StockMutation change : reverted.getConflicts()) {
+                result.getErrors().add("Could not revert product " + change.getStock().getProductId() +
+                        " to " + change.getQuantityAfter() + ", it moved since it was counted");
+            }
+            result.getErrors().addAll(reverted.getErrors());
+        } catch (RuntimeException e) {
+            result.getErrors().add("Revert failed, " + applied.size() + " rows were set without ledger entries: " +
+                    e.getMessage());
+        }
+    }
+
+    private static List<StockLedger> ledgerEntries(List<StockMutationEngine.StockMutation> changes, Map<String, Product> products,
+                                                   Warehouse warehouse, String countId, String username, String notes) {
+        List<StockLedger> ledgerEntries = new ArrayList<>(changes.size());
+        for (StockMutationEngine.StockMutation change : changes) {
+            String productId = change.getStock().getProductId();
+            Product product = products.get(productId);
+            String productName = product != null ? product.getName() : "Unknown";
+            String productSku = product != null ? product.getSku() : "Unknown";
+
+            StockLedger ledger = new StockLedger(
+                    productId, productName, productSku,
+                    warehouse.getId(), warehouse.getName(),
+                    "ADJUSTMENT", change.getQuantityBefore(), change.getQuantityChange(), change.getQuantityAfter(),
+                    countId, "CYCLE_COUNT",
+                    username, username
+            );
+            ledger.setNotes(notes != null ? notes : "Cycle count reconciliation");
+            ledgerEntries.add(ledger);
+        }
+        return ledgerEntries;
+    }
+
+    /**
+     * Add written (or, for a dry run, diffed) changes to the variance report
+     */
+    private static void report(List<StockMutationEngine.StockMutation> changes, Map<String, Product> products,
+                               CycleCountResultDTO result) {
+        result.getVariances().addAll(variances(changes, products));
+        for (StockMutationEngine.StockMutation change : changes) {
+            if (change.isCreated()) {
+                result.setCreated(result.getCreated() + 1);
+            } else {
+                result.setAdjusted(result.getAdjusted() + 1);
+            }
+            result.setNetVariance(result.getNetVariance() + change.getQuantityChange());
+            result.setAbsoluteVariance(result.getAbsoluteVariance() + Math.abs(change.getQuantityChange()));
+        }
+    }
+
+    private static List<CycleCountResultDTO.Variance> variances(List<StockMutationEngine.StockMutation> changes,
+                                                                Map<String, Product> products) {
+        List<CycleCountResultDTO.Variance> variances = new ArrayList<>(changes.size());
+        for (StockMutationEngine.StockMutation change : changes) {
+            String productId = change.getStock().getProductId();
+            Product product = products.get(productId);
+            variances.add(new CycleCountResultDTO.Variance(productId,
+                    product != null ? product.getSku() : "Unknown", product != null ? product.getName() : "Unknown",
+                    change.getQuantityBefore(), change.getQuantityAfter(), change.getQuantityChange()));
+        }
+        return variances;
+    }
+
+    private static List<String> productIds(List<StockMutationEngine.StockMutation> changes) {
+        List<String> productIds = new ArrayList<>(changes.size());
+        for (StockMutationEngine.StockMutation change : changes) {
+            productIds.add(change.getStock().getProductId());
+        }
+        return productIds;
+    }
+}
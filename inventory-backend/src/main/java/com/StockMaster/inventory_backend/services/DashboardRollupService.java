@@ -0,0 +1,437 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.DashboardRollup;
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.repositories.DashboardRollupRepository;
+import com.StockMaster.inventory_backend.repositories.ProductRepository;
+import com.StockMaster.inventory_backend.repositories.StockRepository;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the dashboard_rollups materialized view. Stock and product
+ * mutations push deltas into it so the dashboard is read without scanning
+ * the stock collection.
+ */
+@Service
+public class DashboardRollupService {
+
+    @Autowired
+    private DashboardRollupRepository rollupRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Returns every rollup document, building the view first if no full rebuild has populated it.
+     * Deltas recorded before that (e.g. on a database that predates the view) only upsert the
+     * documents they touch, so their presence doesn't mean the view is complete.
+     */
+    public List<DashboardRollup> getRollups() {
+        DashboardRollup totals = rollupRepository.findById(DashboardRollup.TOTALS).orElse(null);
+        if (totals == null || totals.getBuiltAt() == null) {
+            return rebuild();
+        }
+        return rollupRepository.findAll();
+    }
+
+    /**
+     * Apply a single stock quantity change to the view
+     */
+    public void recordStockChange(String productId, String warehouseId,
+                                  Integer quantityBefore, Integer quantityAfter, boolean newStockRow) {
+        Stock stock = new Stock(productId, warehouseId, quantityAfter);
+        recordStockChanges(List.of(new StockMutationEngine.StockMutation(
+                stock, quantityBefore, quantityAfter - quantityBefore, quantityAfter, newStockRow)));
+    }
+
+    /**
+     * Apply a batch of stock quantity changes to the view with one product lookup and one bulk write
+     */
+    public void recordStockChanges(List<StockMutationEngine.StockMutation> mutations) {
+        if (mutations.isEmpty()) {
+            return;
+        }
+
+        Set<String> productIds = mutations.stream()
+                .map(mutation -> mutation.getStock().getProductId())
+                .collect(Collectors.toSet());
+        Map<String, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        LocalDateTime now = LocalDateTime.now();
+
+        // Ordered so repeated rows in one batch leave the last low stock state in place
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, DashboardRollup.class);
+
+        for (StockMutationEngine.StockMutation mutation : mutations) {
+            String productId = mutation.getStock().getProductId();
+            String warehouseId = mutation.getStock().getWarehouseId();
+            long delta = (long) mutation.getQuantityAfter() - mutation.getQuantityBefore();
+            Product product = products.get(productId);
+
+            bulk.upsert(byId(DashboardRollup.TOTALS), new Update()
+                    .setOnInsert("type", DashboardRollup.TOTALS)
+                    .inc("quantity", delta)
+                    .set("updatedAt", now));
+
+            bulk.upsert(byId(DashboardRollup.warehouseKey(warehouseId)), new Update()
+                    .setOnInsert("type", DashboardRollup.WAREHOUSE)
+                    .setOnInsert("warehouseId", warehouseId)
+                    .inc("quantity", delta)
+                    .inc("itemCount", mutation.isCreated() ? 1 : 0)
+                    .set("updatedAt", now));
+
+            if (product != null && product.isActive()) {
+                bulk.upsert(byId(DashboardRollup.categoryKey(product.getCategory())), new Update()
+                        .setOnInsert("type", DashboardRollup.CATEGORY)
+                        .setOnInsert("category", product.getCategory())
+                        .setOnInsert("productCount", 0L)
+                        .inc("quantity", delta)
+                        .set("updatedAt", now));
+            }
+
+            addLowStockUpdate(bulk, product, productId, warehouseId, mutation.getQuantityAfter(), now);
+        }
+
+        bulk.execute();
+    }
+
+    /**
+     * Move a product's category and low stock contributions after it was
+     * created, edited, deactivated or removed. Pass null for a deleted product.
+     */
+    public void recordProductChange(String productId, String previousCategory, boolean wasActive, Product product) {
+        List<Stock> stocks = stockRepository.findByProductId(productId);
+        long productStock = stocks.stream().mapToLong(Stock::getQuantity).sum();
+        boolean isActive = product != null && product.isActive();
+        LocalDateTime now = LocalDateTime.now();
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DashboardRollup.class);
+
+        if (wasActive) {
+            bulk.upsert(byId(DashboardRollup.categoryKey(previousCategory)), new Update()
+                    .setOnInsert("type", DashboardRollup.CATEGORY)
+                    .setOnInsert("category", previousCategory)
+                    .inc("productCount", -1L)
+                    .inc("quantity", -productStock)
+                    .set("updatedAt", now));
+        }
+
+        if (isActive) {
+            bulk.upsert(byId(DashboardRollup.categoryKey(product.getCategory())), new Update()
+                    .setOnInsert("type", DashboardRollup.CATEGORY)
+                    .setOnInsert("category", product.getCategory())
+                    .inc("productCount", 1L)
+                    .inc("quantity", productStock)
+                    .set("updatedAt", now));
+        }
+
+        // Reorder level, name or active flag may have changed, so re-evaluate every row
+        for (Stock stock : stocks) {
+            addLowStockUpdate(bulk, product, productId, stock.getWarehouseId(), stock.getQuantity(), now);
+        }
+
+        if (wasActive || isActive || !stocks.isEmpty()) {
+            bulk.execute();
+        }
+    }
+
+    /**
+     * Count a batch of newly created products with one upsert per category. New products
+     * have no stock rows yet, so only the category product counts move.
+     */
+    public void recordProductsCreated(List<Product> products) {
+        // HashMap rather than groupingBy, which rejects the null key of products without a category
+        Map<String, Long> perCategory = new HashMap<>();
+        for (Product product : products) {
+            if (product.isActive()) {
+                perCategory.merge(product.getCategory(), 1L, Long::sum);
+            }
+        }
+        if (perCategory.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DashboardRollup.class);
+        perCategory.forEach((category, count) -> bulk.upsert(byId(DashboardRollup.categoryKey(category)), new Update()
+                .setOnInsert("type", DashboardRollup.CATEGORY)
+                .setOnInsert("category", category)
+                .setOnInsert("quantity", 0L)
+                .inc("productCount", count)
+                .set("updatedAt", now)));
+        bulk.execute();
+    }
+
+    /**
+     * Replace the view with a full recompute. The new documents are written to a staging
+     * collection that is renamed over the view in one step, so readers never see it empty or
+     * half written, and deltas keep landing in the old view until the swap. A delta recorded
+     * while the recompute itself runs can still be missed, which checkConsistency reports.
+     */
+    public List<DashboardRollup> rebuild() {
+        List<DashboardRollup> rollups = computeRollups();
+        LocalDateTime now = LocalDateTime.now();
+        for (DashboardRollup rollup : rollups) {
+            if (DashboardRollup.TOTALS.equals(rollup.getId())) {
+                rollup.setBuiltAt(now);
+            }
+        }
+
+        String view = mongoTemplate.getCollectionName(DashboardRollup.class);
+        String staging = view + "_rebuild_" + new ObjectId().toHexString();
+        try {
+            mongoTemplate.insert(rollups, staging);
+            mongoTemplate.getCollection(staging).renameCollection(
+                    new MongoNamespace(mongoTemplate.getDb().getName(), view),
+                    new RenameCollectionOptions().dropTarget(true));
+        } catch (RuntimeException e) {
+            mongoTemplate.dropCollection(staging);
+            throw e;
+        }
+        return rollups;
+    }
+
+    /**
+     * Compare the stored view with a full recompute and report every document that differs
+     */
+    public Map<String, Object> checkConsistency() {
+        Map<String, DashboardRollup> stored = indexById(rollupRepository.findAll());
+        Map<String, DashboardRollup> expected = indexById(computeRollups());
+
+        Set<String> ids = new TreeSet<>(stored.keySet());
+        ids.addAll(expected.keySet());
+
+        List<Map<String, Object>> differences = new ArrayList<>();
+        for (String id : ids) {
+            DashboardRollup actual = stored.get(id);
+            DashboardRollup wanted = expected.get(id);
+            if (!sameValues(actual, wanted)) {
+                Map<String, Object> difference = new LinkedHashMap<>();
+                difference.put("id", id);
+                difference.put("stored", actual);
+                difference.put("expected", wanted);
+                differences.add(difference);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("consistent", differences.isEmpty());
+        result.put("checkedAt", LocalDateTime.now());
+        result.put("differences", differences);
+        return result;
+    }
+
+    /**
+     * Full recompute of every rollup document with one aggregation over stock
+     * (products joined in) and one over products
+     */
+    public List<DashboardRollup> computeRollups() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, DashboardRollup> rollups = new LinkedHashMap<>();
+
+        DashboardRollup totals = newRollup(DashboardRollup.TOTALS, DashboardRollup.TOTALS, now);
+        totals.setQuantity(0L);
+        rollups.put(totals.getId(), totals);
+
+        // Product counts per category, including products with no stock rows
+        Aggregation productCounts = Aggregation.newAggregation(
+                Aggregation.stage(new Document("$match", new Document("active", true))),
+                Aggregation.stage(new Document("$group", new Document("_id", "$category")
+                        .append("productCount", new Document("$sum", 1))))
+        );
+        for (Document row : mongoTemplate.aggregate(productCounts, "products", Document.class)) {
+            String category = row.getString("_id");
+            DashboardRollup rollup = newRollup(DashboardRollup.categoryKey(category), DashboardRollup.CATEGORY, now);
+            rollup.setCategory(category);
+            rollup.setProductCount(longValue(row, "productCount"));
+            rollup.setQuantity(0L);
+            rollups.put(rollup.getId(), rollup);
+        }
+
+        Document stockFacets = aggregateStock();
+
+        List<Document> totalRows = stockFacets.getList("totals", Document.class);
+        if (!totalRows.isEmpty()) {
+            totals.setQuantity(longValue(totalRows.get(0), "totalStock"));
+        }
+
+        for (Document row : stockFacets.getList("categories", Document.class)) {
+            DashboardRollup rollup = rollups.get(DashboardRollup.categoryKey(row.getString("_id")));
+            if (rollup != null) {
+                rollup.setQuantity(longValue(row, "totalStock"));
+            }
+        }
+
+        for (Document row : stockFacets.getList("warehouses", Document.class)) {
+            String warehouseId = row.getString("_id");
+            DashboardRollup rollup = newRollup(DashboardRollup.warehouseKey(warehouseId), DashboardRollup.WAREHOUSE, now);
+            rollup.setWarehouseId(warehouseId);
+            rollup.setItemCount(longValue(row, "totalItems"));
+            rollup.setQuantity(longValue(row, "totalQuantity"));
+            rollups.put(rollup.getId(), rollup);
+        }
+
+        for (Document row : stockFacets.getList("lowStock", Document.class)) {
+            String productId = row.getString("productId");
+            String warehouseId = row.getString("warehouseId");
+            DashboardRollup rollup = newRollup(DashboardRollup.lowStockKey(productId, warehouseId), DashboardRollup.LOW_STOCK, now);
+            rollup.setProductId(productId);
+            rollup.setWarehouseId(warehouseId);
+            rollup.setProductName(row.getString("productName"));
+            rollup.setSku(row.getString("sku"));
+            rollup.setReorderLevel((int) longValue(row, "reorderLevel"));
+            rollup.setQuantity(longValue(row, "quantity"));
+            rollups.put(rollup.getId(), rollup);
+        }
+
+        return new ArrayList<>(rollups.values());
+    }
+
+    private Document aggregateStock() {
+        // Stock stores productId as a string while products use ObjectId keys
+        Document productRef = new Document("$convert", new Document("input", "$productId")
+                .append("to", "objectId")
+                .append("onError", "$productId")
+                .append("onNull", "$productId"));
+
+        Document activeProduct = new Document("$match", new Document("product.active", true));
+
+        Document facets = new Document()
+                .append("totals", List.of(
+                        new Document("$group", new Document("_id", null)
+                                .append("totalStock", new Document("$sum", "$quantity")))))
+                .append("categories", List.of(
+                        activeProduct,
+                        new Document("$group", new Document("_id", "$product.category")
+                                .append("totalStock", new Document("$sum", "$quantity")))))
+                .append("warehouses", List.of(
+                        new Document("$group", new Document("_id", "$warehouseId")
+                                .append("totalItems", new Document("$sum", 1))
+                                .append("totalQuantity", new Document("$sum", "$quantity")))))
+                .append("lowStock", List.of(
+                        new Document("$match", new Document("product.active", true)
+                                .append("$expr", new Document("$lt",
+                                        Arrays.asList("$quantity", "$product.reorderLevel")))),
+                        new Document("$project", new Document("_id", 0)
+                                .append("productId", 1)
+                                .append("warehouseId", 1)
+                                .append("quantity", 1)
+                                .append("productName", "$product.name")
+                                .append("sku", "$product.sku")
+                                .append("reorderLevel", "$product.reorderLevel"))));
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.stage(new Document("$addFields", new Document("productRef", productRef))),
+                Aggregation.stage(new Document("$lookup", new Document("from", "products")
+                        .append("localField", "productRef")
+                        .append("foreignField", "_id")
+                        .append("as", "product"))),
+                Aggregation.stage(new Document("$unwind", new Document("path", "$product")
+                        .append("preserveNullAndEmptyArrays", true))),
+                Aggregation.stage(new Document("$facet", facets))
+        );
+
+        return mongoTemplate.aggregate(aggregation, "stock", Document.class).getUniqueMappedResult();
+    }
+
+    private void addLowStockUpdate(BulkOperations bulk, Product product, String productId,
+                                   String warehouseId, Integer quantity, LocalDateTime now) {
+        Query query = byId(DashboardRollup.lowStockKey(productId, warehouseId));
+
+        boolean lowStock = product != null && product.isActive()
+                && product.getReorderLevel() != null
+                && quantity < product.getReorderLevel();
+
+        if (lowStock) {
+            bulk.upsert(query, new Update()
+                    .set("type", DashboardRollup.LOW_STOCK)
+                    .set("productId", productId)
+                    .set("warehouseId", warehouseId)
+                    .set("productName", product.getName())
+                    .set("sku", product.getSku())
+                    .set("reorderLevel", product.getReorderLevel())
+                    .set("quantity", (long) quantity)
+                    .set("updatedAt", now));
+        } else {
+            bulk.remove(query);
+        }
+    }
+
+    private static Query byId(String id) {
+        return new Query(Criteria.where("_id").is(id));
+    }
+
+    private static DashboardRollup newRollup(String id, String type, LocalDateTime now) {
+        DashboardRollup rollup = new DashboardRollup();
+        rollup.setId(id);
+        rollup.setType(type);
+        rollup.setUpdatedAt(now);
+        return rollup;
+    }
+
+    private static Map<String, DashboardRollup> indexById(List<DashboardRollup> rollups) {
+        Map<String, DashboardRollup> byId = new HashMap<>();
+        for (DashboardRollup rollup : rollups) {
+            byId.put(rollup.getId(), rollup);
+        }
+        return byId;
+    }
+
+    private static boolean sameValues(DashboardRollup a, DashboardRollup b) {
+        // A category or warehouse that dropped to zero is equivalent to a missing one
+        if (a == null || b == null) {
+            DashboardRollup present = a != null ? a : b;
+            return !DashboardRollup.LOW_STOCK.equals(present.getType()) && isEmpty(present);
+        }
+        return Objects.equals(orZero(a.getProductCount()), orZero(b.getProductCount()))
+                && Objects.equals(orZero(a.getItemCount()), orZero(b.getItemCount()))
+                && Objects.equals(orZero(a.getQuantity()), orZero(b.getQuantity()))
+                && Objects.equals(a.getReorderLevel(), b.getReorderLevel());
+    }
+
+    private static boolean isEmpty(DashboardRollup rollup) {
+        return orZero(rollup.getProductCount()) == 0
+                && orZero(rollup.getItemCount()) == 0
+                && orZero(rollup.getQuantity()) == 0;
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private static long longValue(Document row, String key) {
+        Object value = row.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -1,11 +1,10 @@
 package com.StockMaster.inventory_backend.services;
 
 import com.StockMaster.inventory_backend.dto.DashboardDTO;
-import com.StockMaster.inventory_backend.models.Product;
-import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.metrics.Timed;
+import com.StockMaster.inventory_backend.models.DashboardRollup;
 import com.StockMaster.inventory_backend.models.Warehouse;
 import com.StockMaster.inventory_backend.repositories.ProductRepository;
-import com.StockMaster.inventory_backend.repositories.StockRepository;
 import com.StockMaster.inventory_backend.repositories.WarehouseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -14,6 +13,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class DashboardService {
@@ -22,123 +23,131 @@ public class DashboardService {
     private ProductRepository productRepository;
 
     @Autowired
-    private StockRepository stockRepository;
+    private WarehouseRepository warehouseRepository;
 
     @Autowired
-    private WarehouseRepository warehouseRepository;
+    private DashboardRollupService rollupService;
 
+    @Timed("dashboard.get")
+    public DashboardDTO getDashboardData() {
+        return buildDashboard(rollupService.getRollups());
+    }
 
+    /**
+     * Build the dashboard from a full recompute instead of the materialized view
+     */
+    public DashboardDTO recomputeDashboardData() {
+        return buildDashboard(rollupService.computeRollups());
+    }
 
-    public DashboardDTO getDashboardData() {
+    private DashboardDTO buildDashboard(List<DashboardRollup> rollups) {
         DashboardDTO dashboard = new DashboardDTO();
-        
+
+        // Warehouses are a small reference set, load them once for names and counts
+        List<Warehouse> warehouses = warehouseRepository.findAll();
+        Map<String, Warehouse> warehousesById = warehouses.stream()
+                .collect(Collectors.toMap(Warehouse::getId, Function.identity()));
+
+        Map<String, List<DashboardRollup>> rollupsByType = rollups.stream()
+                .collect(Collectors.groupingBy(DashboardRollup::getType));
+
+        List<DashboardDTO.LowStockItem> lowStockItems =
+                getLowStockItems(rollupsByType.getOrDefault(DashboardRollup.LOW_STOCK, List.of()), warehousesById);
+
         // Get KPIs
-        dashboard.setKpis(getKPIs());
+        dashboard.setKpis(getKPIs(rollupsByType.getOrDefault(DashboardRollup.TOTALS, List.of()),
+                lowStockItems.size(), warehouses));
         
         // Get low stock items
-        dashboard.setLowStockItems(getLowStockItems());
+        dashboard.setLowStockItems(lowStockItems);
         
         // Get category breakdown
-        dashboard.setCategoryBreakdown(getCategoryStats());
+        dashboard.setCategoryBreakdown(getCategoryStats(rollupsByType.getOrDefault(DashboardRollup.CATEGORY, List.of())));
         
         // Get warehouse statistics
-        dashboard.setWarehouseStats(getWarehouseStats());
+        dashboard.setWarehouseStats(getWarehouseStats(rollupsByType.getOrDefault(DashboardRollup.WAREHOUSE, List.of()),
+                warehouses));
         
         return dashboard;
     }
 
-    private DashboardDTO.KPIs getKPIs() {
+    private DashboardDTO.KPIs getKPIs(List<DashboardRollup> totals, int lowStockCount, List<Warehouse> warehouses) {
         DashboardDTO.KPIs kpis = new DashboardDTO.KPIs();
         
         // Product counts
         kpis.setTotalProducts(productRepository.count());
-        kpis.setActiveProducts((long) productRepository.findByActive(true).size());
+        kpis.setActiveProducts(productRepository.countByActive(true));
         
         // Total stock across all warehouses
-        Integer totalStock = stockRepository.findAll().stream()
-                .mapToInt(Stock::getQuantity)
-                .sum();
-        kpis.setTotalStock(totalStock);
+        kpis.setTotalStock(totals.isEmpty() ? 0 : intValue(totals.get(0).getQuantity()));
         
         // Low stock count (products below reorder level)
-        kpis.setLowStockCount(getLowStockItems().size());
+        kpis.setLowStockCount(lowStockCount);
         
         // Warehouse counts
-        kpis.setTotalWarehouses(warehouseRepository.count());
-        kpis.setActiveWarehouses((long) warehouseRepository.findByActive(true).size());
+        kpis.setTotalWarehouses((long) warehouses.size());
+        kpis.setActiveWarehouses(warehouses.stream()
+                .filter(warehouse -> Boolean.TRUE.equals(warehouse.getActive()))
+                .count());
         
         return kpis;
     }
 
-    private List<DashboardDTO.LowStockItem> getLowStockItems() {
+    private List<DashboardDTO.LowStockItem> getLowStockItems(List<DashboardRollup> rows, Map<String, Warehouse> warehousesById) {
         List<DashboardDTO.LowStockItem> lowStockItems = new ArrayList<>();
-        List<Product> activeProducts = productRepository.findByActive(true);
-        
-        for (Product product : activeProducts) {
-            // Get total stock for this product across all warehouses
-            List<Stock> productStocks = stockRepository.findByProductId(product.getId());
-            
-            for (Stock stock : productStocks) {
-                if (stock.getQuantity() < product.getReorderLevel()) {
-                    DashboardDTO.LowStockItem item = new DashboardDTO.LowStockItem();
-                    item.setProductId(product.getId());
-                    item.setProductName(product.getName());
-                    item.setSku(product.getSku());
-                    item.setCurrentStock(stock.getQuantity());
-                    item.setReorderLevel(product.getReorderLevel());
-                    
-                    // Get warehouse name
-                    warehouseRepository.findById(stock.getWarehouseId()).ifPresent(warehouse -> 
-                        item.setWarehouseName(warehouse.getName())
-                    );
-                    
-                    lowStockItems.add(item);
-                }
+
+        for (DashboardRollup row : rows) {
+            DashboardDTO.LowStockItem item = new DashboardDTO.LowStockItem();
+            item.setProductId(row.getProductId());
+            item.setProductName(row.getProductName());
+            item.setSku(row.getSku());
+            item.setCurrentStock(intValue(row.getQuantity()));
+            item.setReorderLevel(row.getReorderLevel());
+
+            Warehouse warehouse = warehousesById.get(row.getWarehouseId());
+            if (warehouse != null) {
+                item.setWarehouseName(warehouse.getName());
             }
+
+            lowStockItems.add(item);
         }
         
         return lowStockItems;
     }
 
-    private List<DashboardDTO.CategoryStats> getCategoryStats() {
-        List<Product> activeProducts = productRepository.findByActive(true);
-        Map<String, DashboardDTO.CategoryStats> categoryMap = new HashMap<>();
-        
-        for (Product product : activeProducts) {
-            String category = product.getCategory();
-            
-            if (!categoryMap.containsKey(category)) {
-                categoryMap.put(category, new DashboardDTO.CategoryStats(category, 0L, 0));
+    private List<DashboardDTO.CategoryStats> getCategoryStats(List<DashboardRollup> rows) {
+        List<DashboardDTO.CategoryStats> categoryStats = new ArrayList<>();
+
+        for (DashboardRollup row : rows) {
+            // Categories whose last active product went away stay behind with a zero count
+            if (row.getProductCount() == null || row.getProductCount() <= 0) {
+                continue;
             }
-            
-            DashboardDTO.CategoryStats stats = categoryMap.get(category);
-            stats.setProductCount(stats.getProductCount() + 1);
-            
-            // Get total stock for this product
-            Integer productTotalStock = stockRepository.findByProductId(product.getId()).stream()
-                    .mapToInt(Stock::getQuantity)
-                    .sum();
-            stats.setTotalStock(stats.getTotalStock() + productTotalStock);
+            categoryStats.add(new DashboardDTO.CategoryStats(
+                    row.getCategory(), row.getProductCount(), intValue(row.getQuantity())));
         }
         
-        return new ArrayList<>(categoryMap.values());
+        return categoryStats;
     }
 
-    private List<DashboardDTO.WarehouseStats> getWarehouseStats() {
+    private List<DashboardDTO.WarehouseStats> getWarehouseStats(List<DashboardRollup> rows, List<Warehouse> warehouses) {
+        Map<String, DashboardRollup> totalsByWarehouse = rows.stream()
+                .collect(Collectors.toMap(DashboardRollup::getWarehouseId, Function.identity()));
+
         List<DashboardDTO.WarehouseStats> warehouseStats = new ArrayList<>();
-        List<Warehouse> activeWarehouses = warehouseRepository.findByActive(true);
-        
-        for (Warehouse warehouse : activeWarehouses) {
-            List<Stock> warehouseStock = stockRepository.findByWarehouseId(warehouse.getId());
-            
+        for (Warehouse warehouse : warehouses) {
+            if (!Boolean.TRUE.equals(warehouse.getActive())) {
+                continue;
+            }
+
+            DashboardRollup totals = totalsByWarehouse.get(warehouse.getId());
+
             DashboardDTO.WarehouseStats stats = new DashboardDTO.WarehouseStats();
             stats.setWarehouseId(warehouse.getId());
             stats.setWarehouseName(warehouse.getName());
             stats.setLocation(warehouse.getLocation());
-            stats.setTotalItems(warehouseStock.size());
-            stats.setTotalQuantity(warehouseStock.stream()
-                    .mapToInt(Stock::getQuantity)
-                    .sum());
+            stats.setTotalItems(totals != null ? intValue(totals.getItemCount()) : 0);
+            stats.setTotalQuantity(totals != null ? intValue(totals.getQuantity()) : 0);
             
             warehouseStats.add(stats);
         }
@@ -148,20 +157,19 @@ public class DashboardService {
 
     public Map<String, Object> getStockValueAnalysis() {
         Map<String, Object> analysis = new HashMap<>();
-        
-        List<Product> activeProducts = productRepository.findByActive(true);
-        int totalStockValue = 0;
-        
-        for (Product product : activeProducts) {
-            Integer totalStock = stockRepository.findByProductId(product.getId()).stream()
-                    .mapToInt(Stock::getQuantity)
-                    .sum();
-            totalStockValue += totalStock;
-        }
+
+        int totalStockValue = rollupService.getRollups().stream()
+                .filter(rollup -> DashboardRollup.CATEGORY.equals(rollup.getType()))
+                .mapToInt(rollup -> intValue(rollup.getQuantity()))
+                .sum();
         
         analysis.put("totalStockValue", totalStockValue);
-        analysis.put("productCount", activeProducts.size());
+        analysis.put("productCount", productRepository.countByActive(true));
         
         return analysis;
     }
+
+    private static int intValue(Long value) {
+        return value != null ? value.intValue() : 0;
+    }
 }
@@ -0,0 +1,623 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.Product;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import lombok.Getter;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Nightly extracts of stock and the stock ledger to gzipped CSV files on local disk, for
+ * finance instead of pulling everything through the JSON APIs. Rows are streamed from raw
+ * MongoDB cursors and written through FileChannels into one file per partition:
+ *
+ *   {directory}/stock/date=2026-01-31/warehouse={id}/part-*.csv.gz   stock on hand, one set per day,
+ *                                                                    with a _SUCCESS marker once complete
+ *   {directory}/ledger/date=2026-01-31/warehouse={id}/part-*.csv.gz  entries by the day they were made
+ *
+ * Files are written under a .tmp name and renamed once complete, then the dataset's checkpoint
+ * is saved, so a crashed or interrupted run picks up after the last committed rows and readers
+ * never see a partial file. The ledger export is incremental: each run continues from the
+ * checkpoint, up to a short settle window before now. createdAt and the id are stamped before
+ * an entry is written, and buffered or replayed writes can land well after that, so every run
+ * also re-scans an overlap window behind the checkpoint; the checkpoint keeps the ids already
+ * exported within that window, and entries that showed up late are exported without repeats.
+ */
+@Service
+public class DataExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(DataExportService.class);
+
+    public static final String STOCK = "stock";
+    public static final String LEDGER = "ledger";
+
+    private static final String CHECKPOINT = "_checkpoint.json";
+    private static final String TMP = ".tmp";
+    private static final DateTimeFormatter RUN_ID = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS");
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final List<String> STOCK_COLUMNS = List.of("id", "productId", "productSku", "productName",
+            "warehouseId", "quantity", "locationRack", "lastUpdated");
+    private static final List<String> LEDGER_COLUMNS = List.of("id", "createdAt", "productId", "productSku",
+            "productName", "warehouseId", "warehouseName", "changeType", "quantityBefore", "quantityChange",
+            "quantityAfter", "referenceId", "referenceType", "userId", "userName", "notes");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Value("${export.enabled:false}")
+    private boolean enabled;
+
+    @Value("${export.directory:data/exports}")
+    private String directory;
+
+    @Value("${export.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${export.rows-per-commit:200000}")
+    private int rowsPerCommit;
+
+    @Value("${export.ledger.settle-seconds:60}")
+    private long settleSeconds;
+
+    @Value("${export.ledger.overlap-seconds:3600}")
+    private long overlapSeconds;
+
+    private final Object runLock = new Object();
+    private volatile ExportRun lastRun;
+
+    @Scheduled(cron = "${export.cron:0 0 1 * * *}")
+    public void scheduledExport() {
+        if (enabled) {
+            exportAll();
+        }
+    }
+
+    /**
+     * Run an export on a background thread and return its status right away, or null while
+     * the previous manual run is still going
+     */
+    public ExportRun startExport(String dataset, boolean force) {
+        // Not the service's own monitor, which a running export holds until it is done
+        synchronized (runLock) {
+            if (lastRun != null && lastRun.isRunning()) {
+                return null;
+            }
+            ExportRun run = new ExportRun(new ObjectId().toHexString(), dataset, force);
+            lastRun = run;
+            Thread worker = new Thread(() -> run.execute(this), "data-export");
+            worker.setDaemon(true);
+            worker.start();
+            return run;
+        }
+    }
+
+    public ExportRun getLastRun() {
+        return lastRun;
+    }
+
+    public ExportRun getRun(String id) {
+        ExportRun run = lastRun;
+        return run != null && run.getId().equals(id) ? run : null;
+    }
+
+    public synchronized Map<String, Object> exportAll() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put(STOCK, exportStock(false));
+        result.put(LEDGER, exportLedger());
+        return result;
+    }
+
+    /**
+     * Write today's stock extract, resuming an interrupted one. A finished extract for today is
+     * left alone unless force is set, which replaces it. Rows are read from a cursor in _id order
+     * while stock keeps changing, so the extract is not a point-in-time snapshot.
+     */
+    public synchronized Map<String, Object> exportStock(boolean force) {
+        Path root = datasetRoot(STOCK);
+        String today = LocalDate.now().toString();
+        Document checkpoint = readCheckpoint(root);
+        boolean resume = checkpoint != null && today.equals(checkpoint.getString("date"));
+
+        if (resume && checkpoint.getBoolean("complete", false) && !force) {
+            return summary(STOCK, 0, 0, "already exported for " + today);
+        }
+        if (!resume || force) {
+            deleteRecursively(root.resolve("date=" + today));
+            checkpoint = new Document("date", today).append("complete", false);
+            writeCheckpoint(root, checkpoint);
+        }
+
+        long start = System.currentTimeMillis();
+        String lastId = checkpoint.getString("lastId");
+        Bson filter = lastId != null ? Filters.gt("_id", new ObjectId(lastId)) : new Document();
+        long rows = 0;
+        int files = 0;
+
+        try (PartFiles parts = new PartFiles(root, STOCK_COLUMNS);
+             MongoCursor<Document> cursor = mongoTemplate.getCollection("stock").find(filter)
+                     .sort(Sorts.ascending("_id")).batchSize(batchSize).cursor()) {
+            List<Document> batch = new ArrayList<>(batchSize);
+            long uncommitted = 0;
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() < batchSize && cursor.hasNext()) {
+                    continue;
+                }
+
+                // Product SKU and name from the reference cache, one lookup per batch
+                Set<String> productIds = new HashSet<>();
+                for (Document stock : batch) {
+                    productIds.add(stock.getString("productId"));
+                }
+                Map<String, Product> products = referenceDataCache.findProducts(productIds);
+
+                for (Document stock : batch) {
+                    Product product = products.get(stock.getString("productId"));
+                    parts.write("date=" + today + "/warehouse=" + stock.getString("warehouseId"),
+                            idOf(stock.get("_id")),
+                            stock.getString("productId"),
+                            product != null ? product.getSku() : null,
+                            product != null ? product.getName() : null,
+                            stock.getString("warehouseId"),
+                            stock.get("quantity"),
+                            stock.getString("locationRack"),
+                            timestamp(stock.getDate("lastUpdated")));
+                }
+                rows += batch.size();
+                uncommitted += batch.size();
+                lastId = idOf(batch.get(batch.size() - 1).get("_id"));
+                batch.clear();
+
+                if (uncommitted >= rowsPerCommit) {
+                    files += parts.commit();
+                    writeCheckpoint(root, checkpoint.append("lastId", lastId));
+                    uncommitted = 0;
+                }
+            }
+            files += parts.commit();
+            markComplete(root.resolve("date=" + today));
+            writeCheckpoint(root, checkpoint.append("lastId", lastId).append("complete", true));
+        }
+
+        log.info("Exported {} stock rows to {} files in {}ms", rows, files, System.currentTimeMillis() - start);
+        return summary(STOCK, rows, files, null);
+    }
+
+    /**
+     * Append every ledger entry made since the last run, partitioned by the day it was made,
+     * plus any that arrived late within the overlap window
+     */
+    public synchronized Map<String, Object> exportLedger() {
+        Path root = datasetRoot(LEDGER);
+        Document checkpoint = readCheckpoint(root);
+        Date upTo = new Date(System.currentTimeMillis() - settleSeconds * 1000);
+
+        // Ids already exported within the overlap window, with their createdAt so they can be pruned
+        Map<String, Date> exported = new HashMap<>();
+        List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.lt("createdAt", upTo));
+        Date lastAt = null;
+        ObjectId lastId = null;
+        if (checkpoint != null) {
+            lastAt = checkpoint.getDate("createdAt");
+            lastId = new ObjectId(checkpoint.getString("id"));
+            Document recent = checkpoint.get("recent", Document.class);
+            if (recent != null) {
+                recent.forEach((id, at) -> exported.put(id, (Date) at));
+                filters.add(Filters.gte("createdAt", new Date(lastAt.getTime() - overlapSeconds * 1000)));
+            } else {
+                // A checkpoint from before the overlap was kept, resume strictly after it
+                filters.add(Filters.or(Filters.gt("createdAt", lastAt),
+                        Filters.and(Filters.eq("createdAt", lastAt), Filters.gt("_id", lastId))));
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        long late = 0;
+        int files = 0;
+
+        try (PartFiles parts = new PartFiles(root, LEDGER_COLUMNS);
+             MongoCursor<Document> cursor = mongoTemplate.getCollection("stock_ledger").find(Filters.and(filters))
+                     .sort(Sorts.ascending("createdAt", "_id")).batchSize(batchSize).cursor()) {
+            boolean written = false;
+            String currentDay = null;
+            long uncommitted = 0;
+            while (cursor.hasNext()) {
+                Document entry = cursor.next();
+                Date at = entry.getDate("createdAt");
+                String id = idOf(entry.get("_id"));
+                if (exported.containsKey(id)) {
+                    continue;
+                }
+                LocalDateTime createdAt = toLocal(at);
+                String day = createdAt.toLocalDate().toString();
+
+                // Commit at each day boundary too, so a backfill never holds more open files than warehouses
+                if (written && (!day.equals(currentDay) || uncommitted >= rowsPerCommit)) {
+                    files += parts.commit();
+                    writeCheckpoint(root, ledgerCheckpoint(lastAt, lastId, exported));
+                    uncommitted = 0;
+                }
+                currentDay = day;
+
+                parts.write("date=" + day + "/warehouse=" + entry.getString("warehouseId"),
+                        id,
+                        createdAt,
+                        entry.getString("productId"),
+                        entry.getString("productSku"),
+                        entry.getString("productName"),
+                        entry.getString("warehouseId"),
+                        entry.getString("warehouseName"),
+                        entry.getString("changeType"),
+                        entry.get("quantityBefore"),
+                        entry.get("quantityChange"),
+                        entry.get("quantityAfter"),
+                        entry.getString("referenceId"),
+                        entry.getString("referenceType"),
+                        entry.getString("userId"),
+                        entry.getString("userName"),
+                        entry.getString("notes"));
+                exported.put(id, at);
+                if (lastAt != null && at.before(lastAt)) {
+                    late++;
+                } else {
+                    lastAt = at;
+                    lastId = (ObjectId) entry.get("_id");
+                }
+                written = true;
+                rows++;
+                uncommitted++;
+            }
+            files += parts.commit();
+            if (written) {
+                writeCheckpoint(root, ledgerCheckpoint(lastAt, lastId, exported));
+            }
+        }
+
+        log.info("Exported {} ledger entries ({} late) to {} files in {}ms", rows, late, files,
+                System.currentTimeMillis() - start);
+        return summary(LEDGER, rows, files, null);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("lastRun", lastRun);
+        status.put("directory", Paths.get(directory).toAbsolutePath().toString());
+        status.put(STOCK, readCheckpoint(datasetRoot(STOCK)));
+        Document ledger = readCheckpoint(datasetRoot(LEDGER));
+        if (ledger != null && ledger.get("recent") instanceof Document recent) {
+            ledger.put("recent", recent.size());
+        }
+        status.put(LEDGER, ledger);
+        return status;
+    }
+
+    private Path datasetRoot(String dataset) {
+        return Paths.get(directory, dataset);
+    }
+
+    /**
+     * The newest exported entry, and every id exported within the overlap window behind it
+     */
+    private Document ledgerCheckpoint(Date lastAt, ObjectId lastId, Map<String, Date> exported) {
+        Date from = new Date(lastAt.getTime() - overlapSeconds * 1000);
+        exported.values().removeIf(at -> at.before(from));
+        Document recent = new Document();
+        exported.forEach(recent::append);
+        return new Document("createdAt", lastAt).append("id", lastId.toHexString()).append("recent", recent);
+    }
+
+    private static Map<String, Object> summary(String dataset, long rows, int files, String skipped) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("dataset", dataset);
+        summary.put("rows", rows);
+        summary.put("files", files);
+        if (skipped != null) {
+            summary.put("skipped", skipped);
+        }
+        return summary;
+    }
+
+    private static Document readCheckpoint(Path root) {
+        Path path = root.resolve(CHECKPOINT);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return Document.parse(Files.readString(path, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read export checkpoint " + path, e);
+        }
+    }
+
+    /**
+     * Replace the checkpoint atomically, so a crash leaves either the old or the new one
+     */
+    private static void writeCheckpoint(Path root, Document checkpoint) {
+        Path path = root.resolve(CHECKPOINT);
+        Path tmp = root.resolve(CHECKPOINT + TMP);
+        try {
+            Files.createDirectories(root);
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer bytes = ByteBuffer.wrap(checkpoint.toJson().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write export checkpoint " + path, e);
+        }
+    }
+
+    private static void markComplete(Path dir) {
+        try {
+            Files.createDirectories(dir);
+            Files.write(dir.resolve("_SUCCESS"), new byte[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to mark " + dir + " complete", e);
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete " + path, e);
+        }
+    }
+
+    private static String idOf(Object id) {
+        return id instanceof ObjectId objectId ? objectId.toHexString() : String.valueOf(id);
+    }
+
+    private static LocalDateTime toLocal(Date date) {
+        // Spring Data stores LocalDateTime as a Date in the JVM's zone, so convert back the same way
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+
+    private static LocalDateTime timestamp(Date date) {
+        return date != null ? toLocal(date) : null;
+    }
+
+    /**
+     * A manual export running in the background, polled through getRun or the status endpoint
+     */
+    @Getter
+    public static class ExportRun {
+        private final String id;
+        private final String dataset;
+        private final boolean force;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile String state = "RUNNING";
+        private volatile LocalDateTime finishedAt;
+        private volatile Object result;
+        private volatile String error;
+
+        ExportRun(String id, String dataset, boolean force) {
+            this.id = id;
+            this.dataset = dataset;
+            this.force = force;
+        }
+
+        public boolean isRunning() {
+            return "RUNNING".equals(state);
+        }
+
+        private void execute(DataExportService exports) {
+            try {
+                result = switch (dataset) {
+                    case STOCK -> exports.exportStock(force);
+                    case LEDGER -> exports.exportLedger();
+                    default -> exports.exportAll();
+                };
+                state = "SUCCEEDED";
+            } catch (RuntimeException e) {
+                log.error("Export run {} of {} failed", id, dataset, e);
+                error = String.valueOf(e.getMessage());
+                state = "FAILED";
+            } finally {
+                finishedAt = LocalDateTime.now();
+            }
+        }
+    }
+
+    /**
+     * The open part files of one run, one per partition directory. commit() finishes them and
+     * renames them into place; closing without a commit deletes whatever wasn't committed.
+     */
+    private static class PartFiles implements AutoCloseable {
+        private final Path root;
+        private final String header;
+        private final String runId = LocalDateTime.now().format(RUN_ID);
+        private final Map<String, Part> open = new HashMap<>();
+        private int sequence;
+
+        PartFiles(Path root, List<String> columns) {
+            this.root = root;
+            this.header = String.join(",", columns) + "\n";
+            deleteLeftovers();
+        }
+
+        void write(String partition, Object... values) {
+            try {
+                Part part = open.get(partition);
+                if (part == null) {
+                    part = new Part(root.resolve(partition), "part-" + runId + "-" + sequence + ".csv.gz");
+                    part.writer.write(header);
+                    open.put(partition, part);
+                }
+                StringBuilder line = new StringBuilder(128);
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    appendCsv(line, values[i]);
+                }
+                line.append('\n');
+                part.writer.write(line.toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write export partition " + partition, e);
+            }
+        }
+
+        /**
+         * Finish and rename every open part, returning how many files were committed
+         */
+        int commit() {
+            int committed = open.size();
+            try {
+                for (Part part : open.values()) {
+                    part.finish();
+                    Files.move(part.tmp, part.target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to commit export files", e);
+            }
+            open.clear();
+            sequence++;
+            return committed;
+        }
+
+        @Override
+        public void close() {
+            for (Part part : open.values()) {
+                part.discard();
+            }
+            open.clear();
+        }
+
+        /**
+         * Parts a crashed run never committed
+         */
+        private void deleteLeftovers() {
+            if (!Files.exists(root)) {
+                return;
+            }
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path file : (Iterable<Path>) paths::iterator) {
+                    if (file.getFileName().toString().endsWith(".csv.gz" + TMP)) {
+                        Files.delete(file);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to clean up " + root, e);
+            }
+        }
+
+        private static void appendCsv(StringBuilder line, Object value) {
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            boolean quote = false;
+            for (int i = 0; i < text.length() && !quote; i++) {
+                char c = text.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                line.append(text);
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    line.append('"');
+                }
+                line.append(c);
+            }
+            line.append('"');
+        }
+    }
+
+    private static class Part {
+        private final Path tmp;
+        private final Path target;
+        private final FileChannel channel;
+        private final GZIPOutputStream gzip;
+        private final Writer writer;
+
+        Part(Path dir, String fileName) throws IOException {
+            Files.createDirectories(dir);
+            this.target = dir.resolve(fileName);
+            this.tmp = dir.resolve(fileName + TMP);
+            this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.gzip = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            this.writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        void finish() throws IOException {
+            writer.flush();
+            gzip.finish();
+            channel.force(true);
+            writer.close();
+        }
+
+        void discard() {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.debug("Closing export part {} failed: {}", tmp, e.getMessage());
+            }
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                log.warn("Could not delete uncommitted export part {}: {}", tmp, e.getMessage());
+            }
+        }
+    }
+}
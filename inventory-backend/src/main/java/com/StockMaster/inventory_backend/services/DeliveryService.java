@@ -1,23 +1,30 @@
 package com.StockMaster.inventory_backend.services;
 
 import com.StockMaster.inventory_backend.dto.DeliveryDTO;
+import com.StockMaster.inventory_backend.dto.PageDTO;
+import com.StockMaster.inventory_backend.metrics.Timed;
 import com.StockMaster.inventory_backend.models.Delivery;
 import com.StockMaster.inventory_backend.models.Product;
 import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.StockLedger;
 import com.StockMaster.inventory_backend.models.Warehouse;
 import com.StockMaster.inventory_backend.repositories.DeliveryRepository;
-import com.StockMaster.inventory_backend.repositories.ProductRepository;
 import com.StockMaster.inventory_backend.repositories.StockRepository;
 import com.StockMaster.inventory_backend.repositories.WarehouseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class DeliveryService {
@@ -26,10 +33,10 @@ public class DeliveryService {
     private DeliveryRepository deliveryRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private WarehouseRepository warehouseRepository;
 
     @Autowired
-    private WarehouseRepository warehouseRepository;
+    private ReferenceDataCache referenceDataCache;
 
     @Autowired
     private StockRepository stockRepository;
@@ -37,12 +44,54 @@ public class DeliveryService {
     @Autowired
     private StockLedgerService stockLedgerService;
 
+    @Autowired
+    private StockMutationEngine stockMutationEngine;
+
+    @Autowired
+    private PagedQueryService pagedQueryService;
+
+    @Autowired
+    private DocumentWorkflowService documentWorkflowService;
+
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "createdAt", "deliveryDate", "deliveryNumber");
+
+    private static final Map<String, List<String>> PAGE_FIELD_SOURCES = Map.of(
+            "warehouseName", List.of("warehouseId"));
+
     public List<DeliveryDTO> getAllDeliveries() {
         return deliveryRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * All deliveries read from a cursor, for streaming responses. Warehouse names are
+     * resolved once up front. The caller must close the stream.
+     */
+    public Stream<DeliveryDTO> streamAllDeliveries() {
+        Map<String, String> warehouseNames = warehouseRepository.findAll().stream()
+                .collect(Collectors.toMap(Warehouse::getId, Warehouse::getName));
+        return deliveryRepository.streamAllBy()
+                .map(delivery -> convertToDTO(delivery, warehouseNames.get(delivery.getWarehouseId())));
+    }
+
+    public PageDTO<Object> getDeliveriesPage(Pageable pageable, String fields) {
+        return pagedQueryService.page(Delivery.class, pageable, SORTABLE_FIELDS, fields, DeliveryDTO.class,
+                PAGE_FIELD_SOURCES, deliveries -> {
+                    // One cached batch lookup for the page instead of one warehouse read per delivery
+                    Set<String> warehouseIds = deliveries.stream()
+                            .map(Delivery::getWarehouseId)
+                            .filter(id -> id != null)
+                            .collect(Collectors.toSet());
+                    Map<String, String> warehouseNames = new HashMap<>();
+                    referenceDataCache.findWarehouses(warehouseIds)
+                            .forEach((id, warehouse) -> warehouseNames.put(id, warehouse.getName()));
+                    return deliveries.stream()
+                            .map(delivery -> convertToDTO(delivery, warehouseNames.get(delivery.getWarehouseId())))
+                            .collect(Collectors.toList());
+                });
+    }
+
     public List<DeliveryDTO> getDeliveriesByStatus(String status) {
         return deliveryRepository.findByStatus(status).stream()
                 .map(this::convertToDTO)
@@ -63,12 +112,12 @@ public class DeliveryService {
 
     public DeliveryDTO createDelivery(DeliveryDTO deliveryDTO, String username) {
         // Validate warehouse exists
-        Warehouse warehouse = warehouseRepository.findById(deliveryDTO.getWarehouseId())
+        Warehouse warehouse = referenceDataCache.findWarehouse(deliveryDTO.getWarehouseId())
                 .orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + deliveryDTO.getWarehouseId()));
 
         // Validate all products exist and check stock availability
         for (DeliveryDTO.DeliveryItemDTO itemDTO : deliveryDTO.getItems()) {
-            Product product = productRepository.findById(itemDTO.getProductId())
+            Product product = referenceDataCache.findProduct(itemDTO.getProductId())
                     .orElseThrow(() -> new RuntimeException("Product not found with id: " + itemDTO.getProductId()));
             
             itemDTO.setProductName(product.getName());
@@ -115,59 +164,92 @@ public class DeliveryService {
         return convertToDTO(savedDelivery);
     }
 
-    @Transactional
+    @Timed("delivery.validate")
     public DeliveryDTO validateDelivery(String id, String username) {
-        Delivery delivery = deliveryRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Delivery not found with id: " + id));
-
-        if ("VALIDATED".equals(delivery.getStatus())) {
-            throw new RuntimeException("Delivery is already validated");
-        }
+        // Claim the document first, so concurrent validations of it can't both apply stock
+        Delivery delivery = documentWorkflowService.claim(Delivery.class, id, "DRAFT", "VALIDATING", username,
+                current -> current == null
+                        ? new RuntimeException("Delivery not found with id: " + id)
+                        : new RuntimeException("VALIDATING".equals(current.getStatus())
+                                ? "Delivery is already being validated"
+                                : "Delivery is already validated"));
+        return convertToDTO(finishValidation(delivery, username));
+    }
 
-        // Update stock for each item (decrease quantity)
-        for (Delivery.DeliveryItem item : delivery.getItems()) {
-            decreaseStock(item.getProductId(), delivery.getWarehouseId(), item.getQuantity(),
-                    delivery.getId(), "DELIVERY", username, item.getProductName(), item.getProductSku());
+    /**
+     * Finish or hand back a delivery whose VALIDATING claim was abandoned, e.g. by an instance
+     * that died partway, going by the stock rows its lines were applied to. A delivery that
+     * can't be finished any more because stock ran short is taken back out and handed back
+     * by finishValidation. Returns what was done.
+     */
+    public String recoverClaim(Delivery delivery) {
+        if (!stockMutationEngine.anyApplied(delivery.getWarehouseId(), stockReference(delivery.getId()), lines(delivery))) {
+            documentWorkflowService.release(Delivery.class, delivery.getId(), "VALIDATING",
+                    current -> new RuntimeException("Delivery " + delivery.getId() + " is no longer claimed"));
+            return "released";
         }
-
-        // Update delivery status
-        delivery.setStatus("VALIDATED");
-        delivery.setValidatedAt(LocalDateTime.now());
-        delivery.setValidatedBy(username);
-
-        Delivery validatedDelivery = deliveryRepository.save(delivery);
-        return convertToDTO(validatedDelivery);
+        finishValidation(delivery, delivery.getClaimedBy() != null ? delivery.getClaimedBy() : "system");
+        return "finished";
     }
 
-    private void decreaseStock(String productId, String warehouseId, Integer quantity,
-                               String referenceId, String referenceType, String username,
-                               String productName, String productSku) {
-        Stock stock = stockRepository.findByProductIdAndWarehouseId(productId, warehouseId)
-                .orElseThrow(() -> new RuntimeException("Stock not found for product in warehouse"));
-
-        Integer quantityBefore = stock.getQuantity();
-
-        if (quantityBefore < quantity) {
-            throw new RuntimeException("Insufficient stock. Available: " + quantityBefore + 
-                    ", Requested: " + quantity);
+    /**
+     * Everything after the claim. Lines already applied by an earlier attempt are picked up from
+     * their stock rows, and ledger entries keep the ids chosen with the stock write, so running
+     * this again after a crash at any step neither applies stock nor logs a change twice.
+     */
+    private Delivery finishValidation(Delivery delivery, String username) {
+        String id = delivery.getId();
+        String reference = stockReference(id);
+        List<StockMutationEngine.StockLine> lines = lines(delivery);
+        List<StockMutationEngine.StockMutation> mutations;
+        try {
+            mutations = stockMutationEngine.decreaseAll(delivery.getWarehouseId(), reference, lines);
+        } catch (RuntimeException e) {
+            documentWorkflowService.releaseUnlessApplied(Delivery.class, id, "VALIDATING",
+                    () -> stockMutationEngine.anyApplied(delivery.getWarehouseId(), reference, lines), e);
+            throw e;
         }
 
-        Integer quantityAfter = quantityBefore - quantity;
-        stock.setQuantity(quantityAfter);
-        stock.setLastUpdated(LocalDateTime.now());
-        stockRepository.save(stock);
+        // Log all stock changes in the ledger with one insert
+        String warehouseName = referenceDataCache.findWarehouse(delivery.getWarehouseId())
+                .map(Warehouse::getName)
+                .orElse("Unknown");
+        List<StockLedger> ledgerEntries = new ArrayList<>(mutations.size());
+        for (int i = 0; i < mutations.size(); i++) {
+            Delivery.DeliveryItem item = delivery.getItems().get(i);
+            StockMutationEngine.StockMutation mutation = mutations.get(i);
+            StockLedger ledger = new StockLedger(
+                    item.getProductId(), item.getProductName(), item.getProductSku(),
+                    delivery.getWarehouseId(), warehouseName,
+                    "DELIVERY", mutation.getQuantityBefore(), -item.getQuantity(), mutation.getQuantityAfter(),
+                    delivery.getId(), "DELIVERY",
+                    username, username
+            );
+            ledger.setId(mutation.getLedgerId());
+            ledger.setNotes("Stock decreased via delivery validation");
+            ledgerEntries.add(ledger);
+        }
+        stockLedgerService.createLedgerEntries(ledgerEntries);
+
+        // Only this request holds the claim, so the final transition can't be rejected
+        Delivery validatedDelivery = documentWorkflowService.transition(Delivery.class, id, "VALIDATING", "VALIDATED",
+                Map.of("validatedAt", LocalDateTime.now(), "validatedBy", username),
+                current -> new RuntimeException("Delivery " + id + " was modified during validation"));
+        stockMutationEngine.clearApplied(delivery.getWarehouseId(), reference, lines);
+        return validatedDelivery;
+    }
 
-        // Log stock change in ledger
-        Optional<Warehouse> warehouse = warehouseRepository.findById(warehouseId);
-        String warehouseName = warehouse.map(Warehouse::getName).orElse("Unknown");
+    private static List<StockMutationEngine.StockLine> lines(Delivery delivery) {
+        return delivery.getItems().stream()
+                .map(item -> new StockMutationEngine.StockLine(item.getProductId(), item.getQuantity()))
+                .collect(Collectors.toList());
+    }
 
-        stockLedgerService.logStockChange(
-                productId, productName, productSku,
-                warehouseId, warehouseName,
-                "DELIVERY", quantityBefore, -quantity, quantityAfter,
-                referenceId, referenceType,
-                username, username, "Stock decreased via delivery validation"
-        );
+    /**
+     * How the delivery's lines are tagged on the stock rows they were applied to
+     */
+    static String stockReference(String id) {
+        return "DELIVERY:" + id;
     }
 
     public void deleteDelivery(String id) {
@@ -177,8 +259,12 @@ public class DeliveryService {
         if ("VALIDATED".equals(delivery.getStatus())) {
             throw new RuntimeException("Cannot delete validated delivery");
         }
+        if ("VALIDATING".equals(delivery.getStatus())) {
+            throw new RuntimeException("Cannot delete a delivery that is being validated");
+        }
 
-        deliveryRepository.deleteById(id);
+        // Same version as read, so a validation claimed since then isn't deleted under it
+        deliveryRepository.delete(delivery);
     }
 
     private String generateDeliveryNumber() {
@@ -195,6 +281,13 @@ public class DeliveryService {
     }
 
     private DeliveryDTO convertToDTO(Delivery delivery) {
+        String warehouseName = referenceDataCache.findWarehouse(delivery.getWarehouseId())
+                .map(Warehouse::getName)
+                .orElse(null);
+        return convertToDTO(delivery, warehouseName);
+    }
+
+    private DeliveryDTO convertToDTO(Delivery delivery, String warehouseName) {
         DeliveryDTO dto = new DeliveryDTO();
         dto.setId(delivery.getId());
         dto.setDeliveryNumber(delivery.getDeliveryNumber());
@@ -208,21 +301,20 @@ public class DeliveryService {
         dto.setValidatedAt(delivery.getValidatedAt());
         dto.setValidatedBy(delivery.getValidatedBy());
 
-        // Convert items
-        List<DeliveryDTO.DeliveryItemDTO> itemDTOs = delivery.getItems().stream()
-                .map(item -> new DeliveryDTO.DeliveryItemDTO(
-                        item.getProductId(),
-                        item.getQuantity(),
-                        item.getProductName(),
-                        item.getProductSku()
-                ))
-                .collect(Collectors.toList());
-        dto.setItems(itemDTOs);
+        // Convert items, absent when a paged query projected them away
+        if (delivery.getItems() != null) {
+            List<DeliveryDTO.DeliveryItemDTO> itemDTOs = delivery.getItems().stream()
+                    .map(item -> new DeliveryDTO.DeliveryItemDTO(
+                            item.getProductId(),
+                            item.getQuantity(),
+                            item.getProductName(),
+                            item.getProductSku()
+                    ))
+                    .collect(Collectors.toList());
+            dto.setItems(itemDTOs);
+        }
 
-        // Get warehouse name
-        warehouseRepository.findById(delivery.getWarehouseId()).ifPresent(warehouse ->
-                dto.setWarehouseName(warehouse.getName())
-        );
+        dto.setWarehouseName(warehouseName);
 
         return dto;
     }
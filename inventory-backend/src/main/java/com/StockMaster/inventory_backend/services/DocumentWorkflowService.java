@@ -0,0 +1,221 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.Delivery;
+import com.StockMaster.inventory_backend.models.InternalTransfer;
+import com.StockMaster.inventory_backend.models.Receipt;
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.WorkflowDocument;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Optimistic concurrency for receipts, deliveries, transfers and stock rows. A status change
+ * is a single conditional update on the document's id, expected status and version, so of two
+ * workers validating the same DRAFT document exactly one moves it on; the other is rejected
+ * with the status it found. Version conflicts that leave the status as expected (another
+ * write landed in between) are retried after a jittered, exponentially growing pause.
+ *
+ * A claim records when and by whom it was made. Whether its stock changes were written is
+ * recorded on the stock rows themselves (see StockMutationEngine), so WorkflowRecoveryService
+ * can tell a claim abandoned by a crashed instance that still has to be finished from one that
+ * can be handed back.
+ */
+@Service
+public class DocumentWorkflowService {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentWorkflowService.class);
+
+    private static final String MIGRATIONS = "schema_migrations";
+    private static final String VERSION_BACKFILL = "workflow-version-backfill";
+
+    private static final List<Class<?>> VERSIONED = List.of(Stock.class, Receipt.class, Delivery.class, InternalTransfer.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${workflow.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${workflow.retry.base-delay-ms:10}")
+    private long baseDelayMs;
+
+    @Value("${workflow.retry.max-delay-ms:250}")
+    private long maxDelayMs;
+
+    /**
+     * Documents written before they had a version field would be treated as new on their next
+     * save and inserted again, so give them version 0 before anything saves them. Runs once:
+     * afterwards a marker in schema_migrations makes startup skip the collection scans.
+     */
+    @PostConstruct
+    public void backfillVersions() {
+        if (mongoTemplate.getCollection(MIGRATIONS).find(Filters.eq("_id", VERSION_BACKFILL)).first() != null) {
+            return;
+        }
+        for (Class<?> type : VERSIONED) {
+            try {
+                UpdateResult result = mongoTemplate.updateMulti(new Query(Criteria.where("version").exists(false)),
+                        new Update().set("version", 0L), type);
+                if (result.getModifiedCount() > 0) {
+                    log.info("Initialized version on {} {} documents", result.getModifiedCount(), type.getSimpleName());
+                }
+            } catch (RuntimeException e) {
+                // No marker, so the next startup tries again
+                log.warn("Could not initialize {} versions: {}", type.getSimpleName(), e.getMessage());
+                return;
+            }
+        }
+        mongoTemplate.getCollection(MIGRATIONS).replaceOne(Filters.eq("_id", VERSION_BACKFILL),
+                new Document("_id", VERSION_BACKFILL).append("appliedAt", new Date()), new ReplaceOptions().upsert(true));
+    }
+
+    /**
+     * Claim a document for the caller by moving it out of its from status, recording the claim
+     */
+    public <T extends WorkflowDocument> T claim(Class<T> type, String id, String from, String to, String username,
+                                                Function<T, RuntimeException> rejected) {
+        return transition(type, id, from, to, Map.of("claimedAt", LocalDateTime.now(), "claimedBy", username), rejected);
+    }
+
+    /**
+     * Hand a claimed document back to DRAFT, for when none of its stock changes were written
+     */
+    public <T extends WorkflowDocument> T release(Class<T> type, String id, String claimed,
+                                                  Function<T, RuntimeException> rejected) {
+        Map<String, Object> cleared = new HashMap<>();
+        cleared.put("claimedAt", null);
+        cleared.put("claimedBy", null);
+        return transition(type, id, claimed, "DRAFT", cleared, rejected);
+    }
+
+    /**
+     * Hand a claimed document back to DRAFT after its stock write failed, unless part of the write
+     * is still on the stock rows because taking it back failed too. That claim is left for
+     * WorkflowRecoveryService, which finishes or reverts the write before anything else can
+     * validate the document and apply it a second time.
+     */
+    public <T extends WorkflowDocument> void releaseUnlessApplied(Class<T> type, String id, String claimed,
+                                                                  BooleanSupplier stockApplied, RuntimeException failure) {
+        try {
+            if (stockApplied.getAsBoolean()) {
+                log.error("{} {} stays {}: its stock write failed and could not be taken back", type.getSimpleName(),
+                        id, claimed);
+                return;
+            }
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+            log.error("{} {} stays {}: could not check its stock write: {}", type.getSimpleName(), id, claimed,
+                    e.getMessage());
+            return;
+        }
+        release(type, id, claimed, current -> failure);
+    }
+
+    /**
+     * Documents claimed longer ago than the given time, oldest first. Claims made before
+     * claims were recorded have no claimedAt and count as stale.
+     */
+    public <T extends WorkflowDocument> List<T> findStaleClaims(Class<T> type, String claimed, LocalDateTime claimedBefore,
+                                                                int limit) {
+        Query query = new Query(Criteria.where("status").is(claimed)
+                .orOperator(Criteria.where("claimedAt").lt(claimedBefore), Criteria.where("claimedAt").is(null)))
+                .with(Sort.by("claimedAt"))
+                .limit(limit);
+        return mongoTemplate.find(query, type);
+    }
+
+    /**
+     * Move a document from one status to another, setting the given fields with it.
+     *
+     * @param rejected builds the error when the document is missing (null) or not in the from status
+     * @return the document as updated
+     */
+    public <T extends WorkflowDocument> T transition(Class<T> type, String id, String from, String to,
+                                                     Map<String, Object> fields, Function<T, RuntimeException> rejected) {
+        return retryOnConflict(type.getSimpleName() + "." + to, () -> {
+            T current = mongoTemplate.findById(id, type);
+            if (current == null || !from.equals(current.getStatus())) {
+                throw rejected.apply(current);
+            }
+
+            // A null value removes the field
+            Update update = new Update().set("status", to);
+            fields.forEach((field, value) -> {
+                if (value == null) {
+                    update.unset(field);
+                } else {
+                    update.set(field, value);
+                }
+            });
+            // MongoTemplate adds the version increment to the update itself
+            Query expected = new Query(Criteria.where("_id").is(id)
+                    .and("status").is(from)
+                    .and("version").is(current.getVersion()));
+            T updated = mongoTemplate.findAndModify(expected, update,
+                    FindAndModifyOptions.options().returnNew(true), type);
+            if (updated == null) {
+                throw new OptimisticLockingFailureException(type.getSimpleName() + " " + id + " was modified concurrently");
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * Run a read-modify-write, re-running it from the read when its write hits a newer version
+     * or a row a concurrent request inserted first. Gives up after the configured attempts.
+     */
+    public <T> T retryOnConflict(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                meterRegistry.counter("workflow.conflicts", "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    throw new RuntimeException("Concurrent update conflict on " + operation + ", please retry", e);
+                }
+                backoff(operation, attempt);
+            }
+        }
+    }
+
+    private void backoff(String operation, int attempt) {
+        // Full jitter: a random pause up to a doubling cap, so competing workers spread out instead of colliding again
+        long cap = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying " + operation, e);
+        }
+    }
+}
@@ -1,20 +1,26 @@
 package com.StockMaster.inventory_backend.services;
 
+import com.StockMaster.inventory_backend.dto.PageDTO;
+import com.StockMaster.inventory_backend.metrics.Timed;
 import com.StockMaster.inventory_backend.models.InternalTransfer;
 import com.StockMaster.inventory_backend.models.Product;
-import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.StockLedger;
 import com.StockMaster.inventory_backend.models.Warehouse;
 import com.StockMaster.inventory_backend.repositories.InternalTransferRepository;
-import com.StockMaster.inventory_backend.repositories.ProductRepository;
-import com.StockMaster.inventory_backend.repositories.StockRepository;
-import com.StockMaster.inventory_backend.repositories.WarehouseRepository;
+import com.mongodb.client.result.DeleteResult;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 public class InternalTransferService {
@@ -23,21 +29,41 @@ public class InternalTransferService {
     private InternalTransferRepository transferRepository;
     
     @Autowired
-    private StockRepository stockRepository;
+    private ReferenceDataCache referenceDataCache;
     
     @Autowired
-    private ProductRepository productRepository;
+    private StockLedgerService stockLedgerService;
     
     @Autowired
-    private WarehouseRepository warehouseRepository;
+    private StockMutationEngine stockMutationEngine;
     
     @Autowired
-    private StockLedgerService stockLedgerService;
+    private PagedQueryService pagedQueryService;
+    
+    @Autowired
+    private DocumentWorkflowService documentWorkflowService;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "createdAt");
     
     public List<InternalTransfer> getAllTransfers() {
         return transferRepository.findAll();
     }
     
+    /**
+     * All transfers read from a cursor, for streaming responses. The caller must close the stream.
+     */
+    public Stream<InternalTransfer> streamAllTransfers() {
+        return transferRepository.streamAllBy();
+    }
+    
+    public PageDTO<Object> getTransfersPage(Pageable pageable, String fields) {
+        return pagedQueryService.page(InternalTransfer.class, pageable, SORTABLE_FIELDS, fields,
+                InternalTransfer.class, Map.of(), transfers -> transfers);
+    }
+    
     public Optional<InternalTransfer> getTransferById(String id) {
         return transferRepository.findById(id);
     }
@@ -60,14 +86,14 @@ public class InternalTransferService {
     
     public InternalTransfer createTransfer(InternalTransfer transfer) {
         // Validate product exists
-        Optional<Product> product = productRepository.findById(transfer.getProductId());
+        Optional<Product> product = referenceDataCache.findProduct(transfer.getProductId());
         if (product.isEmpty()) {
             throw new RuntimeException("Product not found");
         }
         
         // Validate warehouses exist
-        Optional<Warehouse> fromWarehouse = warehouseRepository.findById(transfer.getFromWarehouseId());
-        Optional<Warehouse> toWarehouse = warehouseRepository.findById(transfer.getToWarehouseId());
+        Optional<Warehouse> fromWarehouse = referenceDataCache.findWarehouse(transfer.getFromWarehouseId());
+        Optional<Warehouse> toWarehouse = referenceDataCache.findWarehouse(transfer.getToWarehouseId());
         
         if (fromWarehouse.isEmpty() || toWarehouse.isEmpty()) {
             throw new RuntimeException("Warehouse not found");
@@ -89,105 +115,119 @@ public class InternalTransferService {
         return transferRepository.save(transfer);
     }
     
-    @Transactional
+    @Timed("transfer.complete")
     public InternalTransfer completeTransfer(String transferId, String completedBy) {
-        Optional<InternalTransfer> transferOpt = transferRepository.findById(transferId);
-        
-        if (transferOpt.isEmpty()) {
-            throw new RuntimeException("Transfer not found");
-        }
-        
-        InternalTransfer transfer = transferOpt.get();
-        
-        if (!"DRAFT".equals(transfer.getStatus())) {
-            throw new RuntimeException("Only DRAFT transfers can be completed");
+        // Claim the transfer first, so two requests completing it can't both move the stock
+        InternalTransfer transfer = documentWorkflowService.claim(InternalTransfer.class, transferId,
+                "DRAFT", "COMPLETING", completedBy, current -> current == null
+                        ? new RuntimeException("Transfer not found")
+                        : new RuntimeException("Only DRAFT transfers can be completed"));
+        return finishTransfer(transfer, completedBy);
+    }
+    
+    /**
+     * Finish or hand back a transfer whose COMPLETING claim was abandoned, e.g. by an instance
+     * that died partway, going by whether its source stock row carries the decrease. Returns
+     * what was done.
+     */
+    public String recoverClaim(InternalTransfer transfer) {
+        if (!stockMutationEngine.anyApplied(transfer.getFromWarehouseId(), stockReference(transfer.getId(), "out"),
+                lines(transfer))) {
+            documentWorkflowService.release(InternalTransfer.class, transfer.getId(), "COMPLETING",
+                    current -> new RuntimeException("Transfer " + transfer.getId() + " is no longer claimed"));
+            return "released";
         }
+        finishTransfer(transfer, transfer.getClaimedBy() != null ? transfer.getClaimedBy() : "system");
+        return "finished";
+    }
+    
+    /**
+     * Everything after the claim. Either side already applied by an earlier attempt is picked up
+     * from its stock row and ledger entries keep the ids chosen with the stock writes, so running
+     * this again after a crash at any step neither moves stock nor logs a change twice.
+     */
+    private InternalTransfer finishTransfer(InternalTransfer transfer, String completedBy) {
+        String id = transfer.getId();
+        List<StockMutationEngine.StockLine> lines = lines(transfer);
+        String outReference = stockReference(id, "out");
+        String inReference = stockReference(id, "in");
         
-        // Check stock availability in source warehouse
-        Optional<Stock> fromStockOpt = stockRepository
-                .findByProductIdAndWarehouseId(transfer.getProductId(), transfer.getFromWarehouseId());
-        
-        if (fromStockOpt.isEmpty()) {
-            throw new RuntimeException("No stock found in source warehouse");
+        // Decrease stock from source warehouse
+        StockMutationEngine.StockMutation fromMutation;
+        try {
+            fromMutation = stockMutationEngine.decreaseAll(transfer.getFromWarehouseId(), outReference, lines).get(0);
+        } catch (RuntimeException e) {
+            documentWorkflowService.releaseUnlessApplied(InternalTransfer.class, id, "COMPLETING",
+                    () -> stockMutationEngine.anyApplied(transfer.getFromWarehouseId(), outReference, lines), e);
+            throw e;
         }
         
-        Stock fromStock = fromStockOpt.get();
-        
-        if (fromStock.getQuantity() < transfer.getQuantity()) {
-            throw new RuntimeException("Insufficient stock in source warehouse. Available: " 
-                    + fromStock.getQuantity() + ", Required: " + transfer.getQuantity());
-        }
+        // Increase stock in destination warehouse, creating the stock entry if it doesn't exist. The
+        // source is decreased by now, so a failure here leaves the claim for recovery to finish.
+        StockMutationEngine.StockMutation toMutation =
+                stockMutationEngine.increaseAll(transfer.getToWarehouseId(), inReference, lines).get(0);
         
-        // Decrease stock from source warehouse
-        fromStock.setQuantity(fromStock.getQuantity() - transfer.getQuantity());
-        fromStock.setLastUpdated(LocalDateTime.now());
-        stockRepository.save(fromStock);
-
-        // Log source warehouse stock decrease
-        stockLedgerService.logStockChange(
+        // Log both sides with one insert
+        StockLedger out = new StockLedger(
                 transfer.getProductId(), transfer.getProductName(), transfer.getProductSku(),
                 transfer.getFromWarehouseId(), transfer.getFromWarehouseName(),
-                "TRANSFER_OUT", fromStock.getQuantity() + transfer.getQuantity(),
-                -transfer.getQuantity(), fromStock.getQuantity(),
-                transfer.getId(), "TRANSFER",
-                completedBy, completedBy, "Stock transferred out to " + transfer.getToWarehouseName()
-        );
-        
-        // Increase stock in destination warehouse
-        Optional<Stock> toStockOpt = stockRepository
-                .findByProductIdAndWarehouseId(transfer.getProductId(), transfer.getToWarehouseId());
-        
-        Stock toStock;
-        Integer toQuantityBefore;
-        if (toStockOpt.isPresent()) {
-            toStock = toStockOpt.get();
-            toQuantityBefore = toStock.getQuantity();
-            toStock.setQuantity(toQuantityBefore + transfer.getQuantity());
-            toStock.setLastUpdated(LocalDateTime.now());
-        } else {
-            // Create new stock entry if it doesn't exist
-            toStock = new Stock(transfer.getProductId(), transfer.getToWarehouseId(),
-                    transfer.getQuantity());
-            toQuantityBefore = 0;
-        }
-        stockRepository.save(toStock);
-
-        // Log destination warehouse stock increase
-        stockLedgerService.logStockChange(
+                "TRANSFER_OUT", fromMutation.getQuantityBefore(),
+                -transfer.getQuantity(), fromMutation.getQuantityAfter(),
+                id, "TRANSFER", completedBy, completedBy);
+        out.setId(fromMutation.getLedgerId());
+        out.setNotes("Stock transferred out to " + transfer.getToWarehouseName());
+        StockLedger in = new StockLedger(
                 transfer.getProductId(), transfer.getProductName(), transfer.getProductSku(),
                 transfer.getToWarehouseId(), transfer.getToWarehouseName(),
-                "TRANSFER_IN", toQuantityBefore,
-                transfer.getQuantity(), toStock.getQuantity(),
-                transfer.getId(), "TRANSFER",
-                completedBy, completedBy, "Stock transferred in from " + transfer.getFromWarehouseName()
-        );
+                "TRANSFER_IN", toMutation.getQuantityBefore(),
+                transfer.getQuantity(), toMutation.getQuantityAfter(),
+                id, "TRANSFER", completedBy, completedBy);
+        in.setId(toMutation.getLedgerId());
+        in.setNotes("Stock transferred in from " + transfer.getFromWarehouseName());
+        stockLedgerService.createLedgerEntries(List.of(out, in));
         
         // Update transfer status
-        transfer.setStatus("COMPLETED");
-        transfer.setCompletedBy(completedBy);
-        transfer.setCompletedAt(LocalDateTime.now());
-        
-        return transferRepository.save(transfer);
+        InternalTransfer completed = documentWorkflowService.transition(InternalTransfer.class, id,
+                "COMPLETING", "COMPLETED", Map.of("completedBy", completedBy, "completedAt", LocalDateTime.now()),
+                current -> new RuntimeException("Transfer " + id + " was modified while completing"));
+        stockMutationEngine.clearApplied(transfer.getFromWarehouseId(), outReference, lines);
+        stockMutationEngine.clearApplied(transfer.getToWarehouseId(), inReference, lines);
+        return completed;
+    }
+    
+    private static List<StockMutationEngine.StockLine> lines(InternalTransfer transfer) {
+        return List.of(new StockMutationEngine.StockLine(transfer.getProductId(), transfer.getQuantity()));
+    }
+    
+    /**
+     * How one side of the transfer is tagged on the stock row it was applied to
+     */
+    static String stockReference(String id, String side) {
+        return "TRANSFER:" + id + ":" + side;
     }
     
     public InternalTransfer cancelTransfer(String transferId) {
-        Optional<InternalTransfer> transferOpt = transferRepository.findById(transferId);
+        // Conditional on DRAFT, so a transfer can't be cancelled while it is being completed
+        return documentWorkflowService.transition(InternalTransfer.class, transferId, "DRAFT", "CANCELLED",
+                Map.of(), current -> current == null
+                        ? new RuntimeException("Transfer not found")
+                        : new RuntimeException("Only DRAFT transfers can be cancelled"));
+    }
+    
+    public void deleteTransfer(String id) {
+        InternalTransfer transfer = transferRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Transfer not found"));
         
-        if (transferOpt.isEmpty()) {
-            throw new RuntimeException("Transfer not found");
+        if (!"DRAFT".equals(transfer.getStatus()) && !"CANCELLED".equals(transfer.getStatus())) {
+            throw new RuntimeException("Only DRAFT or CANCELLED transfers can be deleted");
         }
         
-        InternalTransfer transfer = transferOpt.get();
-        
-        if (!"DRAFT".equals(transfer.getStatus())) {
-            throw new RuntimeException("Only DRAFT transfers can be cancelled");
+        // Same status and version as read, so a completion claimed since then isn't deleted under it
+        DeleteResult result = mongoTemplate.remove(new Query(Criteria.where("_id").is(id)
+                .and("status").is(transfer.getStatus())
+                .and("version").is(transfer.getVersion())), InternalTransfer.class);
+        if (result.getDeletedCount() == 0) {
+            throw new RuntimeException("Transfer was modified while deleting it, reload and try again");
         }
-        
-        transfer.setStatus("CANCELLED");
-        return transferRepository.save(transfer);
-    }
-    
-    public void deleteTransfer(String id) {
-        transferRepository.deleteById(id);
     }
 }
@@ -0,0 +1,12 @@
+package com.StockMaster.inventory_backend.services;
+
+/**
+ * A page request the caller got wrong, such as an unsortable field or an unknown
+ * fields= entry. The /page endpoints answer it with 400; anything else is a server error.
+ */
+public class InvalidPageRequestException extends RuntimeException {
+
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
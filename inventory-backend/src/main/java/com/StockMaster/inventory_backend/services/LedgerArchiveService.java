@@ -0,0 +1,436 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.StockLedger;
+import com.StockMaster.inventory_backend.models.StockLedgerBucket;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Moves ledger entries older than the hot window into capped monthly per product/warehouse
+ * buckets and reads them back for StockLedgerService, so the stock_ledger collection only
+ * holds recent history. Every archived entry is older than every hot one, which is what lets
+ * readers consult this tier only once the hot one runs out.
+ */
+@Service
+public class LedgerArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerArchiveService.class);
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    public static final Comparator<StockLedger> ENTRY_ORDER =
+            Comparator.comparing(StockLedger::getCreatedAt).thenComparing(StockLedger::getId);
+
+    private static final DocumentCodec CODEC = new DocumentCodec();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${ledger.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ledger.archive.hot-days:90}")
+    private int hotDays;
+
+    @Value("${ledger.archive.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${ledger.archive.bucket-max-entries:500}")
+    private int bucketMaxEntries;
+
+    @Scheduled(cron = "${ledger.archive.cron:0 30 2 * * *}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archive();
+        }
+    }
+
+    /**
+     * Move every hot entry older than the hot window into its monthly buckets. Safe to re-run
+     * after a crash: entries whose id is already in a bucket are skipped, and entries are removed
+     * from the hot collection only after their bucket writes succeeded.
+     */
+    public synchronized Map<String, Object> archive() {
+        LocalDateTime cutoff = LocalDate.now().minusDays(hotDays).atStartOfDay();
+        long archived = 0;
+
+        while (true) {
+            Query query = new Query(Criteria.where("createdAt").lt(cutoff))
+                    .with(Sort.by(Sort.Direction.ASC, "createdAt", "id"))
+                    .limit(batchSize);
+            List<StockLedger> batch = mongoTemplate.find(query, StockLedger.class);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<String> ids = batch.stream().map(StockLedger::getId).collect(Collectors.toList());
+            Set<String> alreadyArchived = archivedIds(ids);
+            Map<String, List<StockLedger>> byMonth = batch.stream()
+                    .filter(entry -> !alreadyArchived.contains(entry.getId()))
+                    .collect(Collectors.groupingBy(this::monthKey, LinkedHashMap::new, Collectors.toList()));
+            for (List<StockLedger> entries : byMonth.values()) {
+                appendToBuckets(entries);
+            }
+
+            mongoTemplate.remove(new Query(Criteria.where("id").in(ids)), StockLedger.class);
+            archived += batch.size();
+        }
+
+        if (archived > 0) {
+            log.info("Archived {} ledger entries older than {}", archived, cutoff);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("archived", archived);
+        result.put("cutoff", cutoff);
+        return result;
+    }
+
+    public List<StockLedger> findById(String id) {
+        List<StockLedger> entries = new ArrayList<>();
+        for (StockLedgerBucket bucket : mongoTemplate.find(new Query(Criteria.where("entryIds").is(id)), StockLedgerBucket.class)) {
+            for (StockLedger entry : entriesOf(bucket)) {
+                if (id.equals(entry.getId())) {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Up to {@code limit} archived entries matching the filter, newest first, strictly before
+     * the ({@code beforeAt}, {@code beforeId}) position when one is given. Buckets are read
+     * newest first and reading stops once no further bucket can hold a newer entry than the
+     * oldest one kept.
+     */
+    public List<StockLedger> findNewest(LedgerFilter filter, LocalDateTime beforeAt, String beforeId, int limit) {
+        List<Criteria> criteria = bucketCriteria(filter);
+        Predicate<StockLedger> matches = filter;
+        if (beforeAt != null) {
+            criteria.add(Criteria.where("firstEntryAt").lte(beforeAt));
+            matches = matches.and(entry -> ENTRY_ORDER.compare(entry, position(beforeAt, beforeId)) < 0);
+        }
+        Query query = where(criteria).with(Sort.by(Sort.Direction.DESC, "lastEntryAt"));
+
+        // Min-heap of the newest entries seen so far, its head is the oldest one kept
+        PriorityQueue<StockLedger> newest = new PriorityQueue<>(ENTRY_ORDER);
+        try (Stream<StockLedgerBucket> buckets = mongoTemplate.stream(query, StockLedgerBucket.class)) {
+            Iterator<StockLedgerBucket> iterator = buckets.iterator();
+            while (iterator.hasNext()) {
+                StockLedgerBucket bucket = iterator.next();
+                if (newest.size() == limit && bucket.getLastEntryAt().isBefore(newest.peek().getCreatedAt())) {
+                    break;
+                }
+                for (StockLedger entry : entriesOf(bucket)) {
+                    if (matches.test(entry)) {
+                        newest.add(entry);
+                        if (newest.size() > limit) {
+                            newest.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<StockLedger> entries = new ArrayList<>(newest);
+        entries.sort(ENTRY_ORDER.reversed());
+        return entries;
+    }
+
+    /**
+     * Archived entries matching the filter, oldest first, merged across buckets as they are
+     * read. Holds the buckets overlapping the current position in memory, at most a month of
+     * the filtered history. The caller must close the stream.
+     */
+    public Stream<StockLedger> streamOldest(LedgerFilter filter) {
+        Query query = where(bucketCriteria(filter)).with(Sort.by(Sort.Direction.ASC, "firstEntryAt"));
+        Stream<StockLedgerBucket> buckets = mongoTemplate.stream(query, StockLedgerBucket.class);
+        Iterator<StockLedgerBucket> source = buckets.iterator();
+
+        Iterator<StockLedger> merged = new Iterator<>() {
+            private final PriorityQueue<StockLedger> pending = new PriorityQueue<>(ENTRY_ORDER);
+            private StockLedgerBucket next = source.hasNext() ? source.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                // A bucket starting no later than the oldest pending entry may hold an older one
+                while (next != null && (pending.isEmpty() || !next.getFirstEntryAt().isAfter(pending.peek().getCreatedAt()))) {
+                    for (StockLedger entry : entriesOf(next)) {
+                        if (filter.test(entry)) {
+                            pending.add(entry);
+                        }
+                    }
+                    next = source.hasNext() ? source.next() : null;
+                }
+                return !pending.isEmpty();
+            }
+
+            @Override
+            public StockLedger next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return pending.poll();
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(buckets::close);
+    }
+
+    /**
+     * Archived entries of one warehouse created after {@code after} (exclusive, null for no
+     * lower bound) up to and including {@code until}, oldest first
+     */
+    public List<StockLedger> findByWarehouseBetween(String warehouseId, LocalDateTime after, LocalDateTime until) {
+        Criteria criteria = Criteria.where("warehouseId").is(warehouseId).and("firstEntryAt").lte(until);
+        if (after != null) {
+            criteria = criteria.and("lastEntryAt").gt(after);
+        }
+
+        List<StockLedger> entries = new ArrayList<>();
+        for (StockLedgerBucket bucket : mongoTemplate.find(new Query(criteria), StockLedgerBucket.class)) {
+            for (StockLedger entry : entriesOf(bucket)) {
+                if ((after == null || entry.getCreatedAt().isAfter(after)) && !entry.getCreatedAt().isAfter(until)) {
+                    entries.add(entry);
+                }
+            }
+        }
+        entries.sort(ENTRY_ORDER);
+        return entries;
+    }
+
+    /**
+     * Add one product/warehouse/month's entries, oldest first, to its last bucket and new ones
+     * after it as each fills up. A bucket changed by another instance in between is re-read.
+     */
+    private void appendToBuckets(List<StockLedger> entries) {
+        StockLedger first = entries.get(0);
+        String month = first.getCreatedAt().format(MONTH);
+        Query lastBucket = new Query(Criteria.where("productId").is(first.getProductId())
+                .and("warehouseId").is(first.getWarehouseId())
+                .and("month").is(month))
+                .with(Sort.by(Sort.Direction.DESC, "seq"))
+                .limit(1);
+
+        int next = 0;
+        while (next < entries.size()) {
+            StockLedgerBucket bucket = mongoTemplate.findOne(lastBucket, StockLedgerBucket.class);
+            boolean created = bucket == null || bucket.getCount() >= bucketMaxEntries;
+            if (created) {
+                int seq = bucket == null ? 0 : bucket.getSeq() + 1;
+                bucket = new StockLedgerBucket();
+                bucket.setId(StockLedgerBucket.bucketKey(first.getProductId(), first.getWarehouseId(), month, seq));
+                bucket.setProductId(first.getProductId());
+                bucket.setWarehouseId(first.getWarehouseId());
+                bucket.setMonth(month);
+                bucket.setSeq(seq);
+            }
+
+            int take = Math.min(entries.size() - next, bucketMaxEntries - bucket.getCount());
+            fill(bucket, entries.subList(next, next + take));
+            try {
+                if (created) {
+                    mongoTemplate.insert(bucket);
+                } else {
+                    mongoTemplate.save(bucket);
+                }
+                next += take;
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                // Another instance wrote this bucket first, re-read and go again
+            }
+        }
+    }
+
+    private void fill(StockLedgerBucket bucket, List<StockLedger> added) {
+        List<StockLedger> entries = bucket.getCompressedEntries() == null ? new ArrayList<>() : entriesOf(bucket);
+        entries.addAll(added);
+        entries.sort(ENTRY_ORDER);
+
+        StockLedger last = entries.get(entries.size() - 1);
+        bucket.setProductName(last.getProductName());
+        bucket.setProductSku(last.getProductSku());
+        bucket.setWarehouseName(last.getWarehouseName());
+        bucket.setCount(entries.size());
+        bucket.setFirstEntryAt(entries.get(0).getCreatedAt());
+        bucket.setLastEntryAt(last.getCreatedAt());
+
+        Set<String> changeTypes = new LinkedHashSet<>();
+        Set<String> referenceIds = new LinkedHashSet<>();
+        Set<String> userIds = new LinkedHashSet<>();
+        List<String> entryIds = new ArrayList<>(entries.size());
+        List<Document> changes = new ArrayList<>(entries.size());
+        for (StockLedger entry : entries) {
+            entryIds.add(entry.getId());
+            addIfPresent(changeTypes, entry.getChangeType());
+            addIfPresent(referenceIds, entry.getReferenceId());
+            addIfPresent(userIds, entry.getUserId());
+            Document change = new Document();
+            mongoTemplate.getConverter().write(toArchivedChange(entry), change);
+            changes.add(change);
+        }
+        bucket.setEntryIds(entryIds);
+        bucket.setChangeTypes(new ArrayList<>(changeTypes));
+        bucket.setReferenceIds(new ArrayList<>(referenceIds));
+        bucket.setUserIds(new ArrayList<>(userIds));
+        bucket.setCompressedEntries(compress(new Document("entries", changes)));
+    }
+
+    private List<StockLedger> entriesOf(StockLedgerBucket bucket) {
+        List<StockLedger> entries = new ArrayList<>(bucket.getCount());
+        for (Document change : decompress(bucket.getCompressedEntries()).getList("entries", Document.class)) {
+            entries.add(toStockLedger(bucket, mongoTemplate.getConverter().read(StockLedgerBucket.ArchivedChange.class, change)));
+        }
+        return entries;
+    }
+
+    private Set<String> archivedIds(List<String> ids) {
+        Query query = new Query(Criteria.where("entryIds").in(ids));
+        query.fields().include("entryIds");
+        Set<String> archived = new HashSet<>();
+        for (StockLedgerBucket bucket : mongoTemplate.find(query, StockLedgerBucket.class)) {
+            archived.addAll(bucket.getEntryIds());
+        }
+        return archived;
+    }
+
+    private static List<Criteria> bucketCriteria(LedgerFilter filter) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (filter.getProductId() != null) {
+            criteria.add(Criteria.where("productId").is(filter.getProductId()));
+        }
+        if (filter.getWarehouseId() != null) {
+            criteria.add(Criteria.where("warehouseId").is(filter.getWarehouseId()));
+        }
+        if (filter.getChangeType() != null) {
+            criteria.add(Criteria.where("changeTypes").is(filter.getChangeType()));
+        }
+        if (filter.getUserId() != null) {
+            criteria.add(Criteria.where("userIds").is(filter.getUserId()));
+        }
+        if (filter.getReferenceId() != null) {
+            criteria.add(Criteria.where("referenceIds").is(filter.getReferenceId()));
+        }
+        // Buckets whose [firstEntryAt, lastEntryAt] span overlaps the requested range
+        if (filter.getStartDate() != null) {
+            criteria.add(Criteria.where("lastEntryAt").gte(filter.getStartDate()));
+        }
+        if (filter.getEndDate() != null) {
+            criteria.add(Criteria.where("firstEntryAt").lte(filter.getEndDate()));
+        }
+        return criteria;
+    }
+
+    private static Query where(List<Criteria> criteria) {
+        return criteria.isEmpty() ? new Query() : new Query(new Criteria().andOperator(criteria));
+    }
+
+    private static StockLedger position(LocalDateTime createdAt, String id) {
+        StockLedger position = new StockLedger();
+        position.setCreatedAt(createdAt);
+        position.setId(id);
+        return position;
+    }
+
+    private static void addIfPresent(Set<String> values, String value) {
+        if (value != null) {
+            values.add(value);
+        }
+    }
+
+    private static byte[] compress(Document document) {
+        BasicOutputBuffer bson = new BasicOutputBuffer();
+        CODEC.encode(new BsonBinaryWriter(bson), document, EncoderContext.builder().build());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+            bson.pipe(deflater);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static Document decompress(byte[] compressed) {
+        try (InflaterInputStream inflater = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            ByteBuffer bson = ByteBuffer.wrap(inflater.readAllBytes());
+            return CODEC.decode(new BsonBinaryReader(bson), DecoderContext.builder().build());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String monthKey(StockLedger entry) {
+        return entry.getProductId() + ":" + entry.getWarehouseId() + ":" + entry.getCreatedAt().format(MONTH);
+    }
+
+    private static StockLedgerBucket.ArchivedChange toArchivedChange(StockLedger entry) {
+        return new StockLedgerBucket.ArchivedChange(
+                entry.getId(), entry.getChangeType(),
+                entry.getQuantityBefore(), entry.getQuantityChange(), entry.getQuantityAfter(),
+                entry.getReferenceId(), entry.getReferenceType(),
+                entry.getUserId(), entry.getUserName(),
+                entry.getNotes(), entry.getCreatedAt()
+        );
+    }
+
+    private static StockLedger toStockLedger(StockLedgerBucket bucket, StockLedgerBucket.ArchivedChange change) {
+        StockLedger entry = new StockLedger(
+                bucket.getProductId(), bucket.getProductName(), bucket.getProductSku(),
+                bucket.getWarehouseId(), bucket.getWarehouseName(),
+                change.getChangeType(), change.getQuantityBefore(),
+                change.getQuantityChange(), change.getQuantityAfter(),
+                change.getReferenceId(), change.getReferenceType(),
+                change.getUserId(), change.getUserName()
+        );
+        entry.setId(change.getEntryId());
+        entry.setNotes(change.getNotes());
+        entry.setCreatedAt(change.getCreatedAt());
+        return entry;
+    }
+}
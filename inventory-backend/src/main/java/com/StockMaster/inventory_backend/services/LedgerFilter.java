@@ -0,0 +1,65 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.StockLedger;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.function.Predicate;
+
+/**
+ * Ledger query conditions shared by the hot and archived tiers. Unset fields match everything;
+ * the date range is inclusive at both ends.
+ */
+@Getter
+public class LedgerFilter implements Predicate<StockLedger> {
+
+    private String productId;
+    private String warehouseId;
+    private String changeType;
+    private String userId;
+    private String referenceId;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+
+    public LedgerFilter product(String productId) {
+        this.productId = productId;
+        return this;
+    }
+
+    public LedgerFilter warehouse(String warehouseId) {
+        this.warehouseId = warehouseId;
+        return this;
+    }
+
+    public LedgerFilter changeType(String changeType) {
+        this.changeType = changeType;
+        return this;
+    }
+
+    public LedgerFilter user(String userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public LedgerFilter reference(String referenceId) {
+        this.referenceId = referenceId;
+        return this;
+    }
+
+    public LedgerFilter between(LocalDateTime startDate, LocalDateTime endDate) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        return this;
+    }
+
+    @Override
+    public boolean test(StockLedger entry) {
+        return (productId == null || productId.equals(entry.getProductId()))
+                && (warehouseId == null || warehouseId.equals(entry.getWarehouseId()))
+                && (changeType == null || changeType.equals(entry.getChangeType()))
+                && (userId == null || userId.equals(entry.getUserId()))
+                && (referenceId == null || referenceId.equals(entry.getReferenceId()))
+                && (startDate == null || !entry.getCreatedAt().isBefore(startDate))
+                && (endDate == null || !entry.getCreatedAt().isAfter(endDate));
+    }
+}
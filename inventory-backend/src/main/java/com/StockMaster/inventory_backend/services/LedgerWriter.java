@@ -0,0 +1,707 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.StockLedger;
+import com.StockMaster.inventory_backend.repositories.StockLedgerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Writes stock ledger entries either synchronously (default) or through an in-memory
+ * buffer that a background thread flushes with insertMany. In async mode every entry is
+ * appended to a segment of a local write-ahead log and fsynced before it is buffered; a
+ * segment is deleted once it is full and all its entries are in MongoDB. A segment whose
+ * append or fsync fails is cut back to its last successful fsync and replaced, and the
+ * writers whose entries were in it get an exception, so nothing they were told failed is
+ * written later. Segments left by a crashed run are replayed by the flusher thread before it
+ * takes new entries, retrying with backoff while MongoDB is unreachable, so entries survive a
+ * JVM crash before their flush. Entries that MongoDB keeps rejecting are moved to a
+ * dead-letter file after max-attempts.
+ */
+@Service
+public class LedgerWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerWriter.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String DEAD_LETTER_FILE = "dead-letter.log";
+    private static final long MAX_REPLAY_BACKOFF_MS = 60_000;
+
+    @Autowired
+    private StockLedgerRepository ledgerRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ledger.async.enabled:false}")
+    private boolean asyncEnabled;
+
+    @Value("${ledger.async.buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    @Value("${ledger.async.batch-size:500}")
+    private int batchSize;
+
+    @Value("${ledger.async.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${ledger.async.wal-dir:data/ledger-wal}")
+    private String walDir;
+
+    @Value("${ledger.async.wal-segment-bytes:67108864}")
+    private long segmentBytes;
+
+    @Value("${ledger.async.max-attempts:5}")
+    private int maxAttempts;
+
+    private final BlockingQueue<PendingEntry> buffer = new LinkedBlockingQueue<>();
+    // Entries written but not yet flushed; writers wait here, outside any lock, when it runs out
+    private Semaphore capacity;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private Path directory;
+    // Segments left by the previous run, replayed by the flusher before anything else
+    private final List<Path> leftover = new ArrayList<>();
+    private Thread flusher;
+    private volatile boolean running;
+
+    // Guards appends and segment rotation; held only for the file write, never for an fsync
+    private final ReentrantLock walLock = new ReentrantLock();
+    // Guards fsyncs and segment deletion, so a segment is never closed under a concurrent force
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private volatile Segment active;
+    private long nextSegmentId;
+    private volatile long appended;
+    private long synced;
+
+    private Counter enqueued;
+    private Counter flushed;
+    private Counter flushFailures;
+    private Counter deadLettered;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!asyncEnabled) {
+            return;
+        }
+
+        directory = Paths.get(walDir);
+        Files.createDirectories(directory);
+        findLeftoverSegments();
+
+        capacity = new Semaphore(bufferCapacity);
+        active = openSegment();
+        registerMeters();
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "ledger-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Async ledger writer started (capacity={}, batchSize={}, flushInterval={}ms, wal={})",
+                bufferCapacity, batchSize, flushIntervalMs, directory.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!asyncEnabled || !running) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+
+        syncLock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.closeQuietly();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public boolean isAsync() {
+        return asyncEnabled;
+    }
+
+    /**
+     * Persist ledger entries. In async mode they get their ids here and are durable in the
+     * write-ahead log when this returns, but become visible to queries only after the next flush.
+     * When the write-ahead log can't take them this throws and none of them will be written.
+     * Entries that come with ids, chosen with their stock write, may be written again by a
+     * recovery; an id that is already stored is skipped in both modes.
+     */
+    public List<StockLedger> write(List<StockLedger> entries) {
+        if (!asyncEnabled) {
+            if (entries.stream().allMatch(entry -> entry.getId() != null)) {
+                insertIgnoringDuplicates(entries);
+                return entries;
+            }
+            return ledgerRepository.insert(entries);
+        }
+
+        for (StockLedger entry : entries) {
+            if (entry.getId() == null) {
+                entry.setId(new ObjectId().toHexString());
+            }
+        }
+        byte[] lines = toLines(entries);
+
+        // Blocks while the buffer is full, which pushes back on the request path
+        int permits = Math.min(entries.size(), bufferCapacity);
+        try {
+            capacity.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while buffering ledger entries", e);
+        }
+
+        Segment segment;
+        long end;
+        long position;
+        walLock.lock();
+        try {
+            if (active.failed) {
+                rotate();
+                if (active.failed) {
+                    throw new RuntimeException("Ledger write-ahead log is unavailable");
+                }
+            }
+            segment = active;
+            segment.append(lines);
+            end = segment.size;
+            // Keeps the segment until its entries are flushed or given up on below
+            segment.outstanding.addAndGet(entries.size());
+            position = appended += lines.length;
+            if (segment.size >= segmentBytes) {
+                rotate();
+            }
+        } catch (RuntimeException e) {
+            capacity.release(permits);
+            if (active.failed) {
+                discardUnsynced();
+            }
+            throw e;
+        } finally {
+            walLock.unlock();
+        }
+
+        // Only entries that reached the disk are queued, the flusher never writes the others
+        try {
+            syncTo(position);
+            if (!segment.isDurable(end)) {
+                throw new RuntimeException("Failed to sync ledger write-ahead log");
+            }
+        } catch (RuntimeException e) {
+            segment.outstanding.addAndGet(-entries.size());
+            capacity.release(permits);
+            throw e;
+        }
+
+        pending.addAndGet(entries.size());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < entries.size(); i++) {
+            buffer.add(new PendingEntry(entries.get(i), segment, now, i < permits));
+        }
+        enqueued.increment(entries.size());
+        return entries;
+    }
+
+    /**
+     * Block until everything buffered so far has been written to MongoDB or dead-lettered
+     */
+    public void flush() {
+        if (!asyncEnabled) {
+            return;
+        }
+        while (pending.get() > 0) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void registerMeters() {
+        enqueued = meterRegistry.counter("ledger.writer.enqueued");
+        flushed = meterRegistry.counter("ledger.writer.flushed");
+        flushFailures = meterRegistry.counter("ledger.writer.flush.failures");
+        deadLettered = meterRegistry.counter("ledger.writer.dead.lettered");
+        flushTimer = meterRegistry.timer("ledger.writer.flush");
+        meterRegistry.gauge("ledger.writer.buffer.depth", pending);
+        meterRegistry.gaugeCollectionSize("ledger.writer.wal.segments", Tags.empty(), segments);
+        TimeGauge.builder("ledger.writer.flush.lag", buffer, TimeUnit.MILLISECONDS, queue -> {
+            PendingEntry oldest = queue.peek();
+            return oldest != null ? System.currentTimeMillis() - oldest.enqueuedAt : 0;
+        }).register(meterRegistry);
+    }
+
+    private void flushLoop() {
+        replayLeftoverSegments();
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    PendingEntry first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        deleteDrainedSegments();
+                        continue;
+                    }
+                    batch.add(first);
+                }
+                buffer.drainTo(batch, batchSize - batch.size());
+
+                flushTimer.record(() -> insertIgnoringDuplicates(entriesOf(batch)));
+                batch.forEach(this::completed);
+                flushed.increment(batch.size());
+                batch.clear();
+                deleteDrainedSegments();
+            } catch (InterruptedException e) {
+                // Shutdown requested, keep looping until the buffer is drained
+                running = false;
+            } catch (RuntimeException e) {
+                flushFailures.increment();
+                log.error("Ledger flush of {} entries failed: {}", batch.size(), e.getMessage());
+                if (!isTransient(e)) {
+                    // Find the entries MongoDB rejects, the rest go through on their own
+                    batch.removeIf(this::insertAlone);
+                }
+                if (!batch.isEmpty()) {
+                    // Keep the batch and retry, the entries are still in the write-ahead log
+                    sleepQuietly(Math.max(flushIntervalMs, 1000));
+                }
+            }
+        }
+    }
+
+    /**
+     * Insert a single entry of a failed batch, dead-lettering it once it has failed max-attempts
+     * times. Returns whether the entry is done with.
+     */
+    private boolean insertAlone(PendingEntry pending) {
+        try {
+            insertIgnoringDuplicates(List.of(pending.entry));
+            flushed.increment();
+        } catch (RuntimeException e) {
+            if (isTransient(e) || ++pending.attempts < maxAttempts || !deadLetter(pending.entry, e)) {
+                return false;
+            }
+        }
+        completed(pending);
+        return true;
+    }
+
+    private void completed(PendingEntry entry) {
+        entry.segment.outstanding.decrementAndGet();
+        if (entry.holdsPermit) {
+            capacity.release();
+        }
+        pending.decrementAndGet();
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException || e instanceof DataAccessResourceFailureException;
+    }
+
+    /**
+     * Unordered insertMany that treats already-present ids as written, so retries and
+     * write-ahead replays are idempotent
+     */
+    private void insertIgnoringDuplicates(List<StockLedger> entries) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StockLedger.class)
+                    .insert(entries)
+                    .execute();
+        } catch (BulkOperationException e) {
+            boolean onlyDuplicates = e.getErrors().stream().allMatch(error -> error.getCode() == 11000);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+        } catch (DuplicateKeyException e) {
+            // Already written by an earlier attempt
+        }
+    }
+
+    private boolean deadLetter(StockLedger entry, RuntimeException cause) {
+        try (FileChannel file = FileChannel.open(directory.resolve(DEAD_LETTER_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            write(file, toLines(List.of(entry)));
+            file.force(false);
+        } catch (IOException e) {
+            log.error("Could not dead-letter ledger entry {}: {}", entry.getId(), e.getMessage());
+            return false;
+        }
+        deadLettered.increment();
+        log.error("Dead-lettered ledger entry {} after {} attempts: {}", entry.getId(), maxAttempts, cause.getMessage());
+        return true;
+    }
+
+    /**
+     * Group commit: one fsync covers every append up to the position reached when it starts,
+     * so concurrent writers share it instead of queueing for their own. A failed segment is
+     * skipped, its writers find their entries are not durable by its forced size.
+     */
+    private void syncTo(long position) {
+        IOException failure;
+        syncLock.lock();
+        try {
+            if (synced >= position) {
+                return;
+            }
+            long target = appended;
+            for (Segment segment : segments) {
+                segment.force();
+            }
+            synced = target;
+            return;
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            syncLock.unlock();
+        }
+        discardUnsynced();
+        throw new RuntimeException("Failed to sync ledger write-ahead log", failure);
+    }
+
+    /**
+     * Cut failed segments back to their last successful fsync, so entries whose writers get an
+     * exception are not replayed after a restart, and move appends on to a fresh segment. Whether
+     * the page cache still holds the rest after a failed fsync is unknown, so it is never retried.
+     */
+    private void discardUnsynced() {
+        walLock.lock();
+        syncLock.lock();
+        try {
+            for (Segment segment : segments) {
+                if (segment.failed && !segment.discarded) {
+                    // A failed append may have left part of its bytes past size
+                    segment.discarded = true;
+                    try {
+                        segment.channel.truncate(segment.forced);
+                        segment.size = segment.forced;
+                    } catch (IOException e) {
+                        log.error("Could not truncate ledger write-ahead segment {}, entries that failed to write "
+                                + "may be replayed on restart: {}", segment.path.getFileName(), e.getMessage());
+                    }
+                }
+            }
+            if (active.failed) {
+                rotate();
+            }
+        } finally {
+            syncLock.unlock();
+            walLock.unlock();
+        }
+    }
+
+    /**
+     * Seal the active segment if it is drained, then delete sealed segments whose entries
+     * are all in MongoDB
+     */
+    private void deleteDrainedSegments() {
+        if (active.size > 0 && active.outstanding.get() == 0 && walLock.tryLock()) {
+            try {
+                if (active.outstanding.get() == 0) {
+                    rotate();
+                }
+            } finally {
+                walLock.unlock();
+            }
+        }
+
+        syncLock.lock();
+        try {
+            for (Segment segment : segments) {
+                if (segment.sealed && segment.outstanding.get() == 0) {
+                    segment.closeQuietly();
+                    Files.deleteIfExists(segment.path);
+                    segments.remove(segment);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete ledger write-ahead segment: {}", e.getMessage());
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Caller holds walLock. On failure appends carry on in the current segment.
+    private void rotate() {
+        Segment next;
+        try {
+            next = openSegment();
+        } catch (IOException e) {
+            log.warn("Could not rotate ledger write-ahead log: {}", e.getMessage());
+            return;
+        }
+        active.sealed = true;
+        active = next;
+    }
+
+    private Segment openSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, nextSegmentId++, SEGMENT_SUFFIX));
+        Segment segment = new Segment(path, FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Note the segments left by the previous run for the flusher to replay; new segments are
+     * numbered after the highest one found
+     */
+    private void findLeftoverSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .forEach(leftover::add);
+        }
+        for (Path path : leftover) {
+            String name = path.getFileName().toString();
+            long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            nextSegmentId = Math.max(nextSegmentId, id + 1);
+        }
+    }
+
+    /**
+     * Replay the leftover segments in order, deleting each once it is in MongoDB. A failure
+     * leaves the segment in place and retries it, backing off up to a minute; replays are
+     * idempotent, so entries written by an earlier attempt are skipped.
+     */
+    private void replayLeftoverSegments() {
+        long backoff = Math.max(flushIntervalMs, 1000);
+        long replayed = 0;
+        int segmentsReplayed = 0;
+        while (running && !leftover.isEmpty()) {
+            Path path = leftover.get(0);
+            try {
+                replayed += replaySegment(path);
+                Files.delete(path);
+                leftover.remove(0);
+                segmentsReplayed++;
+                backoff = Math.max(flushIntervalMs, 1000);
+            } catch (IOException | RuntimeException e) {
+                flushFailures.increment();
+                log.error("Replay of ledger write-ahead segment {} failed, retrying in {} ms: {}",
+                        path.getFileName(), backoff, e.getMessage());
+                sleepQuietly(backoff);
+                backoff = Math.min(backoff * 2, MAX_REPLAY_BACKOFF_MS);
+            }
+        }
+        if (replayed > 0) {
+            log.info("Replayed {} ledger entries from {} write-ahead segments", replayed, segmentsReplayed);
+        }
+    }
+
+    /**
+     * Stream one segment into MongoDB in batches
+     */
+    private long replaySegment(Path path) throws IOException {
+        long replayed = 0;
+        List<StockLedger> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(mongoTemplate.getConverter().read(StockLedger.class, Document.parse(line)));
+                } catch (RuntimeException e) {
+                    // A torn last line from a crash mid-append, its request never returned
+                    log.warn("Skipping unreadable ledger write-ahead entry in {}: {}", path.getFileName(), e.getMessage());
+                }
+                if (batch.size() == batchSize) {
+                    replayed += replayBatch(batch);
+                }
+            }
+        }
+        replayed += replayBatch(batch);
+        return replayed;
+    }
+
+    private int replayBatch(List<StockLedger> batch) {
+        int size = batch.size();
+        try {
+            insertIgnoringDuplicates(batch);
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            for (StockLedger entry : batch) {
+                replayAlone(entry);
+            }
+        }
+        batch.clear();
+        return size;
+    }
+
+    private void replayAlone(StockLedger entry) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                insertIgnoringDuplicates(List.of(entry));
+                return;
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    if (!deadLetter(entry, e)) {
+                        throw e;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private byte[] toLines(List<StockLedger> entries) {
+        StringBuilder lines = new StringBuilder();
+        for (StockLedger entry : entries) {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(entry, document);
+            lines.append(document.toJson()).append('\n');
+        }
+        return lines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<StockLedger> entriesOf(List<PendingEntry> batch) {
+        List<StockLedger> entries = new ArrayList<>(batch.size());
+        for (PendingEntry pending : batch) {
+            entries.add(pending.entry);
+        }
+        return entries;
+    }
+
+    private static void write(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        // Entries appended here that are not yet in MongoDB
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile long size;
+        private volatile boolean sealed;
+        // Set when an append or fsync fails; nothing is appended or forced here afterwards
+        private volatile boolean failed;
+        private volatile long forced;
+        // Cut back to forced already; guarded by walLock and syncLock
+        private boolean discarded;
+
+        Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        // Caller holds walLock
+        void append(byte[] bytes) {
+            try {
+                write(channel, bytes);
+            } catch (IOException e) {
+                failed = true;
+                throw new RuntimeException("Failed to append ledger entries to write-ahead log", e);
+            }
+            size += bytes.length;
+        }
+
+        // Caller holds syncLock
+        void force() throws IOException {
+            long target = size;
+            if (failed || forced >= target) {
+                return;
+            }
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+            forced = target;
+        }
+
+        boolean isDurable(long end) {
+            return end <= forced;
+        }
+
+        void closeQuietly() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing left to lose, its entries are flushed or the process is exiting
+            }
+        }
+    }
+
+    private static class PendingEntry {
+        private final StockLedger entry;
+        private final Segment segment;
+        private final long enqueuedAt;
+        private final boolean holdsPermit;
+        private int attempts;
+
+        PendingEntry(StockLedger entry, Segment segment, long enqueuedAt, boolean holdsPermit) {
+            this.entry = entry;
+            this.segment = segment;
+            this.enqueuedAt = enqueuedAt;
+            this.holdsPermit = holdsPermit;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.dto.PageDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ReflectionUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Offset pagination shared by the list endpoints: page size capped at MAX_PAGE_SIZE,
+ * sorting restricted to indexed fields, and an optional fields= projection that is
+ * pushed down to MongoDB and applied to the returned JSON. Every sort ends on _id so
+ * rows with equal sort keys keep one order across pages; the sortable fields are
+ * indexed together with _id for that.
+ */
+@Service
+public class PagedQueryService {
+
+    public static final int MAX_PAGE_SIZE = 200;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    /**
+     * Load one page of {@code entityType} and convert it with {@code converter}.
+     *
+     * @param sortable    fields backed by an index, the only ones accepted in sort=
+     * @param fields      comma separated DTO field names, null or blank for all fields
+     * @param dtoType     DTO class whose field names fields= is validated against
+     * @param sources     DTO fields that are derived from other entity fields (e.g. productName
+     *                    from productId), plus "*" for fields the converter always needs
+     * @throws InvalidPageRequestException for an unsortable field or an unknown fields= entry
+     */
+    public <E, D> PageDTO<Object> page(Class<E> entityType, Pageable pageable, Set<String> sortable,
+                                       String fields, Class<D> dtoType, Map<String, List<String>> sources,
+                                       Function<List<E>, List<D>> converter) {
+        for (Sort.Order order : pageable.getSort()) {
+            if (!sortable.contains(order.getProperty())) {
+                throw new InvalidPageRequestException("Cannot sort by " + order.getProperty() + ", sortable fields: " + sortable);
+            }
+        }
+        Pageable bounded = PageRequest.of(pageable.getPageNumber(), Math.min(pageable.getPageSize(), MAX_PAGE_SIZE),
+                withTiebreaker(pageable.getSort()));
+
+        Set<String> requested = parseFields(fields, dtoType);
+
+        Query query = new Query().with(bounded);
+        if (requested != null) {
+            Set<String> projection = new LinkedHashSet<>(sources.getOrDefault("*", List.of()));
+            for (String field : requested) {
+                projection.addAll(sources.getOrDefault(field, List.of(field)));
+            }
+            projection.forEach(field -> query.fields().include(field));
+        }
+
+        List<E> entities = mongoTemplate.find(query, entityType);
+        long total = mongoTemplate.count(new Query(), entityType);
+        List<D> dtos = converter.apply(entities);
+
+        List<Object> content = new ArrayList<>(dtos.size());
+        for (D dto : dtos) {
+            content.add(requested == null ? dto : select(dto, requested));
+        }
+
+        int totalPages = (int) ((total + bounded.getPageSize() - 1) / bounded.getPageSize());
+        return new PageDTO<>(content, bounded.getPageNumber(), bounded.getPageSize(), total, totalPages);
+    }
+
+    /**
+     * Appends _id in the direction of the last sort key, so the compound {field, _id}
+     * indexes serve both ascending and descending pages.
+     */
+    private static Sort withTiebreaker(Sort sort) {
+        Sort.Direction direction = Sort.Direction.ASC;
+        for (Sort.Order order : sort) {
+            if (order.getProperty().equals("id")) {
+                return sort;
+            }
+            direction = order.getDirection();
+        }
+        return sort.and(Sort.by(direction, "id"));
+    }
+
+    private static Set<String> parseFields(String fields, Class<?> dtoType) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        requested.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (ReflectionUtils.findField(dtoType, name) == null) {
+                throw new InvalidPageRequestException("Unknown field: " + name);
+            }
+            requested.add(name);
+        }
+        return requested;
+    }
+
+    private Map<String, Object> select(Object dto, Set<String> requested) {
+        Map<?, ?> all = jsonMapper.convertValue(dto, Map.class);
+        Map<String, Object> selected = new LinkedHashMap<>();
+        for (String field : requested) {
+            selected.put(field, all.get(field));
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,479 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.dto.ProductDTO;
+import com.StockMaster.inventory_backend.dto.ProductImportResultDTO;
+import com.StockMaster.inventory_backend.metrics.Timed;
+import com.StockMaster.inventory_backend.models.Product;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Bulk product import from a streamed CSV or NDJSON upload. Rows are parsed and validated
+ * one at a time and written in chunks: one $in query per chunk finds the SKUs that already
+ * exist and one unordered bulk write inserts (or, with upsert, updates) the rest, so memory
+ * stays bounded by the chunk size whatever the file size. Rows that fail are reported by
+ * line number and the rest of the file is still imported.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "sku", "category", "unit");
+
+    public enum Format { CSV, NDJSON }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private DashboardRollupService dashboardRollupService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Value("${product-import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${product-import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    /**
+     * Import every row of the upload. With upsert, rows whose SKU already exists update that
+     * product (initial stock and creation time are kept); without it they are reported as errors.
+     */
+    @Timed("product.import")
+    public ProductImportResultDTO importProducts(InputStream in, Format format, boolean upsert) {
+        long start = System.currentTimeMillis();
+        ProductImportResultDTO result = new ProductImportResultDTO();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            RowSource rows = format == Format.CSV ? new CsvRows(reader) : new NdjsonRows(reader);
+            Row row;
+            while ((row = rows.next()) != null) {
+                result.setReceived(result.getReceived() + 1);
+                if (row.error != null) {
+                    fail(result, row, row.error);
+                    continue;
+                }
+                String invalid = validate(row.product);
+                if (invalid != null) {
+                    fail(result, row, invalid);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, upsert, result);
+                    chunk.clear();
+                }
+            }
+            writeChunk(chunk, upsert, result);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read product import", e);
+        }
+
+        result.setElapsedMs(System.currentTimeMillis() - start);
+        log.info("Product import: {} rows, {} created, {} updated, {} failed in {}ms",
+                result.getReceived(), result.getCreated(), result.getUpdated(), result.getFailed(), result.getElapsedMs());
+        return result;
+    }
+
+    private void writeChunk(List<Row> chunk, boolean upsert, ProductImportResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        // One query for the whole chunk instead of an existsBySku per row
+        Set<String> skus = new HashSet<>();
+        for (Row row : chunk) {
+            skus.add(row.product.getSku());
+        }
+        Query existingQuery = new Query(Criteria.where("sku").in(skus));
+        if (!upsert) {
+            existingQuery.fields().include("sku");
+        }
+        Map<String, Product> existing = new HashMap<>();
+        for (Product product : mongoTemplate.find(existingQuery, Product.class)) {
+            existing.put(product.getSku(), product);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        // Bulk write errors report the index of the operation, this maps it back to its row
+        List<Write> writes = new ArrayList<>(chunk.size());
+        Set<String> seen = new HashSet<>();
+
+        for (Row row : chunk) {
+            ProductDTO dto = row.product;
+            if (!seen.add(dto.getSku())) {
+                fail(result, row, "SKU " + dto.getSku() + " appears more than once in the file");
+                continue;
+            }
+
+            Product previous = existing.get(dto.getSku());
+            if (previous == null) {
+                Product product = new Product();
+                product.setId(new ObjectId().toHexString());
+                product.setName(dto.getName());
+                product.setSku(dto.getSku());
+                product.setCategory(dto.getCategory());
+                product.setUnit(dto.getUnit());
+                product.setReorderLevel(dto.getReorderLevel());
+                product.setInitialStock(dto.getInitialStock() != null ? dto.getInitialStock() : 0);
+                product.setActive(true);
+                product.setCreatedAt(now);
+                product.setUpdatedAt(now);
+                bulk.insert(product);
+                writes.add(new Write(row, product, null));
+            } else if (!upsert) {
+                fail(result, row, "Product with SKU " + dto.getSku() + " already exists");
+            } else {
+                Product product = copy(previous);
+                product.setName(dto.getName());
+                product.setCategory(dto.getCategory());
+                product.setUnit(dto.getUnit());
+                product.setReorderLevel(dto.getReorderLevel());
+                product.setActive(dto.getActive());
+                product.setUpdatedAt(now);
+                bulk.updateOne(new Query(Criteria.where("_id").is(product.getId())), new Update()
+                        .set("name", product.getName())
+                        .set("category", product.getCategory())
+                        .set("unit", product.getUnit())
+                        .set("reorderLevel", product.getReorderLevel())
+                        .set("active", product.isActive())
+                        .set("updatedAt", now));
+                writes.add(new Write(row, product, previous));
+            }
+        }
+
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> failedWrites = new HashSet<>();
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failedWrites.add(error.getIndex());
+                Row row = writes.get(error.getIndex()).row;
+                // A duplicate here is a SKU created since the lookup, or repeated in an earlier chunk
+                fail(result, row, error.getCode() == DUPLICATE_KEY
+                        ? "Product with SKU " + row.product.getSku() + " already exists"
+                        : error.getMessage());
+            }
+        }
+
+        List<Product> created = new ArrayList<>();
+        for (int i = 0; i < writes.size(); i++) {
+            if (failedWrites.contains(i)) {
+                continue;
+            }
+            Write write = writes.get(i);
+            if (write.previous == null) {
+                created.add(write.product);
+                result.setCreated(result.getCreated() + 1);
+            } else {
+                // Evicted rather than put, so a large import doesn't flush the cache's working set
+                referenceDataCache.evictProduct(write.product.getId());
+                if (affectsRollups(write.previous, write.product)) {
+                    dashboardRollupService.recordProductChange(write.product.getId(),
+                            write.previous.getCategory(), write.previous.isActive(), write.product);
+                }
+                result.setUpdated(result.getUpdated() + 1);
+            }
+            productSearchService.put(productService.convertToDTO(write.product));
+        }
+        dashboardRollupService.recordProductsCreated(created);
+    }
+
+    private String validate(ProductDTO product) {
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(product);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        List<String> messages = new ArrayList<>(violations.size());
+        for (ConstraintViolation<ProductDTO> violation : violations) {
+            messages.add(violation.getMessage());
+        }
+        messages.sort(null);
+        return String.join("; ", messages);
+    }
+
+    private void fail(ProductImportResultDTO result, Row row, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            String sku = row.product != null ? row.product.getSku() : null;
+            result.getErrors().add(new ProductImportResultDTO.RowError(row.line, sku, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private static boolean affectsRollups(Product before, Product after) {
+        // Category counts and low stock rows depend on these, unit does not
+        return !Objects.equals(before.getCategory(), after.getCategory())
+                || before.isActive() != after.isActive()
+                || !Objects.equals(before.getReorderLevel(), after.getReorderLevel())
+                || !Objects.equals(before.getName(), after.getName());
+    }
+
+    private static Product copy(Product source) {
+        Product product = new Product();
+        product.setId(source.getId());
+        product.setName(source.getName());
+        product.setSku(source.getSku());
+        product.setCategory(source.getCategory());
+        product.setUnit(source.getUnit());
+        product.setReorderLevel(source.getReorderLevel());
+        product.setInitialStock(source.getInitialStock());
+        product.setCreatedAt(source.getCreatedAt());
+        product.setUpdatedAt(source.getUpdatedAt());
+        product.setCreatedBy(source.getCreatedBy());
+        product.setActive(source.isActive());
+        return product;
+    }
+
+    private static class Row {
+        private final long line;
+        private final ProductDTO product;
+        private final String error;
+
+        Row(long line, ProductDTO product, String error) {
+            this.line = line;
+            this.product = product;
+            this.error = error;
+        }
+    }
+
+    private static class Write {
+        private final Row row;
+        private final Product product;
+        private final Product previous;
+
+        Write(Row row, Product product, Product previous) {
+            this.row = row;
+            this.product = product;
+            this.previous = previous;
+        }
+    }
+
+    private interface RowSource {
+
+        /**
+         * The next row, parsed or carrying its parse error, or null at the end of the input
+         */
+        Row next() throws IOException;
+    }
+
+    /**
+     * One JSON object per line, with the same fields as POST /api/products
+     */
+    private class NdjsonRows implements RowSource {
+        private final BufferedReader reader;
+        private long lineNumber;
+
+        NdjsonRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    ProductDTO product = jsonMapper.readValue(line, ProductDTO.class);
+                    if (product == null) {
+                        return new Row(lineNumber, null, "Expected a JSON object");
+                    }
+                    return new Row(lineNumber, product, null);
+                } catch (JacksonException e) {
+                    return new Row(lineNumber, null, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header row naming the columns: name, sku, category and unit are
+     * required, reorderLevel, initialStock and active are optional, anything else is ignored.
+     * Quoted fields may contain commas, doubled quotes and line breaks.
+     */
+    private static class CsvRows implements RowSource {
+        private final BufferedReader reader;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private long lineNumber;
+
+        CsvRows(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            List<String> header = readRecord();
+            if (header == null) {
+                throw new RuntimeException("CSV import is empty, expected a header row");
+            }
+            for (int i = 0; i < header.size(); i++) {
+                String name = header.get(i).trim();
+                if (i == 0 && name.startsWith("\uFEFF")) {
+                    name = name.substring(1);
+                }
+                columns.put(name.toLowerCase(Locale.ROOT), i);
+            }
+            for (String required : REQUIRED_COLUMNS) {
+                if (!columns.containsKey(required.toLowerCase(Locale.ROOT))) {
+                    throw new RuntimeException("CSV header is missing the " + required + " column");
+                }
+            }
+        }
+
+        @Override
+        public Row next() throws IOException {
+            List<String> record;
+            long line;
+            do {
+                line = lineNumber + 1;
+                record = readRecord();
+                if (record == null) {
+                    return null;
+                }
+            } while (record.size() == 1 && record.get(0).isBlank());
+
+            ProductDTO product = new ProductDTO();
+            product.setName(text(record, "name"));
+            product.setSku(text(record, "sku"));
+            product.setCategory(text(record, "category"));
+            product.setUnit(text(record, "unit"));
+            try {
+                product.setReorderLevel(integer(record, "reorderLevel"));
+                product.setInitialStock(integer(record, "initialStock"));
+            } catch (NumberFormatException e) {
+                return new Row(line, product, e.getMessage());
+            }
+            String active = text(record, "active");
+            if (active != null) {
+                product.setActive(Boolean.parseBoolean(active));
+            }
+            return new Row(line, product, null);
+        }
+
+        private String text(List<String> record, String column) {
+            Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+            if (index == null || index >= record.size()) {
+                return null;
+            }
+            String value = record.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private Integer integer(List<String> record, String column) {
+            String value = text(record, column);
+            if (value == null) {
+                return null;
+            }
+            try {
+                return Integer.valueOf(value);
+            } catch (NumberFormatException e) {
+                throw new NumberFormatException(column + " must be a whole number, got '" + value + "'");
+            }
+        }
+
+        private List<String> readRecord() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // A quoted field spans lines, keep the line break and carry on
+                    String nextLine = reader.readLine();
+                    if (nextLine == null) {
+                        break;
+                    }
+                    lineNumber++;
+                    field.append('\n');
+                    line = nextLine;
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,588 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.dto.ProductDTO;
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.repositories.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Product search over an in-memory index: a sorted token map for prefix (typeahead)
+ * matches and a trigram index for substring matches, ranked by where the match falls.
+ * The index holds the product DTOs, so a search never touches MongoDB. ProductService
+ * keeps it in sync on every write and CacheCoherenceService refreshes products changed
+ * on other instances; the periodic rebuild is a backstop. Writes that arrive while a
+ * rebuild is streaming are logged and replayed onto the fresh index before it is swapped
+ * in, so they win over the older copies the cursor returned. While the index is disabled
+ * or still loading, searches fall back to the MongoDB text index on name, SKU and category.
+ */
+@Service
+public class ProductSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private static final int GRAM = 3;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${product-search.in-memory.enabled:true}")
+    private boolean enabled;
+
+    private volatile Index index;
+
+    // Serializes rebuilds; a rebuild requested while one runs starts after it
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Guards the swap and changeLog, which is non-null while a rebuild is streaming
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private List<Consumer<Index>> changeLog;
+
+    /**
+     * Build a fresh index from a cursor over the products collection and swap it in
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${product-search.rebuild-cron:0 */15 * * * *}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            Index fresh = new Index();
+            writeLock.lock();
+            try {
+                changeLog = new ArrayList<>();
+            } finally {
+                writeLock.unlock();
+            }
+
+            boolean streamed = false;
+            int replayed = 0;
+            try (Stream<Product> products = productRepository.streamAllBy()) {
+                products.forEach(product -> fresh.put(toDTO(product)));
+                streamed = true;
+            } finally {
+                writeLock.lock();
+                try {
+                    if (streamed) {
+                        replayed = changeLog.size();
+                        changeLog.forEach(change -> change.accept(fresh));
+                        index = fresh;
+                    }
+                } finally {
+                    changeLog = null;
+                    writeLock.unlock();
+                }
+            }
+            log.info("Product search index built with {} products in {}ms, {} concurrent writes replayed",
+                    fresh.size(), System.currentTimeMillis() - start, replayed);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public void put(ProductDTO product) {
+        apply(current -> current.put(product));
+    }
+
+    public void remove(String productId) {
+        apply(current -> current.remove(productId));
+    }
+
+    private void apply(Consumer<Index> change) {
+        writeLock.lock();
+        try {
+            Index current = index;
+            if (current != null) {
+                change.accept(current);
+            }
+            if (changeLog != null) {
+                changeLog.add(change);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Index a product as a change made elsewhere left it, or drop it when it is gone
+     */
+    public void refresh(String productId, Product product) {
+        if (!enabled) {
+            return;
+        }
+        if (product != null) {
+            put(toDTO(product));
+        } else {
+            remove(productId);
+        }
+    }
+
+    /**
+     * Products whose name, SKU or category match every word of the query, best first.
+     * A word matches the start of any token, or anywhere once it is three characters long.
+     *
+     * @param limit maximum results, 0 for all
+     */
+    public List<ProductDTO> search(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return new ArrayList<>();
+        }
+        Index current = index;
+        if (current == null) {
+            return textSearch(query, limit);
+        }
+        return current.search(query.trim().toLowerCase(), limit);
+    }
+
+    private List<ProductDTO> textSearch(String query, int limit) {
+        TextQuery textQuery = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(query));
+        textQuery.sortByScore();
+        if (limit > 0) {
+            textQuery.limit(limit);
+        }
+        return mongoTemplate.find(textQuery, Product.class).stream()
+                .map(ProductSearchService::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    private static ProductDTO toDTO(Product product) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(product.getId());
+        dto.setName(product.getName());
+        dto.setSku(product.getSku());
+        dto.setCategory(product.getCategory());
+        dto.setUnit(product.getUnit());
+        dto.setReorderLevel(product.getReorderLevel());
+        dto.setInitialStock(product.getInitialStock());
+        dto.setActive(product.isActive());
+        return dto;
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Entries live in slots addressed by an int ordinal so postings can be plain sorted
+     * int arrays and query-time set algebra can use BitSets. Removed slots stay empty
+     * until the next rebuild.
+     *
+     * Results are ordered by tier (SKU equals the query, name equals it, name starts with
+     * it, SKU starts with it, every word starts a word of the name, SKU or category, anything else that matched),
+     * then active before inactive, then by name. The sorted name map serves the first
+     * three tiers in order, so most typeahead queries stop there without scoring the
+     * full match set.
+     */
+    private static class Index {
+
+        private static final int TIER_SKU = 5;
+        private static final int TIER_NAME = 4;
+        private static final int TIER_NAME_PREFIX = 3;
+        private static final int TIER_SKU_PREFIX = 2;
+        private static final int TIER_WORDS = 1;
+        private static final int TIER_OTHER = 0;
+
+        private static final Comparator<Ranked> ORDER = Index::compare;
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final List<Entry> slots = new ArrayList<>();
+        private final Map<String, Integer> slotById = new HashMap<>();
+        private final Map<String, Postings> skus = new HashMap<>();
+        private final TreeMap<String, Postings> names = new TreeMap<>();
+        private final TreeMap<String, Postings> tokens = new TreeMap<>();
+        private final Map<String, Postings> grams = new HashMap<>();
+
+        int size() {
+            return slotById.size();
+        }
+
+        void put(ProductDTO product) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(product.getId());
+                Entry entry = new Entry(product);
+                int slot = slots.size();
+                slots.add(entry);
+                slotById.put(product.getId(), slot);
+                skus.computeIfAbsent(entry.sku, key -> new Postings()).add(slot);
+                names.computeIfAbsent(entry.name, key -> new Postings()).add(slot);
+                for (String token : entry.tokens) {
+                    tokens.computeIfAbsent(token, key -> new Postings()).add(slot);
+                }
+                for (String gram : grams(entry.text)) {
+                    grams.computeIfAbsent(gram, key -> new Postings()).add(slot);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String productId) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(productId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeLocked(String productId) {
+            Integer slot = slotById.remove(productId);
+            if (slot == null) {
+                return;
+            }
+            Entry entry = slots.set(slot, null);
+            removePosting(skus, entry.sku, slot);
+            removePosting(names, entry.name, slot);
+            for (String token : entry.tokens) {
+                removePosting(tokens, token, slot);
+            }
+            for (String gram : grams(entry.text)) {
+                removePosting(grams, gram, slot);
+            }
+        }
+
+        private static void removePosting(Map<String, Postings> map, String key, int slot) {
+            Postings postings = map.get(key);
+            if (postings != null && postings.remove(slot) && postings.isEmpty()) {
+                map.remove(key);
+            }
+        }
+
+        List<ProductDTO> search(String query, int limit) {
+            List<String> words = tokenize(query);
+            if (words.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            lock.readLock().lock();
+            try {
+                List<Ranked> ranked = new ArrayList<>();
+                BitSet taken = new BitSet(slots.size());
+                if (limit > 0 && topTiers(query, limit, ranked, taken)) {
+                    return products(ranked);
+                }
+
+                // Products where every word starts a token, and the wider set where each word may also be a substring
+                BitSet prefixed = null;
+                BitSet matches = null;
+                for (String word : words) {
+                    BitSet wordPrefixed = prefixMatch(word);
+                    BitSet wordMatches = (BitSet) wordPrefixed.clone();
+                    if (word.length() >= GRAM) {
+                        wordMatches.or(substringMatch(word, wordPrefixed));
+                    }
+                    prefixed = and(prefixed, wordPrefixed);
+                    matches = and(matches, wordMatches);
+                    if (matches.isEmpty()) {
+                        break;
+                    }
+                }
+                matches.andNot(taken);
+                ranked.addAll(rest(matches, prefixed, query, limit > 0 ? limit - ranked.size() : matches.cardinality()));
+                return products(ranked);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Fill the SKU and name tiers straight from the maps. True when they alone reach the limit.
+         */
+        private boolean topTiers(String query, int limit, List<Ranked> ranked, BitSet taken) {
+            Postings sku = skus.get(query);
+            if (sku != null) {
+                for (int i = 0; i < sku.size(); i++) {
+                    add(ranked, taken, sku.get(i), TIER_SKU);
+                }
+            }
+
+            // Walked in name order. Inactive products are held back, every active one in the tier ranks first
+            List<Integer> inactive = new ArrayList<>();
+            for (Map.Entry<String, Postings> name : names.subMap(query, true, query + Character.MAX_VALUE, false).entrySet()) {
+                boolean exact = name.getKey().equals(query);
+                if (!exact && ranked.size() >= limit) {
+                    break;
+                }
+                Postings postings = name.getValue();
+                for (int i = 0; i < postings.size(); i++) {
+                    int slot = postings.get(i);
+                    if (taken.get(slot)) {
+                        continue;
+                    }
+                    if (slots.get(slot).active) {
+                        add(ranked, taken, slot, exact ? TIER_NAME : TIER_NAME_PREFIX);
+                    } else if (exact || inactive.size() < limit) {
+                        inactive.add(slot);
+                    }
+                }
+                if (exact) {
+                    // Exact-name matches outrank every prefix match, inactive or not
+                    for (int slot : inactive) {
+                        add(ranked, taken, slot, TIER_NAME);
+                    }
+                    inactive.clear();
+                }
+            }
+            if (ranked.size() >= limit) {
+                ranked.subList(limit, ranked.size()).clear();
+                return true;
+            }
+            for (int slot : inactive) {
+                if (ranked.size() == limit) {
+                    return true;
+                }
+                add(ranked, taken, slot, TIER_NAME_PREFIX);
+            }
+            return false;
+        }
+
+        private void add(List<Ranked> ranked, BitSet taken, int slot, int tier) {
+            taken.set(slot);
+            ranked.add(new Ranked(slots.get(slot), tier));
+        }
+
+        private static BitSet and(BitSet acc, BitSet next) {
+            if (acc == null) {
+                return next;
+            }
+            acc.and(next);
+            return acc;
+        }
+
+        private BitSet prefixMatch(String word) {
+            BitSet result = new BitSet(slots.size());
+            for (Postings postings : tokens.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                postings.addTo(result);
+            }
+            return result;
+        }
+
+        /**
+         * Products containing the word anywhere, skipping those already matched by prefix
+         */
+        private BitSet substringMatch(String word, BitSet prefixed) {
+            // Intersect the word's trigrams, smallest posting list first, then confirm the substring
+            List<Postings> lists = new ArrayList<>();
+            for (String gram : grams(word)) {
+                Postings postings = grams.get(gram);
+                if (postings == null) {
+                    return new BitSet();
+                }
+                lists.add(postings);
+            }
+            lists.sort(Comparator.comparingInt(Postings::size));
+            BitSet candidates = new BitSet(slots.size());
+            lists.get(0).addTo(candidates);
+            for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+                BitSet next = new BitSet(slots.size());
+                lists.get(i).addTo(next);
+                candidates.and(next);
+            }
+            candidates.andNot(prefixed);
+            if (word.length() > GRAM) {
+                for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                    if (!slots.get(slot).text.contains(word)) {
+                        candidates.clear(slot);
+                    }
+                }
+            }
+            return candidates;
+        }
+
+        /**
+         * Best {@code capacity} of the remaining matches, kept in a bounded heap whose head is the worst
+         */
+        private List<Ranked> rest(BitSet matches, BitSet prefixed, String query, int capacity) {
+            if (capacity <= 0) {
+                return List.of();
+            }
+            if (capacity >= matches.cardinality()) {
+                // Every match is returned, one sort beats pushing them all through the heap
+                List<Ranked> ranked = new ArrayList<>(matches.cardinality());
+                for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+                    Entry entry = slots.get(slot);
+                    ranked.add(new Ranked(entry, tier(entry, query, prefixed.get(slot))));
+                }
+                ranked.sort(ORDER);
+                return ranked;
+            }
+            PriorityQueue<Ranked> best = new PriorityQueue<>(capacity, ORDER.reversed());
+            for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+                Entry entry = slots.get(slot);
+                int tier = tier(entry, query, prefixed.get(slot));
+                if (best.size() == capacity) {
+                    Ranked worst = best.peek();
+                    if (compare(tier, entry, worst.tier, worst.entry) >= 0) {
+                        continue;
+                    }
+                    best.poll();
+                }
+                best.add(new Ranked(entry, tier));
+            }
+            List<Ranked> ranked = new ArrayList<>(best);
+            ranked.sort(ORDER);
+            return ranked;
+        }
+
+        private static int compare(Ranked a, Ranked b) {
+            return compare(a.tier, a.entry, b.tier, b.entry);
+        }
+
+        private static int compare(int tierA, Entry a, int tierB, Entry b) {
+            if (tierA != tierB) {
+                return tierA > tierB ? -1 : 1;
+            }
+            if (a.active != b.active) {
+                return a.active ? -1 : 1;
+            }
+            return a.name.compareTo(b.name);
+        }
+
+        private static int tier(Entry entry, String query, boolean prefixed) {
+            if (entry.sku.equals(query)) {
+                return TIER_SKU;
+            }
+            if (entry.name.startsWith(query)) {
+                return entry.name.length() == query.length() ? TIER_NAME : TIER_NAME_PREFIX;
+            }
+            if (entry.sku.startsWith(query)) {
+                return TIER_SKU_PREFIX;
+            }
+            return prefixed ? TIER_WORDS : TIER_OTHER;
+        }
+
+        private static List<ProductDTO> products(List<Ranked> ranked) {
+            return ranked.stream().map(entry -> entry.entry.product).collect(Collectors.toList());
+        }
+
+        private static Set<String> grams(String text) {
+            Set<String> grams = new LinkedHashSet<>();
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                grams.add(text.substring(i, i + GRAM));
+            }
+            return grams;
+        }
+    }
+
+    private static class Entry {
+        private final ProductDTO product;
+        private final String name;
+        private final String sku;
+        private final boolean active;
+        private final Set<String> tokens;
+        // Name, SKU and category joined, what substring matches run against
+        private final String text;
+
+        Entry(ProductDTO product) {
+            this.product = product;
+            this.name = lower(product.getName());
+            this.sku = lower(product.getSku());
+            this.active = Boolean.TRUE.equals(product.getActive());
+            this.tokens = new LinkedHashSet<>(tokenize(name));
+            tokens.addAll(tokenize(product.getCategory()));
+            tokens.addAll(tokenize(sku));
+            this.text = name + "\u0000" + sku + "\u0000" + lower(product.getCategory());
+        }
+
+        private static String lower(String value) {
+            return value == null ? "" : value.toLowerCase();
+        }
+    }
+
+    private static class Ranked {
+        private final Entry entry;
+        private final int tier;
+
+        Ranked(Entry entry, int tier) {
+            this.entry = entry;
+            this.tier = tier;
+        }
+    }
+
+    /**
+     * Sorted set of slot ordinals backed by an int array
+     */
+    private static class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(int slot) {
+            int at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, at, slots, at + 1, size - at);
+            slots[at] = slot;
+            size++;
+        }
+
+        boolean remove(int slot) {
+            int at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(slots, at + 1, slots, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        int get(int index) {
+            return slots[index];
+        }
+
+        void addTo(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(slots[i]);
+            }
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.StockMaster.inventory_backend.services;
 
+import com.StockMaster.inventory_backend.dto.PageDTO;
 import com.StockMaster.inventory_backend.dto.ProductDTO;
+import com.StockMaster.inventory_backend.metrics.Timed;
 import com.StockMaster.inventory_backend.models.Product;
 import com.StockMaster.inventory_backend.repositories.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
@@ -16,12 +22,41 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private DashboardRollupService dashboardRollupService;
+
+    @Autowired
+    private PagedQueryService pagedQueryService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    // Fields with an index behind them, sorting on anything else would scan the collection
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "name", "sku", "category");
+
+    private static final int MAX_SUGGESTIONS = 50;
+
     public List<ProductDTO> getAllProducts() {
         return productRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * All products read from a cursor, for streaming responses. The caller must close the stream.
+     */
+    public Stream<ProductDTO> streamAllProducts() {
+        return productRepository.streamAllBy().map(this::convertToDTO);
+    }
+
+    public PageDTO<Object> getProductsPage(Pageable pageable, String fields) {
+        return pagedQueryService.page(Product.class, pageable, SORTABLE_FIELDS, fields, ProductDTO.class, Map.of(),
+                products -> products.stream().map(this::convertToDTO).collect(Collectors.toList()));
+    }
+
     public List<ProductDTO> getActiveProducts() {
         return productRepository.findByActive(true).stream()
                 .map(this::convertToDTO)
@@ -29,13 +64,13 @@ public class ProductService {
     }
 
     public ProductDTO getProductById(String id) {
-        Product product = productRepository.findById(id)
+        Product product = referenceDataCache.findProduct(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
         return convertToDTO(product);
     }
 
     public ProductDTO getProductBySku(String sku) {
-        Product product = productRepository.findBySku(sku)
+        Product product = referenceDataCache.findProductBySku(sku)
                 .orElseThrow(() -> new RuntimeException("Product not found with SKU: " + sku));
         return convertToDTO(product);
     }
@@ -58,7 +93,11 @@ public class ProductService {
         product.setUpdatedAt(LocalDateTime.now());
 
         Product savedProduct = productRepository.save(product);
-        return convertToDTO(savedProduct);
+        referenceDataCache.putProduct(savedProduct);
+        dashboardRollupService.recordProductChange(savedProduct.getId(), null, false, savedProduct);
+        ProductDTO saved = convertToDTO(savedProduct);
+        productSearchService.put(saved);
+        return saved;
     }
 
     public ProductDTO updateProduct(String id, ProductDTO productDTO) {
@@ -71,6 +110,9 @@ public class ProductService {
             throw new RuntimeException("Product with SKU " + productDTO.getSku() + " already exists");
         }
 
+        String previousCategory = product.getCategory();
+        boolean wasActive = product.isActive();
+
         product.setName(productDTO.getName());
         product.setSku(productDTO.getSku());
         product.setCategory(productDTO.getCategory());
@@ -80,30 +122,48 @@ public class ProductService {
         product.setUpdatedAt(LocalDateTime.now());
 
         Product updatedProduct = productRepository.save(product);
-        return convertToDTO(updatedProduct);
+        referenceDataCache.putProduct(updatedProduct);
+        dashboardRollupService.recordProductChange(id, previousCategory, wasActive, updatedProduct);
+        ProductDTO updated = convertToDTO(updatedProduct);
+        productSearchService.put(updated);
+        return updated;
     }
 
     public void deleteProduct(String id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
         
+        boolean wasActive = product.isActive();
+
         // Soft delete - set active to false
         product.setActive(false);
         product.setUpdatedAt(LocalDateTime.now());
         productRepository.save(product);
+        referenceDataCache.putProduct(product);
+        dashboardRollupService.recordProductChange(id, product.getCategory(), wasActive, product);
+        productSearchService.put(convertToDTO(product));
     }
 
     public void permanentDeleteProduct(String id) {
-        if (!productRepository.existsById(id)) {
-            throw new RuntimeException("Product not found with id: " + id);
-        }
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
         productRepository.deleteById(id);
+        referenceDataCache.evictProduct(id);
+        dashboardRollupService.recordProductChange(id, product.getCategory(), product.isActive(), null);
+        productSearchService.remove(id);
     }
 
+    /**
+     * Ranked matches on name, SKU and category, see {@link ProductSearchService}
+     */
+    @Timed("product.search")
     public List<ProductDTO> searchProducts(String keyword) {
-        return productRepository.findByNameContainingIgnoreCase(keyword).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return productSearchService.search(keyword, 0);
+    }
+
+    @Timed("product.suggest")
+    public List<ProductDTO> suggestProducts(String prefix, int limit) {
+        return productSearchService.search(prefix, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
     }
 
     public List<ProductDTO> getProductsByCategory(String category) {
@@ -112,7 +172,7 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
-    private ProductDTO convertToDTO(Product product) {
+    ProductDTO convertToDTO(Product product) {
         ProductDTO dto = new ProductDTO();
         dto.setId(product.getId());
         dto.setName(product.getName());
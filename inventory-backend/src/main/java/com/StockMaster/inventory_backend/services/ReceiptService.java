@@ -1,23 +1,27 @@
 package com.StockMaster.inventory_backend.services;
 
+import com.StockMaster.inventory_backend.dto.PageDTO;
 import com.StockMaster.inventory_backend.dto.ReceiptDTO;
+import com.StockMaster.inventory_backend.metrics.Timed;
 import com.StockMaster.inventory_backend.models.Product;
 import com.StockMaster.inventory_backend.models.Receipt;
-import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.StockLedger;
 import com.StockMaster.inventory_backend.models.Warehouse;
-import com.StockMaster.inventory_backend.repositories.ProductRepository;
 import com.StockMaster.inventory_backend.repositories.ReceiptRepository;
-import com.StockMaster.inventory_backend.repositories.StockRepository;
 import com.StockMaster.inventory_backend.repositories.WarehouseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ReceiptService {
@@ -25,24 +29,63 @@ public class ReceiptService {
     @Autowired
     private ReceiptRepository receiptRepository;
 
-    @Autowired
-    private ProductRepository productRepository;
-
     @Autowired
     private WarehouseRepository warehouseRepository;
 
     @Autowired
-    private StockRepository stockRepository;
+    private ReferenceDataCache referenceDataCache;
 
     @Autowired
     private StockLedgerService stockLedgerService;
 
+    @Autowired
+    private StockMutationEngine stockMutationEngine;
+
+    @Autowired
+    private PagedQueryService pagedQueryService;
+
+    @Autowired
+    private DocumentWorkflowService documentWorkflowService;
+
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "createdAt", "receiptDate", "receiptNumber");
+
+    private static final Map<String, List<String>> PAGE_FIELD_SOURCES = Map.of(
+            "warehouseName", List.of("warehouseId"));
+
     public List<ReceiptDTO> getAllReceipts() {
         return receiptRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * All receipts read from a cursor, for streaming responses. Warehouse names are
+     * resolved once up front. The caller must close the stream.
+     */
+    public Stream<ReceiptDTO> streamAllReceipts() {
+        Map<String, String> warehouseNames = warehouseRepository.findAll().stream()
+                .collect(Collectors.toMap(Warehouse::getId, Warehouse::getName));
+        return receiptRepository.streamAllBy()
+                .map(receipt -> convertToDTO(receipt, warehouseNames.get(receipt.getWarehouseId())));
+    }
+
+    public PageDTO<Object> getReceiptsPage(Pageable pageable, String fields) {
+        return pagedQueryService.page(Receipt.class, pageable, SORTABLE_FIELDS, fields, ReceiptDTO.class,
+                PAGE_FIELD_SOURCES, receipts -> {
+                    // One cached batch lookup for the page instead of one warehouse read per receipt
+                    Set<String> warehouseIds = receipts.stream()
+                            .map(Receipt::getWarehouseId)
+                            .filter(id -> id != null)
+                            .collect(Collectors.toSet());
+                    Map<String, String> warehouseNames = new HashMap<>();
+                    referenceDataCache.findWarehouses(warehouseIds)
+                            .forEach((id, warehouse) -> warehouseNames.put(id, warehouse.getName()));
+                    return receipts.stream()
+                            .map(receipt -> convertToDTO(receipt, warehouseNames.get(receipt.getWarehouseId())))
+                            .collect(Collectors.toList());
+                });
+    }
+
     public List<ReceiptDTO> getReceiptsByStatus(String status) {
         return receiptRepository.findByStatus(status).stream()
                 .map(this::convertToDTO)
@@ -63,12 +106,12 @@ public class ReceiptService {
 
     public ReceiptDTO createReceipt(ReceiptDTO receiptDTO, String username) {
         // Validate warehouse exists
-        warehouseRepository.findById(receiptDTO.getWarehouseId())
+        referenceDataCache.findWarehouse(receiptDTO.getWarehouseId())
                 .orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + receiptDTO.getWarehouseId()));
 
         // Validate all products exist
         for (ReceiptDTO.ReceiptItemDTO itemDTO : receiptDTO.getItems()) {
-            Product product = productRepository.findById(itemDTO.getProductId())
+            Product product = referenceDataCache.findProduct(itemDTO.getProductId())
                     .orElseThrow(() -> new RuntimeException("Product not found with id: " + itemDTO.getProductId()));
             itemDTO.setProductName(product.getName());
             itemDTO.setProductSku(product.getSku());
@@ -99,68 +142,90 @@ public class ReceiptService {
         return convertToDTO(savedReceipt);
     }
 
-    @Transactional
+    @Timed("receipt.validate")
     public ReceiptDTO validateReceipt(String id, String username) {
-        Receipt receipt = receiptRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Receipt not found with id: " + id));
+        // Claim the document first, so concurrent validations of it can't both apply stock
+        Receipt receipt = documentWorkflowService.claim(Receipt.class, id, "DRAFT", "VALIDATING", username,
+                current -> current == null
+                        ? new RuntimeException("Receipt not found with id: " + id)
+                        : new RuntimeException("VALIDATING".equals(current.getStatus())
+                                ? "Receipt is already being validated"
+                                : "Receipt is already validated"));
+        return convertToDTO(finishValidation(receipt, username));
+    }
 
-        if ("VALIDATED".equals(receipt.getStatus())) {
-            throw new RuntimeException("Receipt is already validated");
+    /**
+     * Finish or hand back a receipt whose VALIDATING claim was abandoned, e.g. by an instance
+     * that died partway, going by the stock rows its lines were applied to. Returns what was done.
+     */
+    public String recoverClaim(Receipt receipt) {
+        if (!stockMutationEngine.anyApplied(receipt.getWarehouseId(), stockReference(receipt.getId()), lines(receipt))) {
+            documentWorkflowService.release(Receipt.class, receipt.getId(), "VALIDATING",
+                    current -> new RuntimeException("Receipt " + receipt.getId() + " is no longer claimed"));
+            return "released";
         }
+        finishValidation(receipt, receipt.getClaimedBy() != null ? receipt.getClaimedBy() : "system");
+        return "finished";
+    }
 
-        // Update stock for each item
-        for (Receipt.ReceiptItem item : receipt.getItems()) {
-            updateStock(item.getProductId(), receipt.getWarehouseId(), item.getQuantity(),
-                    receipt.getId(), "RECEIPT", username, item.getProductName(), item.getProductSku());
+    /**
+     * Everything after the claim. Lines already applied by an earlier attempt are picked up from
+     * their stock rows, and ledger entries keep the ids chosen with the stock write, so running
+     * this again after a crash at any step neither applies stock nor logs a change twice.
+     */
+    private Receipt finishValidation(Receipt receipt, String username) {
+        String id = receipt.getId();
+        String reference = stockReference(id);
+        List<StockMutationEngine.StockLine> lines = lines(receipt);
+        List<StockMutationEngine.StockMutation> mutations;
+        try {
+            mutations = stockMutationEngine.increaseAll(receipt.getWarehouseId(), reference, lines);
+        } catch (RuntimeException e) {
+            documentWorkflowService.releaseUnlessApplied(Receipt.class, id, "VALIDATING",
+                    () -> stockMutationEngine.anyApplied(receipt.getWarehouseId(), reference, lines), e);
+            throw e;
         }
 
-        // Update receipt status
-        receipt.setStatus("VALIDATED");
-        receipt.setValidatedAt(LocalDateTime.now());
-        receipt.setValidatedBy(username);
-
-        Receipt validatedReceipt = receiptRepository.save(receipt);
-        return convertToDTO(validatedReceipt);
-    }
-
-    private void updateStock(String productId, String warehouseId, Integer quantity,
-                             String referenceId, String referenceType, String username,
-                             String productName, String productSku) {
-        Optional<Stock> existingStock = stockRepository.findByProductIdAndWarehouseId(productId, warehouseId);
-
-        Integer quantityBefore;
-        Integer quantityAfter;
-        Stock stock;
-
-        if (existingStock.isPresent()) {
-            stock = existingStock.get();
-            quantityBefore = stock.getQuantity();
-            quantityAfter = quantityBefore + quantity;
-            stock.setQuantity(quantityAfter);
-            stock.setLastUpdated(LocalDateTime.now());
-        } else {
-            stock = new Stock();
-            stock.setProductId(productId);
-            stock.setWarehouseId(warehouseId);
-            quantityBefore = 0;
-            quantityAfter = quantity;
-            stock.setQuantity(quantityAfter);
-            stock.setLastUpdated(LocalDateTime.now());
+        // Log all stock changes in the ledger with one insert
+        String warehouseName = referenceDataCache.findWarehouse(receipt.getWarehouseId())
+                .map(Warehouse::getName)
+                .orElse("Unknown");
+        List<StockLedger> ledgerEntries = new ArrayList<>(mutations.size());
+        for (int i = 0; i < mutations.size(); i++) {
+            Receipt.ReceiptItem item = receipt.getItems().get(i);
+            StockMutationEngine.StockMutation mutation = mutations.get(i);
+            StockLedger ledger = new StockLedger(
+                    item.getProductId(), item.getProductName(), item.getProductSku(),
+                    receipt.getWarehouseId(), warehouseName,
+                    "RECEIPT", mutation.getQuantityBefore(), item.getQuantity(), mutation.getQuantityAfter(),
+                    receipt.getId(), "RECEIPT",
+                    username, username
+            );
+            ledger.setId(mutation.getLedgerId());
+            ledger.setNotes("Stock increased via receipt validation");
+            ledgerEntries.add(ledger);
         }
+        stockLedgerService.createLedgerEntries(ledgerEntries);
+
+        // Only this request holds the claim, so the final transition can't be rejected
+        Receipt validatedReceipt = documentWorkflowService.transition(Receipt.class, id, "VALIDATING", "VALIDATED",
+                Map.of("validatedAt", LocalDateTime.now(), "validatedBy", username),
+                current -> new RuntimeException("Receipt " + id + " was modified during validation"));
+        stockMutationEngine.clearApplied(receipt.getWarehouseId(), reference, lines);
+        return validatedReceipt;
+    }
 
-        stockRepository.save(stock);
-
-        // Log stock change in ledger
-        Optional<Warehouse> warehouse = warehouseRepository.findById(warehouseId);
-        String warehouseName = warehouse.map(Warehouse::getName).orElse("Unknown");
+    private static List<StockMutationEngine.StockLine> lines(Receipt receipt) {
+        return receipt.getItems().stream()
+                .map(item -> new StockMutationEngine.StockLine(item.getProductId(), item.getQuantity()))
+                .collect(Collectors.toList());
+    }
 
-        stockLedgerService.logStockChange(
-                productId, productName, productSku,
-                warehouseId, warehouseName,
-                "RECEIPT", quantityBefore, quantity, quantityAfter,
-                referenceId, referenceType,
-                username, username, "Stock increased via receipt validation"
-        );
+    /**
+     * How the receipt's lines are tagged on the stock rows they were applied to
+     */
+    static String stockReference(String id) {
+        return "RECEIPT:" + id;
     }
 
     public void deleteReceipt(String id) {
@@ -170,8 +235,12 @@ public class ReceiptService {
         if ("VALIDATED".equals(receipt.getStatus())) {
             throw new RuntimeException("Cannot delete validated receipt");
         }
+        if ("VALIDATING".equals(receipt.getStatus())) {
+            throw new RuntimeException("Cannot delete a receipt that is being validated");
+        }
 
-        receiptRepository.deleteById(id);
+        // Same version as read, so a validation claimed since then isn't deleted under it
+        receiptRepository.delete(receipt);
     }
 
     private String generateReceiptNumber() {
@@ -188,6 +257,13 @@ public class ReceiptService {
     }
 
     private ReceiptDTO convertToDTO(Receipt receipt) {
+        String warehouseName = referenceDataCache.findWarehouse(receipt.getWarehouseId())
+                .map(Warehouse::getName)
+                .orElse(null);
+        return convertToDTO(receipt, warehouseName);
+    }
+
+    private ReceiptDTO convertToDTO(Receipt receipt, String warehouseName) {
         ReceiptDTO dto = new ReceiptDTO();
         dto.setId(receipt.getId());
         dto.setReceiptNumber(receipt.getReceiptNumber());
@@ -201,21 +277,20 @@ public class ReceiptService {
         dto.setValidatedAt(receipt.getValidatedAt());
         dto.setValidatedBy(receipt.getValidatedBy());
 
-        // Convert items
-        List<ReceiptDTO.ReceiptItemDTO> itemDTOs = receipt.getItems().stream()
-                .map(item -> new ReceiptDTO.ReceiptItemDTO(
-                        item.getProductId(),
-                        item.getQuantity(),
-                        item.getProductName(),
-                        item.getProductSku()
-                ))
-                .collect(Collectors.toList());
-        dto.setItems(itemDTOs);
+        // Convert items, absent when a paged query projected them away
+        if (receipt.getItems() != null) {
+            List<ReceiptDTO.ReceiptItemDTO> itemDTOs = receipt.getItems().stream()
+                    .map(item -> new ReceiptDTO.ReceiptItemDTO(
+                            item.getProductId(),
+                            item.getQuantity(),
+                            item.getProductName(),
+                            item.getProductSku()
+                    ))
+                    .collect(Collectors.toList());
+            dto.setItems(itemDTOs);
+        }
 
-        // Get warehouse name
-        warehouseRepository.findById(receipt.getWarehouseId()).ifPresent(warehouse ->
-                dto.setWarehouseName(warehouse.getName())
-        );
+        dto.setWarehouseName(warehouseName);
 
         return dto;
     }
@@ -0,0 +1,281 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.models.Warehouse;
+import com.StockMaster.inventory_backend.repositories.ProductRepository;
+import com.StockMaster.inventory_backend.repositories.WarehouseRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through, size-bounded cache of products and warehouses by id (and products by
+ * SKU) in front of the repositories. ProductService and WarehouseService write through
+ * on every change; entries also expire after a TTL so writes made on another instance
+ * show up eventually. Every put and eviction takes a version from a per-region counter,
+ * and a read-through load only installs its result if no write to that id happened
+ * since the load started, so a slow load cannot overwrite a newer entry. Returned
+ * entities are shared, callers must not modify them.
+ */
+@Service
+public class ReferenceDataCache {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${reference-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reference-cache.products.max-size:50000}")
+    private int maxProducts;
+
+    @Value("${reference-cache.warehouses.max-size:1000}")
+    private int maxWarehouses;
+
+    @Value("${reference-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Region<Product> products;
+    private Region<Warehouse> warehouses;
+
+    // SKU to product id, checked against the cached product's current SKU on every read
+    private Cache<String, String> productIdsBySku;
+
+    @PostConstruct
+    public void init() {
+        products = new Region<>("products", maxProducts);
+        warehouses = new Region<>("warehouses", maxWarehouses);
+        productIdsBySku = Caffeine.newBuilder().maximumSize(maxProducts).build();
+    }
+
+    public Optional<Product> findProduct(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        if (!enabled) {
+            return productRepository.findById(id);
+        }
+        return products.get(id, productRepository::findById);
+    }
+
+    public Optional<Product> findProductBySku(String sku) {
+        if (sku == null) {
+            return Optional.empty();
+        }
+        if (!enabled) {
+            return productRepository.findBySku(sku);
+        }
+        String id = productIdsBySku.getIfPresent(sku);
+        if (id != null) {
+            Optional<Product> product = findProduct(id);
+            if (product.isPresent() && sku.equals(product.get().getSku())) {
+                return product;
+            }
+            productIdsBySku.invalidate(sku);
+        }
+        products.miss();
+        long version = products.version();
+        Optional<Product> loaded = productRepository.findBySku(sku);
+        loaded.ifPresent(product -> {
+            if (products.install(product.getId(), product, version)) {
+                productIdsBySku.put(product.getSku(), product.getId());
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Products by id, with a single $in query for whatever isn't cached
+     */
+    public Map<String, Product> findProducts(Collection<String> ids) {
+        if (!enabled) {
+            return byId(productRepository.findAllById(ids), Product::getId);
+        }
+        return products.getAll(ids, missing -> byId(productRepository.findAllById(missing), Product::getId));
+    }
+
+    public Optional<Warehouse> findWarehouse(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        if (!enabled) {
+            return warehouseRepository.findById(id);
+        }
+        return warehouses.get(id, warehouseRepository::findById);
+    }
+
+    public Map<String, Warehouse> findWarehouses(Collection<String> ids) {
+        if (!enabled) {
+            return byId(warehouseRepository.findAllById(ids), Warehouse::getId);
+        }
+        return warehouses.getAll(ids, missing -> byId(warehouseRepository.findAllById(missing), Warehouse::getId));
+    }
+
+    public void putProduct(Product product) {
+        if (enabled) {
+            products.put(product.getId(), product);
+            productIdsBySku.put(product.getSku(), product.getId());
+        }
+    }
+
+    public void evictProduct(String id) {
+        products.evict(id);
+    }
+
+    public void putWarehouse(Warehouse warehouse) {
+        if (enabled) {
+            warehouses.put(warehouse.getId(), warehouse);
+        }
+    }
+
+    public void evictWarehouse(String id) {
+        warehouses.evict(id);
+    }
+
+    public void clear() {
+        products.clear();
+        warehouses.clear();
+        productIdsBySku.invalidateAll();
+    }
+
+    private static <T> Map<String, T> byId(Iterable<T> entities, Function<T, String> id) {
+        Map<String, T> result = new HashMap<>();
+        for (T entity : entities) {
+            result.put(id.apply(entity), entity);
+        }
+        return result;
+    }
+
+    private class Region<T> {
+        private final Cache<String, Cached<T>> entries;
+        private final AtomicLong versions = new AtomicLong();
+        // Loads that started before the last clear() are dropped
+        private volatile long clearedAt;
+        private final Counter hits;
+        private final Counter misses;
+
+        Region(String name, int maxSize) {
+            this.entries = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                    .build();
+            this.hits = meterRegistry.counter("cache.requests", "cache", name, "result", "hit");
+            this.misses = meterRegistry.counter("cache.requests", "cache", name, "result", "miss");
+            meterRegistry.gauge("cache.size", Tags.of("cache", name), entries, Cache::estimatedSize);
+        }
+
+        Optional<T> get(String id, Function<String, Optional<T>> loader) {
+            T cached = cached(id);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            misses.increment();
+            // Misses are not cached, a product created elsewhere is found on the next read
+            long version = version();
+            Optional<T> loaded = loader.apply(id);
+            loaded.ifPresent(value -> install(id, value, version));
+            return loaded;
+        }
+
+        Map<String, T> getAll(Collection<String> ids, Function<List<String>, Map<String, T>> loader) {
+            Map<String, T> result = new HashMap<>();
+            List<String> missing = new ArrayList<>();
+            for (String id : ids) {
+                if (id == null || result.containsKey(id)) {
+                    continue;
+                }
+                T cached = cached(id);
+                if (cached != null) {
+                    hits.increment();
+                    result.put(id, cached);
+                } else {
+                    misses.increment();
+                    missing.add(id);
+                }
+            }
+            if (!missing.isEmpty()) {
+                long version = version();
+                Map<String, T> loaded = loader.apply(missing);
+                loaded.forEach((id, value) -> install(id, value, version));
+                result.putAll(loaded);
+            }
+            return result;
+        }
+
+        void miss() {
+            misses.increment();
+        }
+
+        /**
+         * Version to pass to install() for a load about to start
+         */
+        long version() {
+            return versions.get();
+        }
+
+        /**
+         * Cache a loaded value unless the id was put or evicted after the load started
+         */
+        boolean install(String id, T value, long loadedAt) {
+            if (loadedAt < clearedAt) {
+                return false;
+            }
+            Cached<T> fresh = new Cached<>(value, loadedAt);
+            return entries.asMap().compute(id, (key, existing) ->
+                    existing != null && existing.version > loadedAt ? existing : fresh) == fresh;
+        }
+
+        void put(String id, T value) {
+            entries.put(id, new Cached<>(value, versions.incrementAndGet()));
+        }
+
+        void evict(String id) {
+            // A versioned tombstone, so a load still in flight does not bring the old value back
+            entries.put(id, new Cached<>(null, versions.incrementAndGet()));
+        }
+
+        void clear() {
+            clearedAt = versions.incrementAndGet();
+            entries.invalidateAll();
+        }
+
+        private T cached(String id) {
+            Cached<T> cached = entries.getIfPresent(id);
+            return cached == null ? null : cached.value;
+        }
+    }
+
+    private static class Cached<T> {
+        // null for an evicted id
+        private final T value;
+        private final long version;
+
+        Cached(T value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+    }
+}
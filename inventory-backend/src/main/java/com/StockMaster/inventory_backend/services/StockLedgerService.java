@@ -1,13 +1,26 @@
 package com.StockMaster.inventory_backend.services;
 
+import com.StockMaster.inventory_backend.dto.LedgerPageDTO;
 import com.StockMaster.inventory_backend.models.StockLedger;
 import com.StockMaster.inventory_backend.repositories.StockLedgerRepository;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 @Service
 public class StockLedgerService {
@@ -15,40 +28,131 @@ public class StockLedgerService {
     @Autowired
     private StockLedgerRepository ledgerRepository;
     
-    public List<StockLedger> getAllLedgerEntries() {
-        return ledgerRepository.findAll();
-    }
+    @Autowired
+    private LedgerWriter ledgerWriter;
+    
+    @Autowired
+    private LedgerArchiveService archiveService;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int EXPORT_BATCH_SIZE = 1000;
     
     public Optional<StockLedger> getLedgerEntryById(String id) {
-        return ledgerRepository.findById(id);
+        Optional<StockLedger> hot = ledgerRepository.findById(id);
+        if (hot.isPresent()) {
+            return hot;
+        }
+        return archiveService.findById(id).stream().findFirst();
     }
     
-    public List<StockLedger> getLedgerEntriesByProduct(String productId) {
-        return ledgerRepository.findByProductId(productId);
+    /**
+     * The newest entries of a product as one page of up to the /page size cap, for the deprecated
+     * list endpoints; its cursor continues them through /page with the same filter
+     */
+    public LedgerPageDTO getLedgerEntriesByProduct(String productId) {
+        return newest(new LedgerFilter().product(productId));
     }
     
-    public List<StockLedger> getLedgerEntriesByWarehouse(String warehouseId) {
-        return ledgerRepository.findByWarehouseId(warehouseId);
+    public LedgerPageDTO getLedgerEntriesByWarehouse(String warehouseId) {
+        return newest(new LedgerFilter().warehouse(warehouseId));
     }
     
-    public List<StockLedger> getLedgerEntriesByChangeType(String changeType) {
-        return ledgerRepository.findByChangeType(changeType);
+    public LedgerPageDTO getLedgerEntriesByChangeType(String changeType) {
+        return newest(new LedgerFilter().changeType(changeType));
     }
     
-    public List<StockLedger> getLedgerEntriesByUser(String userId) {
-        return ledgerRepository.findByUserId(userId);
+    public LedgerPageDTO getLedgerEntriesByUser(String userId) {
+        return newest(new LedgerFilter().user(userId));
     }
     
-    public List<StockLedger> getLedgerEntriesByReference(String referenceId) {
-        return ledgerRepository.findByReferenceId(referenceId);
+    public LedgerPageDTO getLedgerEntriesByReference(String referenceId) {
+        return newest(new LedgerFilter().reference(referenceId));
     }
     
-    public List<StockLedger> getLedgerEntriesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return ledgerRepository.findByCreatedAtBetween(startDate, endDate);
+    public LedgerPageDTO getLedgerEntriesByProductAndWarehouse(String productId, String warehouseId) {
+        return newest(new LedgerFilter().product(productId).warehouse(warehouseId));
     }
     
-    public List<StockLedger> getLedgerEntriesByProductAndWarehouse(String productId, String warehouseId) {
-        return ledgerRepository.findByProductIdAndWarehouseId(productId, warehouseId);
+    /**
+     * The largest page of the newest entries, for the deprecated list endpoints that used to
+     * return the whole ledger
+     */
+    public LedgerPageDTO getRecentLedgerEntries(LocalDateTime startDate, LocalDateTime endDate) {
+        return getLedgerPage(new LedgerFilter().between(startDate, endDate), null, MAX_PAGE_SIZE);
+    }
+    
+    /**
+     * Keyset page of ledger entries, newest first, ordered by (createdAt, _id) so paging cost
+     * stays constant however deep the cursor is. Archived entries are all older than hot ones,
+     * so the archive is only read once a page runs past the end of the hot tier.
+     */
+    public LedgerPageDTO getLedgerPage(LedgerFilter filter, String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        
+        List<Criteria> filters = hotFilters(filter);
+        LocalDateTime beforeAt = null;
+        String beforeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor);
+            beforeAt = LocalDateTime.parse(position[0]);
+            beforeId = position[1];
+            filters.add(new Criteria().orOperator(
+                    Criteria.where("createdAt").lt(beforeAt),
+                    Criteria.where("createdAt").is(beforeAt).and("id").lt(new ObjectId(beforeId))
+            ));
+        }
+        
+        Query query = filtered(filters)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "id"))
+                .limit(pageSize + 1);
+        List<StockLedger> entries = mongoTemplate.find(query, StockLedger.class);
+        if (entries.size() <= pageSize) {
+            entries = merged(entries, archiveService.findNewest(filter, beforeAt, beforeId, pageSize + 1));
+        }
+        
+        boolean hasMore = entries.size() > pageSize;
+        if (hasMore) {
+            entries = entries.subList(0, pageSize);
+        }
+        String nextCursor = hasMore ? encodeCursor(entries.get(entries.size() - 1)) : null;
+        
+        return new LedgerPageDTO(entries, nextCursor, hasMore);
+    }
+    
+    /**
+     * Streams ledger entries oldest first, archived ones and then hot ones from a server-side
+     * cursor. The caller must close the stream.
+     */
+    public Stream<StockLedger> streamLedgerEntries(LocalDateTime startDate, LocalDateTime endDate) {
+        LedgerFilter filter = new LedgerFilter().between(startDate, endDate);
+        AtomicReference<StockLedger> lastArchived = new AtomicReference<>();
+        Stream<StockLedger> archived = archiveService.streamOldest(filter).peek(lastArchived::set);
+        // Opened once the archive is exhausted, resuming after its last entry in case an archive
+        // run has copied entries it has not yet removed from the hot tier
+        Stream<StockLedger> hot = Stream.of(filter).flatMap(f -> streamHot(f, lastArchived.get()));
+        return Stream.concat(archived, hot);
+    }
+    
+    private Stream<StockLedger> streamHot(LedgerFilter filter, StockLedger after) {
+        List<Criteria> filters = hotFilters(filter);
+        if (after != null) {
+            filters.add(new Criteria().orOperator(
+                    Criteria.where("createdAt").gt(after.getCreatedAt()),
+                    Criteria.where("createdAt").is(after.getCreatedAt()).and("id").gt(new ObjectId(after.getId()))
+            ));
+        }
+        Query query = filtered(filters)
+                .with(Sort.by(Sort.Direction.ASC, "createdAt", "id"))
+                .cursorBatchSize(EXPORT_BATCH_SIZE);
+        return mongoTemplate.stream(query, StockLedger.class);
+    }
+    
+    public Map<String, Object> archiveLedger() {
+        return archiveService.archive();
     }
     
     /**
@@ -56,7 +160,84 @@ public class StockLedgerService {
      */
     public StockLedger createLedgerEntry(StockLedger ledgerEntry) {
         ledgerEntry.setCreatedAt(LocalDateTime.now());
-        return ledgerRepository.save(ledgerEntry);
+        return ledgerWriter.write(List.of(ledgerEntry)).get(0);
+    }
+    
+    /**
+     * Create many ledger entries with a single insertMany
+     */
+    public List<StockLedger> createLedgerEntries(List<StockLedger> ledgerEntries) {
+        LocalDateTime now = LocalDateTime.now();
+        ledgerEntries.forEach(entry -> entry.setCreatedAt(now));
+        return ledgerWriter.write(ledgerEntries);
+    }
+    
+    private LedgerPageDTO newest(LedgerFilter filter) {
+        return getLedgerPage(filter, null, MAX_PAGE_SIZE);
+    }
+    
+    /**
+     * Hot and archived entries newest first. An entry in both tiers, copied by an archive run
+     * that has not yet removed it from the hot one, is listed once.
+     */
+    private static List<StockLedger> merged(List<StockLedger> hot, List<StockLedger> cold) {
+        if (cold.isEmpty()) {
+            return hot;
+        }
+        Map<String, StockLedger> byId = new LinkedHashMap<>();
+        hot.forEach(entry -> byId.put(entry.getId(), entry));
+        cold.forEach(entry -> byId.putIfAbsent(entry.getId(), entry));
+        List<StockLedger> entries = new ArrayList<>(byId.values());
+        entries.sort(LedgerArchiveService.ENTRY_ORDER.reversed());
+        return entries;
+    }
+    
+    private static List<Criteria> hotFilters(LedgerFilter filter) {
+        List<Criteria> filters = new ArrayList<>();
+        if (filter.getProductId() != null) {
+            filters.add(Criteria.where("productId").is(filter.getProductId()));
+        }
+        if (filter.getWarehouseId() != null) {
+            filters.add(Criteria.where("warehouseId").is(filter.getWarehouseId()));
+        }
+        if (filter.getChangeType() != null) {
+            filters.add(Criteria.where("changeType").is(filter.getChangeType()));
+        }
+        if (filter.getUserId() != null) {
+            filters.add(Criteria.where("userId").is(filter.getUserId()));
+        }
+        if (filter.getReferenceId() != null) {
+            filters.add(Criteria.where("referenceId").is(filter.getReferenceId()));
+        }
+        if (filter.getStartDate() != null) {
+            filters.add(Criteria.where("createdAt").gte(filter.getStartDate()));
+        }
+        if (filter.getEndDate() != null) {
+            filters.add(Criteria.where("createdAt").lte(filter.getEndDate()));
+        }
+        return filters;
+    }
+    
+    private static Query filtered(List<Criteria> filters) {
+        return filters.isEmpty() ? new Query() : new Query(new Criteria().andOperator(filters));
+    }
+    
+    private static String encodeCursor(StockLedger last) {
+        String position = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split("\\|", 2);
+            if (parts.length != 2 || !ObjectId.isValid(parts[1])) {
+                throw new IllegalArgumentException(position);
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid ledger cursor");
+        }
     }
     
     /**
@@ -0,0 +1,506 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.repositories.StockRepository;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Applies stock quantity changes as single atomic findAndModify calls with $inc,
+ * so concurrent validations can't lose each other's updates. Decreases carry a
+ * quantity >= n guard, increases upsert the stock row when it doesn't exist yet.
+ * Document batches go out as one guarded bulk write instead, see applyAll.
+ */
+@Service
+public class StockMutationEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(StockMutationEngine.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private DashboardRollupService dashboardRollupService;
+
+    @Value("${stock.batch.max-attempts:5}")
+    private int maxAttempts;
+
+    /**
+     * Add quantity to a stock row, creating it when the product has no stock in the warehouse yet
+     */
+    public StockMutation increase(String productId, String warehouseId, Integer quantity) {
+        return recorded(upsert(productId, warehouseId, quantity));
+    }
+
+    /**
+     * Remove quantity from an existing stock row, failing if it would go below zero
+     */
+    public StockMutation decrease(String productId, String warehouseId, Integer quantity) {
+        return recorded(apply(productId, warehouseId, -quantity, false)
+                .orElseThrow(() -> rejected(productId, warehouseId, quantity)));
+    }
+
+    /**
+     * Apply a signed adjustment to an existing stock row, failing if it would go below zero
+     */
+    public StockMutation adjust(String productId, String warehouseId, Integer adjustment) {
+        return recorded(apply(productId, warehouseId, adjustment, false)
+                .orElseThrow(() -> rejected(productId, warehouseId, -adjustment)));
+    }
+
+    /**
+     * Add the quantity of every line to one warehouse, creating missing rows. Either all lines
+     * are applied or, if a write fails, the ones already applied are taken back out. The
+     * reference names the document the lines belong to, e.g. RECEIPT:id; lines it already
+     * applied are returned as they were written rather than applied again.
+     */
+    public List<StockMutation> increaseAll(String warehouseId, String reference, List<StockLine> lines) {
+        return applyAll(warehouseId, reference, lines, 1);
+    }
+
+    /**
+     * Remove the quantity of every line from one warehouse. Either all lines are applied or,
+     * if any line would go below zero, none are.
+     */
+    public List<StockMutation> decreaseAll(String warehouseId, String reference, List<StockLine> lines) {
+        return applyAll(warehouseId, reference, lines, -1);
+    }
+
+    /**
+     * Whether any line of the reference is still applied to its row, e.g. after a failed batch
+     * whose revert failed as well
+     */
+    public boolean anyApplied(String warehouseId, String reference, List<StockLine> lines) {
+        return mongoTemplate.exists(new Query(Criteria.where("warehouseId").is(warehouseId)
+                .and("productId").in(productIds(lines, null))
+                .and("applied.key").in(keys(reference, lines))), Stock.class);
+    }
+
+    /**
+     * Drop the reference's applied tags once its document is finished. Best effort: tags left
+     * behind are cleared by WorkflowRecoveryService.
+     */
+    public void clearApplied(String warehouseId, String reference, List<StockLine> lines) {
+        List<String> keys = keys(reference, lines);
+        try {
+            mongoTemplate.updateMulti(new Query(Criteria.where("warehouseId").is(warehouseId)
+                            .and("productId").in(productIds(lines, null))
+                            .and("applied.key").in(keys)),
+                    new Update().pull("applied", new Document("key", new Document("$in", keys))).inc("version", 1L),
+                    Stock.class);
+        } catch (RuntimeException e) {
+            log.warn("Could not clear the applied tags of {}: {}", reference, e.getMessage());
+        }
+    }
+
+    /**
+     * Drop one applied tag from a stock row, for tags a finished document left behind
+     */
+    public void clearApplied(String stockId, String key) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(stockId).and("applied.key").is(key)),
+                new Update().pull("applied", new Document("key", key)).inc("version", 1L), Stock.class);
+    }
+
+    /**
+     * Set rows of one warehouse to counted quantities with a single unordered bulk write,
+     * creating missing rows. Each write only matches while the row still holds the quantity
+     * the caller read, so a movement that landed in between is never overwritten: that row is
+     * returned as a conflict to recount, and everything applied has exact before/after values.
+     */
+    public CountedWrite setCounted(String warehouseId, List<StockMutation> mutations) {
+        CountedWrite write = new CountedWrite();
+        if (mutations.isEmpty()) {
+            return write;
+        }
+
+        // A guard that no longer matches makes the upsert insert a second row for the product,
+        // which the unique product/warehouse index rejects; that duplicate key is the conflict.
+        // Bulk writes don't bump @Version the way findAndModify does, so every update increments it.
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Stock.class);
+        for (StockMutation mutation : mutations) {
+            bulk.upsert(new Query(Criteria.where("productId").is(mutation.getStock().getProductId())
+                            .and("warehouseId").is(warehouseId)
+                            .and("quantity").is(mutation.getQuantityBefore())),
+                    new Update().set("quantity", mutation.getQuantityAfter()).inc("version", 1L).set("lastUpdated", now));
+        }
+
+        Map<Integer, BulkWriteError> errors = new HashMap<>();
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Unordered: every write without an error of its own was applied
+            e.getErrors().forEach(error -> errors.put(error.getIndex(), error));
+        }
+
+        for (int i = 0; i < mutations.size(); i++) {
+            StockMutation mutation = mutations.get(i);
+            BulkWriteError error = errors.get(i);
+            if (error == null) {
+                write.getApplied().add(mutation);
+            } else if (error.getCode() == 11000) {
+                write.getConflicts().add(mutation);
+            } else {
+                write.getErrors().add("Could not set stock for product " + mutation.getStock().getProductId() +
+                        ": " + error.getMessage());
+            }
+        }
+
+        dashboardRollupService.recordStockChanges(write.getApplied());
+        return write;
+    }
+
+    /**
+     * Applies a batch with one read and one unordered bulk write. Each write only matches while
+     * its row still holds the quantity that was read, so before/after values are exact, and tags
+     * the row with the line's key in the same update; the tags read back tell which writes landed
+     * when some didn't. Lines that lost a race to another request are read and written again.
+     * The tags stay until the caller clears them, so a crash at any point leaves a record of
+     * exactly which lines are on the rows.
+     */
+    private List<StockMutation> applyAll(String warehouseId, String reference, List<StockLine> lines, int sign) {
+        StockMutation[] applied = new StockMutation[lines.size()];
+        List<Integer> pending = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            pending.add(i);
+        }
+
+        int attempts = 0;
+        while (!pending.isEmpty()) {
+            Map<String, Stock> rows = findRows(warehouseId, productIds(lines, pending));
+            LocalDateTime now = LocalDateTime.now();
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Stock.class);
+            Map<Integer, StockMutation> written = new LinkedHashMap<>();
+            // A product on several lines gets one write per round, the next round reads its result
+            Set<String> productsWritten = new HashSet<>();
+            List<Integer> next = new ArrayList<>();
+
+            for (int i : pending) {
+                StockLine line = lines.get(i);
+                String key = key(reference, i);
+                Stock row = rows.get(line.getProductId());
+                Stock.AppliedLine existing = tag(row, key);
+                if (existing != null) {
+                    // Written by an earlier attempt at this document, e.g. one that died
+                    applied[i] = mutation(row, existing);
+                    continue;
+                }
+                if (!productsWritten.add(line.getProductId())) {
+                    next.add(i);
+                    continue;
+                }
+                int before = row != null ? row.getQuantity() : 0;
+                int delta = sign * line.getQuantity();
+                if (sign < 0 && (row == null || before + delta < 0)) {
+                    throw revert(warehouseId, reference, lines, applied,
+                            rejected(line.getProductId(), warehouseId, line.getQuantity(), row));
+                }
+
+                // A missing row is upserted: when one was created since the read, the insert
+                // fails on the unique product/warehouse index and the line goes round again
+                Stock.AppliedLine tag = new Stock.AppliedLine(key, new ObjectId().toHexString(),
+                        before, delta, before + delta, now);
+                Query query = new Query(Criteria.where("productId").is(line.getProductId())
+                        .and("warehouseId").is(warehouseId)
+                        .and("quantity").is(before));
+                Update update = new Update()
+                        .inc("quantity", delta)
+                        .inc("version", 1L)
+                        .set("lastUpdated", now)
+                        .push("applied", tag);
+                if (row != null) {
+                    bulk.updateOne(query, update);
+                } else {
+                    bulk.upsert(query, update);
+                }
+
+                StockMutation mutation = mutation(row != null ? row : new Stock(line.getProductId(), warehouseId, 0), tag);
+                mutation.setCreated(row == null);
+                written.put(i, mutation);
+            }
+            if (written.isEmpty()) {
+                pending = next;
+                continue;
+            }
+
+            // Unordered: every write without an error of its own was applied. A failure other than
+            // a duplicate key leaves the batch, which is put back once it is known what landed.
+            BulkWriteResult result = null;
+            RuntimeException failure = null;
+            try {
+                result = bulk.execute();
+            } catch (BulkOperationException e) {
+                result = e.getResult();
+                for (BulkWriteError error : e.getErrors()) {
+                    if (error.getCode() != 11000) {
+                        failure = new RuntimeException("Could not update stock: " + error.getMessage());
+                    }
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            Set<String> landed;
+            if (result != null && result.getMatchedCount() + result.getUpserts().size() == written.size()) {
+                landed = written.keySet().stream().map(i -> key(reference, i)).collect(Collectors.toSet());
+            } else {
+                try {
+                    landed = findTags(warehouseId, reference, lines, written.keySet());
+                } catch (RuntimeException e) {
+                    // What landed is unknown, the tags on the rows still record it
+                    throw revert(warehouseId, reference, lines, applied, failure != null ? failure : e);
+                }
+            }
+            boolean conflicted = false;
+            for (Map.Entry<Integer, StockMutation> entry : written.entrySet()) {
+                if (landed.contains(key(reference, entry.getKey()))) {
+                    applied[entry.getKey()] = entry.getValue();
+                } else {
+                    next.add(entry.getKey());
+                    conflicted = true;
+                }
+            }
+            if (failure != null) {
+                throw revert(warehouseId, reference, lines, applied, failure);
+            }
+            if (conflicted && ++attempts >= maxAttempts) {
+                throw revert(warehouseId, reference, lines, applied, new RuntimeException(
+                        "Stock in warehouse " + warehouseId + " kept changing, gave up after " + attempts + " attempts"));
+            }
+            pending = next;
+        }
+
+        List<StockMutation> mutations = List.of(applied);
+        dashboardRollupService.recordStockChanges(mutations);
+        return mutations;
+    }
+
+    /**
+     * Put back what a failed batch already applied and return the failure to throw. The batch
+     * is not in the ledger or the rollups yet, so only the stock rows need undoing. Each revert
+     * only matches a row still tagged with its line, so it can't be applied twice; a line it
+     * couldn't take back keeps its tag, which the caller finds with anyApplied.
+     */
+    private RuntimeException revert(String warehouseId, String reference, List<StockLine> lines,
+                                     StockMutation[] applied, RuntimeException failure) {
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Stock.class);
+        boolean any = false;
+        for (int i = 0; i < applied.length; i++) {
+            if (applied[i] == null) {
+                continue;
+            }
+            // An increase is only taken back while the stock is still there to take
+            String key = key(reference, i);
+            Criteria criteria = Criteria.where("productId").is(lines.get(i).getProductId())
+                    .and("warehouseId").is(warehouseId)
+                    .and("applied.key").is(key);
+            if (applied[i].getQuantityChange() > 0) {
+                criteria = criteria.and("quantity").gte(applied[i].getQuantityChange());
+            }
+            bulk.updateOne(new Query(criteria),
+                    new Update()
+                            .inc("quantity", -applied[i].getQuantityChange())
+                            .inc("version", 1L)
+                            .set("lastUpdated", now)
+                            .pull("applied", new Document("key", key)));
+            any = true;
+        }
+        if (!any) {
+            return failure;
+        }
+        try {
+            bulk.execute();
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    private Map<String, Stock> findRows(String warehouseId, Collection<String> productIds) {
+        Query query = new Query(Criteria.where("warehouseId").is(warehouseId).and("productId").in(productIds));
+        Map<String, Stock> rows = new HashMap<>();
+        mongoTemplate.find(query, Stock.class).forEach(row -> rows.put(row.getProductId(), row));
+        return rows;
+    }
+
+    /**
+     * Keys of the given lines whose write landed, read back from the rows' tags
+     */
+    private Set<String> findTags(String warehouseId, String reference, List<StockLine> lines, Collection<Integer> indexes) {
+        Set<String> keys = indexes.stream().map(i -> key(reference, i)).collect(Collectors.toSet());
+        Query query = new Query(Criteria.where("warehouseId").is(warehouseId)
+                .and("productId").in(productIds(lines, indexes))
+                .and("applied.key").in(keys));
+        query.fields().include("applied");
+        Set<String> landed = new HashSet<>();
+        for (Stock row : mongoTemplate.find(query, Stock.class)) {
+            for (Stock.AppliedLine tag : row.getApplied()) {
+                if (keys.contains(tag.getKey())) {
+                    landed.add(tag.getKey());
+                }
+            }
+        }
+        return landed;
+    }
+
+    private static Stock.AppliedLine tag(Stock row, String key) {
+        if (row == null || row.getApplied() == null) {
+            return null;
+        }
+        return row.getApplied().stream().filter(tag -> key.equals(tag.getKey())).findFirst().orElse(null);
+    }
+
+    private static StockMutation mutation(Stock row, Stock.AppliedLine tag) {
+        Stock after = new Stock(row.getProductId(), row.getWarehouseId(), tag.getQuantityAfter());
+        after.setId(row.getId());
+        after.setLocationRack(row.getLocationRack());
+        StockMutation mutation = new StockMutation(after, tag.getQuantityBefore(), tag.getQuantityChange(),
+                tag.getQuantityAfter(), false);
+        mutation.setLedgerId(tag.getLedgerId());
+        return mutation;
+    }
+
+    private static List<String> keys(String reference, List<StockLine> lines) {
+        List<String> keys = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            keys.add(key(reference, i));
+        }
+        return keys;
+    }
+
+    private static Set<String> productIds(List<StockLine> lines, Collection<Integer> indexes) {
+        if (indexes == null) {
+            return lines.stream().map(StockLine::getProductId).collect(Collectors.toSet());
+        }
+        return indexes.stream().map(i -> lines.get(i).getProductId()).collect(Collectors.toSet());
+    }
+
+    private static String key(String reference, int line) {
+        return reference + "/" + line;
+    }
+
+    /**
+     * Upserting increase. An upsert that loses the insert race to a concurrent request fails on
+     * the unique product/warehouse index; the row exists then, so one retry always matches it.
+     */
+    private StockMutation upsert(String productId, String warehouseId, int quantity) {
+        try {
+            return apply(productId, warehouseId, quantity, true).orElseThrow();
+        } catch (DuplicateKeyException e) {
+            return apply(productId, warehouseId, quantity, true).orElseThrow();
+        }
+    }
+
+    private StockMutation recorded(StockMutation mutation) {
+        dashboardRollupService.recordStockChanges(List.of(mutation));
+        return mutation;
+    }
+
+    private Optional<StockMutation> apply(String productId, String warehouseId, int delta, boolean upsert) {
+        Criteria criteria = Criteria.where("productId").is(productId).and("warehouseId").is(warehouseId);
+        if (delta < 0) {
+            criteria = criteria.and("quantity").gte(-delta);
+        }
+
+        Update update = new Update()
+                .inc("quantity", delta)
+                .set("lastUpdated", LocalDateTime.now());
+
+        // Return the pre-image so the ledger gets the exact before quantity
+        Stock before = mongoTemplate.findAndModify(new Query(criteria), update,
+                FindAndModifyOptions.options().returnNew(false).upsert(upsert), Stock.class);
+
+        if (before != null) {
+            Stock after = new Stock(productId, warehouseId, before.getQuantity() + delta);
+            after.setId(before.getId());
+            after.setLocationRack(before.getLocationRack());
+            return Optional.of(new StockMutation(after, before.getQuantity(), delta, after.getQuantity(), false));
+        }
+        if (upsert) {
+            Stock after = new Stock(productId, warehouseId, delta);
+            return Optional.of(new StockMutation(after, 0, delta, delta, true));
+        }
+        return Optional.empty();
+    }
+
+    private RuntimeException rejected(String productId, String warehouseId, Integer requested) {
+        // Only the failure path pays for a second read, to tell missing rows from short ones
+        return rejected(productId, warehouseId, requested,
+                stockRepository.findByProductIdAndWarehouseId(productId, warehouseId).orElse(null));
+    }
+
+    private RuntimeException rejected(String productId, String warehouseId, Integer requested, Stock stock) {
+        if (stock == null) {
+            return new RuntimeException("Stock not found for product " + productId + " in warehouse " + warehouseId);
+        }
+        return new RuntimeException("Insufficient stock. Available: " + stock.getQuantity() + ", Requested: " + requested);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockLine {
+        private String productId;
+        private Integer quantity;
+    }
+
+    @Data
+    public static class CountedWrite {
+        private List<StockMutation> applied = new ArrayList<>();
+        // Rows that moved since they were read, left as they are
+        private List<StockMutation> conflicts = new ArrayList<>();
+        private List<String> errors = new ArrayList<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockMutation {
+        private Stock stock;
+        private Integer quantityBefore;
+        private Integer quantityChange;
+        private Integer quantityAfter;
+        private boolean created;
+        // Set by increaseAll/decreaseAll, the id to give the change's ledger entry
+        private String ledgerId;
+
+        public StockMutation(Stock stock, Integer quantityBefore, Integer quantityChange, Integer quantityAfter,
+                             boolean created) {
+            this(stock, quantityBefore, quantityChange, quantityAfter, created, null);
+        }
+    }
+}
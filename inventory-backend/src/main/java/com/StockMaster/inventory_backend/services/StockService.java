@@ -1,19 +1,30 @@
 package com.StockMaster.inventory_backend.services;
 
+import com.StockMaster.inventory_backend.dto.PageDTO;
 import com.StockMaster.inventory_backend.dto.StockDTO;
 import com.StockMaster.inventory_backend.models.Product;
 import com.StockMaster.inventory_backend.models.Stock;
 import com.StockMaster.inventory_backend.models.Warehouse;
-import com.StockMaster.inventory_backend.repositories.ProductRepository;
 import com.StockMaster.inventory_backend.repositories.StockRepository;
 import com.StockMaster.inventory_backend.repositories.WarehouseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class StockService {
@@ -22,30 +33,80 @@ public class StockService {
     private StockRepository stockRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private WarehouseRepository warehouseRepository;
 
     @Autowired
-    private WarehouseRepository warehouseRepository;
+    private ReferenceDataCache referenceDataCache;
 
     @Autowired
     private StockLedgerService stockLedgerService;
 
+    @Autowired
+    private DashboardRollupService dashboardRollupService;
+
+    @Autowired
+    private StockMutationEngine stockMutationEngine;
+
+    @Autowired
+    private StockSnapshotService stockSnapshotService;
+
+    @Autowired
+    private PagedQueryService pagedQueryService;
+
+    @Autowired
+    private DocumentWorkflowService documentWorkflowService;
+
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "quantity", "warehouseId");
+
+    // The converter looks products and warehouses up by id, so those are always read
+    private static final Map<String, List<String>> PAGE_FIELD_SOURCES = Map.of(
+            "*", List.of("productId", "warehouseId"));
+
+    private static final int STREAM_BATCH_SIZE = 500;
+
     public List<StockDTO> getAllStock() {
-        return stockRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(stockRepository.findAll());
+    }
+
+    /**
+     * All stock rows read from a cursor, for streaming responses. Rows are converted in
+     * batches so product and warehouse lookups stay one $in query per batch. The caller
+     * must close the stream.
+     */
+    public Stream<StockDTO> streamAllStock() {
+        Stream<Stock> rows = stockRepository.streamAllBy();
+        Iterator<Stock> cursor = rows.iterator();
+        Iterator<List<StockDTO>> batches = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public List<StockDTO> next() {
+                List<Stock> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+                while (cursor.hasNext() && batch.size() < STREAM_BATCH_SIZE) {
+                    batch.add(cursor.next());
+                }
+                return convertToDTOs(batch);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED), false)
+                .flatMap(List::stream)
+                .onClose(rows::close);
+    }
+
+    public PageDTO<Object> getStockPage(Pageable pageable, String fields) {
+        return pagedQueryService.page(Stock.class, pageable, SORTABLE_FIELDS, fields, StockDTO.class,
+                PAGE_FIELD_SOURCES, this::convertToDTOs);
     }
 
     public List<StockDTO> getStockByWarehouse(String warehouseId) {
-        return stockRepository.findByWarehouseId(warehouseId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(stockRepository.findByWarehouseId(warehouseId));
     }
 
     public List<StockDTO> getStockByProduct(String productId) {
-        return stockRepository.findByProductId(productId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(stockRepository.findByProductId(productId));
     }
 
     public StockDTO getStockByProductAndWarehouse(String productId, String warehouseId) {
@@ -56,55 +117,70 @@ public class StockService {
 
     public StockDTO createOrUpdateStock(StockDTO stockDTO) {
         // Validate product exists
-        productRepository.findById(stockDTO.getProductId())
+        referenceDataCache.findProduct(stockDTO.getProductId())
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + stockDTO.getProductId()));
 
         // Validate warehouse exists
-        warehouseRepository.findById(stockDTO.getWarehouseId())
+        referenceDataCache.findWarehouse(stockDTO.getWarehouseId())
                 .orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + stockDTO.getWarehouseId()));
 
-        // Check if stock already exists
-        Optional<Stock> existingStock = stockRepository.findByProductIdAndWarehouseId(
-                stockDTO.getProductId(), stockDTO.getWarehouseId());
-
-        Stock stock;
-        if (existingStock.isPresent()) {
-            // Update existing stock
-            stock = existingStock.get();
-            stock.setQuantity(stockDTO.getQuantity());
-            stock.setLocationRack(stockDTO.getLocationRack());
-        } else {
-            // Create new stock
-            stock = new Stock();
-            stock.setProductId(stockDTO.getProductId());
-            stock.setWarehouseId(stockDTO.getWarehouseId());
-            stock.setQuantity(stockDTO.getQuantity());
-            stock.setLocationRack(stockDTO.getLocationRack());
-        }
-        
-        stock.setLastUpdated(LocalDateTime.now());
-        Stock savedStock = stockRepository.save(stock);
-        return convertToDTO(savedStock);
-    }
+        // Versioned save: a stock movement landing between the read and the save fails it, and it is re-read
+        AtomicInteger quantityBefore = new AtomicInteger();
+        AtomicBoolean created = new AtomicBoolean();
+        Stock savedStock = documentWorkflowService.retryOnConflict("stock.upsert", () -> {
+            // Check if stock already exists
+            Optional<Stock> existingStock = stockRepository.findByProductIdAndWarehouseId(
+                    stockDTO.getProductId(), stockDTO.getWarehouseId());
 
-    public StockDTO adjustStock(String productId, String warehouseId, Integer adjustment, String userId, String userName, String reason) {
-        Stock stock = stockRepository.findByProductIdAndWarehouseId(productId, warehouseId)
-                .orElseThrow(() -> new RuntimeException("Stock not found"));
+            Stock stock;
+            quantityBefore.set(0);
+            created.set(existingStock.isEmpty());
+            if (existingStock.isPresent()) {
+                // Update existing stock
+                stock = existingStock.get();
+                quantityBefore.set(stock.getQuantity());
+                stock.setQuantity(stockDTO.getQuantity());
+                stock.setLocationRack(stockDTO.getLocationRack());
+            } else {
+                // Create new stock
+                stock = new Stock();
+                stock.setProductId(stockDTO.getProductId());
+                stock.setWarehouseId(stockDTO.getWarehouseId());
+                stock.setQuantity(stockDTO.getQuantity());
+                stock.setLocationRack(stockDTO.getLocationRack());
+            }
 
-        Integer quantityBefore = stock.getQuantity();
-        Integer quantityAfter = quantityBefore + adjustment;
+            stock.setLastUpdated(LocalDateTime.now());
+            Stock saved = stockRepository.save(stock);
+            dashboardRollupService.recordStockChange(stockDTO.getProductId(), stockDTO.getWarehouseId(),
+                    quantityBefore.get(), saved.getQuantity(), existingStock.isEmpty());
+            return saved;
+        });
 
-        if (quantityAfter < 0) {
-            throw new RuntimeException("Insufficient stock. Cannot reduce below zero.");
+        // Logged like any other movement, so as-of queries replaying the ledger see it
+        int change = savedStock.getQuantity() - quantityBefore.get();
+        if (change != 0 || created.get()) {
+            Product product = referenceDataCache.findProduct(savedStock.getProductId()).orElse(null);
+            Warehouse warehouse = referenceDataCache.findWarehouse(savedStock.getWarehouseId()).orElse(null);
+            stockLedgerService.logStockChange(
+                    savedStock.getProductId(), product != null ? product.getName() : "Unknown",
+                    product != null ? product.getSku() : "Unknown",
+                    savedStock.getWarehouseId(), warehouse != null ? warehouse.getName() : "Unknown",
+                    "ADJUSTMENT", quantityBefore.get(), change, savedStock.getQuantity(),
+                    savedStock.getId(), "ADJUSTMENT",
+                    "system", "System", "Stock set to " + savedStock.getQuantity()
+            );
         }
+        return convertToDTO(savedStock);
+    }
 
-        stock.setQuantity(quantityAfter);
-        stock.setLastUpdated(LocalDateTime.now());
-        Stock updatedStock = stockRepository.save(stock);
+    public StockDTO adjustStock(String productId, String warehouseId, Integer adjustment, String userId, String userName, String reason) {
+        StockMutationEngine.StockMutation mutation = stockMutationEngine.adjust(productId, warehouseId, adjustment);
+        Stock updatedStock = mutation.getStock();
 
         // Log stock change in ledger
-        Product product = productRepository.findById(productId).orElse(null);
-        Warehouse warehouse = warehouseRepository.findById(warehouseId).orElse(null);
+        Product product = referenceDataCache.findProduct(productId).orElse(null);
+        Warehouse warehouse = referenceDataCache.findWarehouse(warehouseId).orElse(null);
 
         String productName = product != null ? product.getName() : "Unknown";
         String productSku = product != null ? product.getSku() : "Unknown";
@@ -113,8 +189,8 @@ public class StockService {
         stockLedgerService.logStockChange(
                 productId, productName, productSku,
                 warehouseId, warehouseName,
-                "ADJUSTMENT", quantityBefore, adjustment, quantityAfter,
-                stock.getId(), "ADJUSTMENT",
+                "ADJUSTMENT", mutation.getQuantityBefore(), adjustment, mutation.getQuantityAfter(),
+                updatedStock.getId(), "ADJUSTMENT",
                 userId, userName, reason != null ? reason : "Manual stock adjustment"
         );
 
@@ -122,9 +198,7 @@ public class StockService {
     }
 
     public List<StockDTO> getLowStock(Integer threshold) {
-        return stockRepository.findByQuantityLessThan(threshold).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(stockRepository.findByQuantityLessThan(threshold));
     }
 
     public Integer getTotalStockForProduct(String productId) {
@@ -133,25 +207,76 @@ public class StockService {
                 .sum();
     }
 
+    /**
+     * Stock on hand at a past point in time, for one warehouse or all of them
+     */
+    public List<StockDTO> getStockAsOf(LocalDateTime timestamp, String warehouseId) {
+        List<String> warehouseIds = warehouseId != null
+                ? List.of(warehouseId)
+                : warehouseRepository.findAll().stream().map(Warehouse::getId).collect(Collectors.toList());
+
+        List<Stock> stocks = new ArrayList<>();
+        for (String id : warehouseIds) {
+            stockSnapshotService.getQuantitiesAsOf(id, timestamp).forEach((productId, quantity) -> {
+                Stock stock = new Stock(productId, id, quantity);
+                stock.setLastUpdated(null);
+                stocks.add(stock);
+            });
+        }
+        return convertToDTOs(stocks);
+    }
+
+    public int takeSnapshots() {
+        return stockSnapshotService.takeSnapshots().size();
+    }
+
     private StockDTO convertToDTO(Stock stock) {
-        StockDTO dto = new StockDTO();
-        dto.setId(stock.getId());
-        dto.setProductId(stock.getProductId());
-        dto.setWarehouseId(stock.getWarehouseId());
-        dto.setQuantity(stock.getQuantity());
-        dto.setLocationRack(stock.getLocationRack());
-
-        // Populate product info
-        productRepository.findById(stock.getProductId()).ifPresent(product -> {
-            dto.setProductName(product.getName());
-            dto.setProductSku(product.getSku());
-        });
+        return convertToDTOs(List.of(stock)).get(0);
+    }
 
-        // Populate warehouse info
-        warehouseRepository.findById(stock.getWarehouseId()).ifPresent(warehouse -> {
-            dto.setWarehouseName(warehouse.getName());
-        });
+    /**
+     * Convert a batch of stock rows, resolving product and warehouse info from the
+     * reference cache in one batch each instead of two lookups per row
+     */
+    private List<StockDTO> convertToDTOs(List<Stock> stocks) {
+        if (stocks.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<String> productIds = stocks.stream()
+                .map(Stock::getProductId)
+                .collect(Collectors.toSet());
+        Set<String> warehouseIds = stocks.stream()
+                .map(Stock::getWarehouseId)
+                .collect(Collectors.toSet());
 
-        return dto;
+        Map<String, Product> products = referenceDataCache.findProducts(productIds);
+        Map<String, Warehouse> warehouses = referenceDataCache.findWarehouses(warehouseIds);
+
+        List<StockDTO> dtos = new ArrayList<>(stocks.size());
+        for (Stock stock : stocks) {
+            StockDTO dto = new StockDTO();
+            dto.setId(stock.getId());
+            dto.setProductId(stock.getProductId());
+            dto.setWarehouseId(stock.getWarehouseId());
+            dto.setQuantity(stock.getQuantity());
+            dto.setLocationRack(stock.getLocationRack());
+
+            // Populate product info
+            Product product = products.get(stock.getProductId());
+            if (product != null) {
+                dto.setProductName(product.getName());
+                dto.setProductSku(product.getSku());
+            }
+
+            // Populate warehouse info
+            Warehouse warehouse = warehouses.get(stock.getWarehouseId());
+            if (warehouse != null) {
+                dto.setWarehouseName(warehouse.getName());
+            }
+
+            dtos.add(dto);
+        }
+        return dtos;
     }
 }
@@ -0,0 +1,207 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.StockLedger;
+import com.StockMaster.inventory_backend.models.StockSnapshot;
+import com.StockMaster.inventory_backend.models.StockSnapshotLine;
+import com.StockMaster.inventory_backend.models.Warehouse;
+import com.StockMaster.inventory_backend.repositories.StockSnapshotRepository;
+import com.StockMaster.inventory_backend.repositories.WarehouseRepository;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Takes periodic per-warehouse checkpoints of stock quantities and answers
+ * point-in-time queries from the nearest checkpoint plus the sum of the ledger changes
+ * logged after it, so an as-of query never replays more than one snapshot interval of
+ * history. Summing changes does not depend on the order entries were stamped in, which
+ * differs from the order they were applied in for concurrent writers and recoveries.
+ */
+@Service
+public class StockSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockSnapshotService.class);
+
+    @Autowired
+    private StockSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+
+    @Autowired
+    private LedgerArchiveService archiveService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${stock.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stock.snapshot.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${stock.snapshot.retention-days:30}")
+    private int retentionDays;
+
+    @Scheduled(cron = "${stock.snapshot.cron:0 0 */6 * * *}")
+    public void scheduledSnapshot() {
+        if (enabled) {
+            takeSnapshots();
+        }
+    }
+
+    /**
+     * Snapshot every warehouse, including empty ones so their as-of queries are bounded too.
+     * Lines are streamed from stock and inserted in batches, and each header is inserted after
+     * all lines, so a snapshot is never read half-written. Snapshots past the retention window
+     * are then removed.
+     *
+     * The headers are stamped with the time the scan finished. Ledger entries are timestamped
+     * after their stock write, so every change logged by then was applied before that time and
+     * as-of queries count it as part of the snapshot. Only a change made to a row after the
+     * scan read it, and logged before the scan finished, is missed; the scan is a single pass
+     * over stock to keep that window short.
+     */
+    public List<StockSnapshot> takeSnapshots() {
+        // Lines keep the start time, which only retention reads
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        Map<String, StockSnapshot> byWarehouse = new HashMap<>();
+        for (Warehouse warehouse : warehouseRepository.findAll()) {
+            byWarehouse.put(warehouse.getId(),
+                    new StockSnapshot(new ObjectId().toHexString(), warehouse.getId(), null, 0));
+        }
+
+        Query stock = new Query().cursorBatchSize(batchSize);
+        stock.fields().include("productId", "warehouseId", "quantity");
+        List<StockSnapshotLine> lines = new ArrayList<>(batchSize);
+        try (Stream<Stock> rows = mongoTemplate.stream(stock, Stock.class)) {
+            rows.forEach(row -> {
+                StockSnapshot snapshot = byWarehouse.get(row.getWarehouseId());
+                if (snapshot == null) {
+                    return; // Stock of a deleted warehouse
+                }
+                snapshot.setLineCount(snapshot.getLineCount() + 1);
+                lines.add(new StockSnapshotLine(null, snapshot.getId(), startedAt, row.getProductId(), row.getQuantity()));
+                if (lines.size() == batchSize) {
+                    mongoTemplate.insertAll(lines);
+                    lines.clear();
+                }
+            });
+        }
+        if (!lines.isEmpty()) {
+            mongoTemplate.insertAll(lines);
+        }
+
+        LocalDateTime takenAt = LocalDateTime.now();
+        byWarehouse.values().forEach(snapshot -> snapshot.setTakenAt(takenAt));
+        List<StockSnapshot> saved = snapshotRepository.insert(byWarehouse.values());
+        log.info("Took stock snapshots of {} warehouses at {}", saved.size(), takenAt);
+        removeExpired(takenAt);
+        return saved;
+    }
+
+    /**
+     * Quantity of every product in a warehouse as of the given time, keyed by product id
+     */
+    public Map<String, Integer> getQuantitiesAsOf(String warehouseId, LocalDateTime timestamp) {
+        Optional<StockSnapshot> snapshot = snapshotRepository
+                .findFirstByWarehouseIdAndTakenAtLessThanEqualOrderByTakenAtDesc(warehouseId, timestamp);
+
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        LocalDateTime replayFrom = null;
+        if (snapshot.isPresent()) {
+            Query lines = new Query(Criteria.where("snapshotId").is(snapshot.get().getId())).cursorBatchSize(batchSize);
+            try (Stream<StockSnapshotLine> stream = mongoTemplate.stream(lines, StockSnapshotLine.class)) {
+                stream.forEach(line -> quantities.put(line.getProductId(), line.getQuantity()));
+            }
+            replayFrom = snapshot.get().getTakenAt();
+        }
+
+        // Archived entries are older than hot ones; hot entries resume after the last archived one,
+        // so an entry an archive run has copied but not yet removed is counted once
+        List<StockLedger> archived = archiveService.findByWarehouseBetween(warehouseId, replayFrom, timestamp);
+        for (StockLedger entry : archived) {
+            if (entry.getQuantityChange() != null) {
+                quantities.merge(entry.getProductId(), entry.getQuantityChange(), Integer::sum);
+            }
+        }
+        StockLedger lastArchived = archived.isEmpty() ? null : archived.get(archived.size() - 1);
+        changesInHotLedger(warehouseId, replayFrom, lastArchived, timestamp)
+                .forEach((productId, change) -> quantities.merge(productId, change, Integer::sum));
+
+        return quantities;
+    }
+
+    /**
+     * Drop snapshots older than the retention window. As-of queries before the oldest one left
+     * replay the ledger from its start. Headers go first so no reader finds one without its lines;
+     * lines are removed by their own timestamp, which also clears those of an interrupted run.
+     */
+    private void removeExpired(LocalDateTime now) {
+        if (retentionDays <= 0) {
+            return;
+        }
+        Query expired = new Query(Criteria.where("takenAt").lt(now.minusDays(retentionDays)));
+        long snapshots = mongoTemplate.remove(expired, StockSnapshot.class).getDeletedCount();
+        long lines = mongoTemplate.remove(expired, StockSnapshotLine.class).getDeletedCount();
+        if (snapshots > 0 || lines > 0) {
+            log.info("Removed {} stock snapshots ({} lines) older than {} days", snapshots, lines, retentionDays);
+        }
+    }
+
+    /**
+     * Net change per product of the hot entries in (after, until], past resumeAfter when given
+     */
+    private Map<String, Integer> changesInHotLedger(String warehouseId, LocalDateTime after, StockLedger resumeAfter,
+                                                    LocalDateTime until) {
+        Document createdAt = new Document("$lte", toDate(until));
+        if (after != null) {
+            createdAt.append("$gt", toDate(after));
+        }
+        Document match = new Document("warehouseId", warehouseId).append("createdAt", createdAt);
+        if (resumeAfter != null) {
+            Date lastAt = toDate(resumeAfter.getCreatedAt());
+            match.append("$or", List.of(
+                    new Document("createdAt", new Document("$gt", lastAt)),
+                    new Document("createdAt", lastAt).append("_id", new Document("$gt", new ObjectId(resumeAfter.getId())))));
+        }
+
+        Aggregation changePerProduct = Aggregation.newAggregation(
+                Aggregation.stage(new Document("$match", match)),
+                Aggregation.stage(new Document("$group", new Document("_id", "$productId")
+                        .append("change", new Document("$sum", "$quantityChange"))))
+        );
+
+        Map<String, Integer> changes = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(changePerProduct, "stock_ledger", Document.class)) {
+            changes.put(row.getString("_id"), ((Number) row.get("change")).intValue());
+        }
+        return changes;
+    }
+
+    private static Date toDate(LocalDateTime time) {
+        return Date.from(time.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -1,13 +1,17 @@
 package com.StockMaster.inventory_backend.services;
 
+import com.StockMaster.inventory_backend.dto.PageDTO;
 import com.StockMaster.inventory_backend.dto.WarehouseDTO;
 import com.StockMaster.inventory_backend.models.Warehouse;
 import com.StockMaster.inventory_backend.repositories.WarehouseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,12 +20,25 @@ public class WarehouseService {
     @Autowired
     private WarehouseRepository warehouseRepository;
 
+    @Autowired
+    private PagedQueryService pagedQueryService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "name");
+
     public List<WarehouseDTO> getAllWarehouses() {
         return warehouseRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    public PageDTO<Object> getWarehousesPage(Pageable pageable, String fields) {
+        return pagedQueryService.page(Warehouse.class, pageable, SORTABLE_FIELDS, fields, WarehouseDTO.class, Map.of(),
+                warehouses -> warehouses.stream().map(this::convertToDTO).collect(Collectors.toList()));
+    }
+
     public List<WarehouseDTO> getActiveWarehouses() {
         return warehouseRepository.findByActive(true).stream()
                 .map(this::convertToDTO)
@@ -29,7 +46,7 @@ public class WarehouseService {
     }
 
     public WarehouseDTO getWarehouseById(String id) {
-        Warehouse warehouse = warehouseRepository.findById(id)
+        Warehouse warehouse = referenceDataCache.findWarehouse(id)
                 .orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + id));
         return convertToDTO(warehouse);
     }
@@ -48,6 +65,7 @@ public class WarehouseService {
         warehouse.setUpdatedAt(LocalDateTime.now());
 
         Warehouse savedWarehouse = warehouseRepository.save(warehouse);
+        referenceDataCache.putWarehouse(savedWarehouse);
         return convertToDTO(savedWarehouse);
     }
 
@@ -67,6 +85,7 @@ public class WarehouseService {
         warehouse.setUpdatedAt(LocalDateTime.now());
 
         Warehouse updatedWarehouse = warehouseRepository.save(warehouse);
+        referenceDataCache.putWarehouse(updatedWarehouse);
         return convertToDTO(updatedWarehouse);
     }
 
@@ -77,6 +96,7 @@ public class WarehouseService {
         warehouse.setActive(false);
         warehouse.setUpdatedAt(LocalDateTime.now());
         warehouseRepository.save(warehouse);
+        referenceDataCache.putWarehouse(warehouse);
     }
 
     private WarehouseDTO convertToDTO(Warehouse warehouse) {
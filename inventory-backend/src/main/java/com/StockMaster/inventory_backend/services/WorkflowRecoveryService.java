@@ -0,0 +1,163 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.Delivery;
+import com.StockMaster.inventory_backend.models.InternalTransfer;
+import com.StockMaster.inventory_backend.models.Receipt;
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.WorkflowDocument;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Sweeps up VALIDATING and COMPLETING claims that were never finished, because the instance
+ * holding them died or its final write failed. Every stock change a document makes tags its
+ * stock row in the same update (see StockMutationEngine), so a claim older than
+ * workflow.recovery.stale-after-ms is handed back to DRAFT when no row carries one of its
+ * tags, and otherwise finished by its service: lines not yet applied are applied, the ledger
+ * entries are written under the ids kept in the tags, so any the dead request did write are
+ * not repeated, and the document moves on for the user who claimed it. A delivery that can
+ * no longer be finished because stock ran short has its applied lines taken back out and is
+ * handed back instead.
+ *
+ * Tags of finished documents are normally cleared right after the final transition; the sweep
+ * also clears those left behind by a request that died in between.
+ */
+@Service
+public class WorkflowRecoveryService {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowRecoveryService.class);
+
+    private static final Set<String> FINISHED = Set.of("VALIDATED", "COMPLETED");
+
+    @Autowired
+    private DocumentWorkflowService documentWorkflowService;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private InternalTransferService internalTransferService;
+
+    @Autowired
+    private StockMutationEngine stockMutationEngine;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${workflow.recovery.enabled:true}")
+    private boolean enabled;
+
+    @Value("${workflow.recovery.stale-after-ms:900000}")
+    private long staleAfterMs;
+
+    @Value("${workflow.recovery.batch-size:100}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${workflow.recovery.interval-ms:60000}",
+            initialDelayString = "${workflow.recovery.interval-ms:60000}")
+    public void scheduledRecovery() {
+        if (enabled) {
+            recoverStaleClaims();
+        }
+    }
+
+    /**
+     * Finish or hand back every stale claim and clear stale tags, returning how many of each
+     * kind were recovered
+     */
+    public Map<String, Integer> recoverStaleClaims() {
+        Map<String, Integer> recovered = new LinkedHashMap<>();
+        LocalDateTime staleBefore = LocalDateTime.now().minusNanos(staleAfterMs * 1_000_000);
+        recovered.put("receipts", recover(Receipt.class, "VALIDATING", staleBefore, receiptService::recoverClaim));
+        recovered.put("deliveries", recover(Delivery.class, "VALIDATING", staleBefore, deliveryService::recoverClaim));
+        recovered.put("transfers", recover(InternalTransfer.class, "COMPLETING", staleBefore,
+                internalTransferService::recoverClaim));
+        recovered.put("stockTags", clearFinishedTags(staleBefore));
+        return recovered;
+    }
+
+    private <T extends WorkflowDocument> int recover(Class<T> type, String claimed, LocalDateTime claimedBefore,
+                                                     Function<T, String> recovery) {
+        int recovered = 0;
+        List<T> stale = documentWorkflowService.findStaleClaims(type, claimed, claimedBefore, batchSize);
+        for (T document : stale) {
+            try {
+                String outcome = recovery.apply(document);
+                meterRegistry.counter("workflow.recovered", "type", type.getSimpleName(), "outcome", outcome).increment();
+                log.warn("Recovered stale {} claim on {} {} (claimed by {} at {}): {}", claimed, type.getSimpleName(),
+                        document.getId(), document.getClaimedBy(), document.getClaimedAt(), outcome);
+                recovered++;
+            } catch (RuntimeException e) {
+                // The original request finished it after all, or it can't be finished and was
+                // handed back; the next sweep sees the outcome
+                log.warn("Could not recover {} {}: {}", type.getSimpleName(), document.getId(), e.getMessage());
+            }
+        }
+        return recovered;
+    }
+
+    /**
+     * Clear tags older than the stale age whose document is finished or gone. Tags of documents
+     * still claimed are left to the claim's recovery; a tag on a document in any other status
+     * means a stock change nothing accounts for and is logged for a look.
+     */
+    private int clearFinishedTags(LocalDateTime appliedBefore) {
+        int cleared = 0;
+        Query query = new Query(Criteria.where("applied.appliedAt").lt(appliedBefore)).limit(batchSize);
+        for (Stock row : mongoTemplate.find(query, Stock.class)) {
+            for (Stock.AppliedLine tag : row.getApplied()) {
+                if (!tag.getAppliedAt().isBefore(appliedBefore)) {
+                    continue;
+                }
+                String status = documentStatus(tag.getKey());
+                if (status == null || FINISHED.contains(status)) {
+                    stockMutationEngine.clearApplied(row.getId(), tag.getKey());
+                    cleared++;
+                } else if (!"VALIDATING".equals(status) && !"COMPLETING".equals(status)) {
+                    log.error("Stock {} carries tag {} of a {} document, its change of {} needs checking",
+                            row.getId(), tag.getKey(), status, tag.getQuantityChange());
+                }
+            }
+        }
+        return cleared;
+    }
+
+    /**
+     * Status of the document a tag key (TYPE:id[:side]/line) belongs to, null when it is gone
+     */
+    private String documentStatus(String key) {
+        String[] parts = key.substring(0, key.lastIndexOf('/')).split(":");
+        Class<? extends WorkflowDocument> type = switch (parts[0]) {
+            case "RECEIPT" -> Receipt.class;
+            case "DELIVERY" -> Delivery.class;
+            case "TRANSFER" -> InternalTransfer.class;
+            default -> null;
+        };
+        if (type == null) {
+            return "UNKNOWN";
+        }
+        WorkflowDocument document = mongoTemplate.findById(parts[1], type);
+        return document != null ? document.getStatus() : null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.StockMaster.inventory_backend.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AdminEndpointSecurityTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	@WithMockUser(roles = "USER")
+	void maintenanceEndpointsAreForbiddenToUsers() throws Exception {
+		mockMvc.perform(get("/api/dashboard/recompute")).andExpect(status().isForbidden());
+		mockMvc.perform(post("/api/dashboard/rollups/rebuild")).andExpect(status().isForbidden());
+		mockMvc.perform(get("/api/exports/status")).andExpect(status().isForbidden());
+		mockMvc.perform(post("/api/ledger/archive/run")).andExpect(status().isForbidden());
+		mockMvc.perform(put("/api/auth/users/someone@example.com/role")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"role\": \"ADMIN\"}"))
+				.andExpect(status().isForbidden());
+		mockMvc.perform(post("/api/stock/snapshots"))
+				.andExpect(status().isForbidden())
+				.andExpect(jsonPath("$.message").value("Only admins can use this endpoint"));
+	}
+
+	@Test
+	@WithMockUser(roles = "ADMIN")
+	void maintenanceEndpointsAreOpenToAdmins() throws Exception {
+		mockMvc.perform(get("/api/exports/status")).andExpect(status().isOk());
+		mockMvc.perform(get("/api/dashboard/rollups/consistency")).andExpect(status().isOk());
+	}
+
+	@Test
+	void metricsNeedTheScrapeAccount() throws Exception {
+		mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/actuator/prometheus").with(httpBasic("prometheus", "wrong")))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/actuator/prometheus").with(httpBasic("prometheus", "scrape-secret")))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+	}
+
+	@Test
+	@WithMockUser(roles = "USER")
+	void metricsAreForbiddenToUsers() throws Exception {
+		mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+	}
+}
@@ -0,0 +1,84 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.dto.AuthResponse;
+import com.StockMaster.inventory_backend.dto.RegisterRequest;
+import com.StockMaster.inventory_backend.models.User;
+import com.StockMaster.inventory_backend.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AuthServiceTests {
+
+	@Autowired
+	private AuthService authService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JsonMapper jsonMapper;
+
+	private final String email = "register-" + UUID.randomUUID() + "@example.com";
+	private final String otherEmail = "register-" + UUID.randomUUID() + "@example.com";
+
+	@AfterEach
+	void cleanUp() {
+		ReflectionTestUtils.setField(authService, "bootstrapAdminEmail", "");
+		ReflectionTestUtils.setField(authService, "bootstrapAdminPassword", "");
+		userRepository.findByEmail(email).ifPresent(userRepository::delete);
+		userRepository.findByEmail(otherEmail).ifPresent(userRepository::delete);
+	}
+
+	@Test
+	void registrationCannotChooseItsRole() {
+		RegisterRequest request = jsonMapper.readValue(
+				"{\"email\": \"" + email + "\", \"password\": \"secret123\", \"role\": \"ADMIN\"}", RegisterRequest.class);
+
+		AuthResponse response = authService.register(request);
+
+		User user = userRepository.findByEmail(email).orElseThrow();
+		assertEquals("USER", user.getRole());
+		assertEquals("USER", response.getRole());
+	}
+
+	@Test
+	void theBootstrapAdminIsOnlyCreatedWhileThereIsNone() {
+		ReflectionTestUtils.setField(authService, "bootstrapAdminEmail", email);
+		ReflectionTestUtils.setField(authService, "bootstrapAdminPassword", "secret123");
+		authService.bootstrapAdmin();
+		assertEquals("ADMIN", userRepository.findByEmail(email).orElseThrow().getRole());
+
+		ReflectionTestUtils.setField(authService, "bootstrapAdminEmail", otherEmail);
+		authService.bootstrapAdmin();
+		assertTrue(userRepository.findByEmail(otherEmail).isEmpty());
+	}
+
+	@Test
+	void adminsCanPromoteUsersButNotDemoteTheLastAdmin() {
+		ReflectionTestUtils.setField(authService, "bootstrapAdminEmail", email);
+		ReflectionTestUtils.setField(authService, "bootstrapAdminPassword", "secret123");
+		authService.bootstrapAdmin();
+		authService.register(new RegisterRequest(otherEmail, "secret123"));
+
+		assertThrows(RuntimeException.class, () -> authService.changeRole(otherEmail, "OWNER"));
+		assertThrows(RuntimeException.class, () -> authService.changeRole(email, "USER"));
+
+		authService.changeRole(otherEmail, "ADMIN");
+		authService.changeRole(email, "USER");
+		assertEquals("USER", userRepository.findByEmail(email).orElseThrow().getRole());
+		assertEquals("ADMIN", userRepository.findByEmail(otherEmail).orElseThrow().getRole());
+	}
+}
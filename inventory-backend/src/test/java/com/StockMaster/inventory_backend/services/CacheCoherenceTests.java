@@ -0,0 +1,89 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.dto.ProductDTO;
+import com.StockMaster.inventory_backend.models.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Writes go straight through MongoTemplate, the way another instance's writes would
+ * look to this one. Needs a replica set, e.g. docker-compose.replica-set.yml.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CacheCoherenceTests {
+
+	private static final long TIMEOUT_MS = 10_000;
+
+	@Autowired
+	private CacheCoherenceService cacheCoherenceService;
+
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+
+	@Autowired
+	private ProductSearchService productSearchService;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final String sku = "COHERENCE-" + UUID.randomUUID();
+	private Product product;
+
+	@BeforeEach
+	void setUp() {
+		assumeTrue(cacheCoherenceService.isRunning(), "MongoDB is not a replica set");
+		product = mongoTemplate.insert(new Product("Coherence probe", sku, "Test", "pcs", 0));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		if (product != null) {
+			mongoTemplate.remove(new Query(Criteria.where("sku").is(sku)), Product.class);
+		}
+	}
+
+	@Test
+	void updateOnAnotherNodeEvictsCachedProduct() throws Exception {
+		await(() -> referenceDataCache.findProduct(product.getId()).isPresent());
+
+		mongoTemplate.updateFirst(new Query(Criteria.where("id").is(product.getId())),
+				Update.update("name", "Coherence probe renamed"), Product.class);
+
+		await(() -> "Coherence probe renamed".equals(referenceDataCache.findProduct(product.getId()).orElseThrow().getName()));
+		assertEquals("Coherence probe renamed", referenceDataCache.findProductBySku(sku).orElseThrow().getName());
+	}
+
+	@Test
+	void deleteOnAnotherNodeRemovesProductFromSearch() throws Exception {
+		await(() -> productSearchService.search(sku, 1).stream().map(ProductDTO::getSku).anyMatch(sku::equals));
+
+		mongoTemplate.remove(new Query(Criteria.where("id").is(product.getId())), Product.class);
+
+		await(() -> productSearchService.search(sku, 1).stream().map(ProductDTO::getSku).noneMatch(sku::equals));
+		assertTrue(referenceDataCache.findProduct(product.getId()).isEmpty());
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for cache invalidation");
+			Thread.sleep(50);
+		}
+	}
+}
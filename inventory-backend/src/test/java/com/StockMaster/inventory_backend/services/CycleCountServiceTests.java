@@ -0,0 +1,117 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.dto.CycleCountDTO;
+import com.StockMaster.inventory_backend.dto.CycleCountResultDTO;
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.StockLedger;
+import com.StockMaster.inventory_backend.models.Warehouse;
+import com.StockMaster.inventory_backend.repositories.StockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CycleCountServiceTests {
+
+	@Autowired
+	private CycleCountService cycleCountService;
+
+	@Autowired
+	private StockMutationEngine stockMutationEngine;
+
+	@Autowired
+	private StockLedgerService stockLedgerService;
+
+	@Autowired
+	private StockRepository stockRepository;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final String sku = "COUNT-" + UUID.randomUUID();
+	private Warehouse warehouse;
+	private Product large;
+	private Product small;
+
+	@BeforeEach
+	void setUp() {
+		warehouse = mongoTemplate.insert(new Warehouse("Count " + sku, "Test"));
+		large = mongoTemplate.insert(new Product("Count large", sku + "-L", "Test", "pcs", 0));
+		small = mongoTemplate.insert(new Product("Count small", sku + "-S", "Test", "pcs", 0));
+		stockMutationEngine.increase(large.getId(), warehouse.getId(), 100);
+		stockMutationEngine.increase(small.getId(), warehouse.getId(), 100);
+		// One change per chunk, the larger variance goes first
+		ReflectionTestUtils.setField(cycleCountService, "chunkSize", 1);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		ReflectionTestUtils.setField(cycleCountService, "chunkSize", 1000);
+		ReflectionTestUtils.setField(cycleCountService, "stockLedgerService", stockLedgerService);
+		mongoTemplate.remove(new Query(Criteria.where("warehouseId").is(warehouse.getId())), Stock.class);
+		mongoTemplate.remove(new Query(Criteria.where("warehouseId").is(warehouse.getId())), StockLedger.class);
+		mongoTemplate.remove(new Query(Criteria.where("sku").regex("^" + sku)), Product.class);
+		mongoTemplate.remove(warehouse);
+	}
+
+	@Test
+	void aFailedLedgerWriteRevertsItsChunkAndARerunFinishesTheCount() {
+		StockLedgerService failing = mock(StockLedgerService.class);
+		when(failing.createLedgerEntries(anyList()))
+				.thenAnswer(invocation -> stockLedgerService.createLedgerEntries(invocation.getArgument(0)))
+				.thenThrow(new RuntimeException("ledger unavailable"));
+		ReflectionTestUtils.setField(cycleCountService, "stockLedgerService", failing);
+
+		CycleCountResultDTO stopped = cycleCountService.reconcile(warehouse.getId(), count(), false, "counter");
+
+		assertFalse(stopped.isComplete());
+		assertEquals(1, stopped.getAdjusted());
+		assertEquals(50, quantity(large));
+		assertEquals(100, quantity(small));
+		assertEquals(1, ledgerEntries(stopped.getCountId()));
+
+		ReflectionTestUtils.setField(cycleCountService, "stockLedgerService", stockLedgerService);
+		CycleCountResultDTO rerun = cycleCountService.reconcile(warehouse.getId(), count(), false, "counter");
+
+		assertTrue(rerun.isComplete());
+		assertEquals(1, rerun.getUnchanged());
+		assertEquals(1, rerun.getAdjusted());
+		assertEquals(90, quantity(small));
+		assertEquals(1, ledgerEntries(rerun.getCountId()));
+	}
+
+	private CycleCountDTO count() {
+		CycleCountDTO count = new CycleCountDTO();
+		count.setLines(List.of(
+				new CycleCountDTO.CountLine(large.getId(), null, 50),
+				new CycleCountDTO.CountLine(small.getId(), null, 90)));
+		return count;
+	}
+
+	private int quantity(Product product) {
+		return stockRepository.findByProductIdAndWarehouseId(product.getId(), warehouse.getId()).orElseThrow().getQuantity();
+	}
+
+	private long ledgerEntries(String countId) {
+		return mongoTemplate.count(new Query(Criteria.where("referenceId").is(countId)), StockLedger.class);
+	}
+}
@@ -0,0 +1,86 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.DashboardRollup;
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.models.Stock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DashboardRollupServiceTests {
+
+	@Autowired
+	private DashboardRollupService dashboardRollupService;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final String sku = "ROLLUP-" + UUID.randomUUID();
+	private final String warehouseId = "rollup-warehouse-" + UUID.randomUUID();
+
+	@AfterEach
+	void cleanUp() {
+		mongoTemplate.remove(new Query(Criteria.where("warehouseId").is(warehouseId)), Stock.class);
+		mongoTemplate.remove(new Query(Criteria.where("sku").regex("^" + sku)), Product.class);
+		dashboardRollupService.rebuild();
+	}
+
+	@Test
+	void deltasBeforeTheFirstReadDoNotPassForABuiltView() {
+		Product product = mongoTemplate.insert(new Product("Rollup probe", sku, "Test", "pcs", 0));
+		mongoTemplate.insert(new Stock(product.getId(), warehouseId, 40));
+
+		// An existing database with no view yet: the first movement upserts only its own delta
+		mongoTemplate.dropCollection(DashboardRollup.class);
+		dashboardRollupService.recordStockChange(product.getId(), warehouseId, 40, 45, false);
+
+		DashboardRollup totals = totals(dashboardRollupService.getRollups());
+		assertNotNull(totals.getBuiltAt());
+		assertEquals(expectedTotal(), totals.getQuantity());
+	}
+
+	@Test
+	void rebuildSwapsInACompleteView() {
+		Product product = mongoTemplate.insert(new Product("Rollup probe", sku, "Test", "pcs", 0));
+		mongoTemplate.insert(new Stock(product.getId(), warehouseId, 12));
+
+		List<DashboardRollup> rebuilt = dashboardRollupService.rebuild();
+
+		assertEquals(rebuilt.size(), mongoTemplate.count(new Query(), DashboardRollup.class));
+		assertEquals(true, dashboardRollupService.checkConsistency().get("consistent"));
+		assertTrue(mongoTemplate.getCollectionNames().stream().noneMatch(name -> name.contains("_rebuild_")));
+	}
+
+	@Test
+	void productsWithoutCategoryAreCounted() {
+		Product product = new Product("Rollup probe", sku, null, "pcs", 0);
+
+		assertDoesNotThrow(() -> dashboardRollupService.recordProductsCreated(List.of(product)));
+	}
+
+	private long expectedTotal() {
+		return totals(dashboardRollupService.computeRollups()).getQuantity();
+	}
+
+	private static DashboardRollup totals(List<DashboardRollup> rollups) {
+		return rollups.stream()
+				.filter(rollup -> DashboardRollup.TOTALS.equals(rollup.getId()))
+				.findFirst()
+				.orElseThrow();
+	}
+}
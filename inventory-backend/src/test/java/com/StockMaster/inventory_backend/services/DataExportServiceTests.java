@@ -0,0 +1,119 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.StockLedger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DataExportServiceTests {
+
+	@Autowired
+	private DataExportService dataExportService;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Value("${export.directory:data/exports}")
+	private String directory;
+
+	@TempDir
+	private Path exports;
+
+	private final String referenceId = "EXPORT-" + UUID.randomUUID();
+
+	@BeforeEach
+	void useTempDirectory() {
+		ReflectionTestUtils.setField(dataExportService, "directory", exports.toString());
+	}
+
+	@AfterEach
+	void cleanUp() {
+		ReflectionTestUtils.setField(dataExportService, "directory", directory);
+		mongoTemplate.remove(new Query(Criteria.where("referenceId").is(referenceId)), StockLedger.class);
+	}
+
+	@Test
+	void entriesWrittenLateAreExportedOnceByTheNextRun() throws Exception {
+		LocalDateTime now = LocalDateTime.now();
+		StockLedger first = entry(now.minusMinutes(10));
+		run(DataExportService.LEDGER);
+
+		// Stamped before the last run's newest entry but only written now, e.g. a replayed buffer
+		StockLedger late = entry(now.minusMinutes(20));
+		StockLedger next = entry(now.minusMinutes(5));
+		run(DataExportService.LEDGER);
+		run(DataExportService.LEDGER);
+
+		List<String> ids = exportedIds();
+		assertEquals(1, ids.stream().filter(first.getId()::equals).count());
+		assertEquals(1, ids.stream().filter(late.getId()::equals).count());
+		assertEquals(1, ids.stream().filter(next.getId()::equals).count());
+	}
+
+	@Test
+	void aRunStartsInTheBackgroundAndReportsItsResult() throws Exception {
+		DataExportService.ExportRun run = run(DataExportService.LEDGER);
+
+		assertEquals("SUCCEEDED", run.getState());
+		assertNull(run.getError());
+		assertNotNull(run.getResult());
+		assertEquals(run, dataExportService.getRun(run.getId()));
+	}
+
+	private StockLedger entry(LocalDateTime createdAt) {
+		StockLedger entry = new StockLedger("export-product", "Export probe", "EXPORT-SKU", "export-warehouse",
+				"Export", "ADJUSTMENT", 0, 1, 1, referenceId, "TEST", "test", "test");
+		entry.setCreatedAt(createdAt);
+		return mongoTemplate.insert(entry);
+	}
+
+	private DataExportService.ExportRun run(String dataset) throws InterruptedException {
+		DataExportService.ExportRun run = dataExportService.startExport(dataset, false);
+		assertNotNull(run);
+		for (int i = 0; i < 600 && run.isRunning(); i++) {
+			Thread.sleep(100);
+		}
+		return run;
+	}
+
+	private List<String> exportedIds() throws IOException {
+		List<String> ids = new ArrayList<>();
+		try (Stream<Path> files = Files.walk(exports.resolve(DataExportService.LEDGER))) {
+			for (Path file : (Iterable<Path>) files.filter(path -> path.toString().endsWith(".csv.gz"))::iterator) {
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+						new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+					reader.lines().skip(1).forEach(line -> ids.add(line.substring(0, line.indexOf(','))));
+				}
+			}
+		}
+		return ids;
+	}
+}
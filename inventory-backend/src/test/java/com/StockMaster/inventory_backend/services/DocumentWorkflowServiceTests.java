@@ -0,0 +1,86 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.Receipt;
+import com.StockMaster.inventory_backend.repositories.ReceiptRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DocumentWorkflowServiceTests {
+
+	private static final int THREADS = 16;
+
+	@Autowired
+	private DocumentWorkflowService documentWorkflowService;
+
+	@Autowired
+	private ReceiptRepository receiptRepository;
+
+	private Receipt receipt;
+
+	@BeforeEach
+	void createDraft() {
+		receipt = new Receipt();
+		receipt.setStatus("DRAFT");
+		receipt.setItems(List.of());
+		receipt.setCreatedAt(LocalDateTime.now());
+		receipt = receiptRepository.save(receipt);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		receiptRepository.deleteById(receipt.getId());
+	}
+
+	@Test
+	void onlyOneConcurrentClaimWins() throws Exception {
+		AtomicInteger claimed = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int i = 0; i < THREADS; i++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				try {
+					documentWorkflowService.transition(Receipt.class, receipt.getId(), "DRAFT", "VALIDATING",
+							Map.of(), current -> new RuntimeException("Receipt is " + current.getStatus()));
+					claimed.incrementAndGet();
+				} catch (RuntimeException e) {
+					rejected.incrementAndGet();
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		Receipt stored = receiptRepository.findById(receipt.getId()).orElseThrow();
+		assertEquals(1, claimed.get());
+		assertEquals(THREADS - 1, rejected.get());
+		assertEquals("VALIDATING", stored.getStatus());
+		assertEquals(receipt.getVersion() + 1, stored.getVersion());
+	}
+}
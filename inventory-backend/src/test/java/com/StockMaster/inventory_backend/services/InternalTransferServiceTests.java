@@ -0,0 +1,61 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.InternalTransfer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InternalTransferServiceTests {
+
+	@Autowired
+	private InternalTransferService internalTransferService;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final List<String> transferIds = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() {
+		mongoTemplate.remove(new Query(Criteria.where("id").in(transferIds)), InternalTransfer.class);
+	}
+
+	@Test
+	void onlyDraftAndCancelledTransfersCanBeDeleted() {
+		InternalTransfer draft = transfer("DRAFT");
+		InternalTransfer cancelled = transfer("CANCELLED");
+		InternalTransfer completing = transfer("COMPLETING");
+
+		internalTransferService.deleteTransfer(draft.getId());
+		internalTransferService.deleteTransfer(cancelled.getId());
+		assertThrows(RuntimeException.class, () -> internalTransferService.deleteTransfer(completing.getId()));
+
+		assertNull(mongoTemplate.findById(draft.getId(), InternalTransfer.class));
+		assertNull(mongoTemplate.findById(cancelled.getId(), InternalTransfer.class));
+		assertNotNull(mongoTemplate.findById(completing.getId(), InternalTransfer.class));
+	}
+
+	private InternalTransfer transfer(String status) {
+		InternalTransfer transfer = new InternalTransfer();
+		transfer.setProductId("delete-product");
+		transfer.setQuantity(1);
+		transfer.setStatus(status);
+		transfer = mongoTemplate.insert(transfer);
+		transferIds.add(transfer.getId());
+		return transfer;
+	}
+}
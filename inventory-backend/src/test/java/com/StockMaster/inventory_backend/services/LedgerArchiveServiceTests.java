@@ -0,0 +1,129 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.dto.LedgerPageDTO;
+import com.StockMaster.inventory_backend.models.StockLedger;
+import com.StockMaster.inventory_backend.models.StockLedgerBucket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "ledger.archive.bucket-max-entries=10")
+@ActiveProfiles("test")
+class LedgerArchiveServiceTests {
+
+	private static final int ARCHIVED = 25;
+	private static final int HOT = 5;
+
+	@Autowired
+	private LedgerArchiveService archiveService;
+
+	@Autowired
+	private StockLedgerService ledgerService;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final String productId = "archive-product-" + UUID.randomUUID();
+	private final String changeType = "ARCHIVE-TEST-" + UUID.randomUUID();
+	private final LocalDateTime oldest = LocalDateTime.now().minusDays(200).truncatedTo(ChronoUnit.DAYS);
+
+	@BeforeEach
+	void createEntries() {
+		List<StockLedger> entries = new ArrayList<>();
+		for (int i = 0; i < ARCHIVED + HOT; i++) {
+			StockLedger entry = new StockLedger(productId, "Archive probe", "ARCHIVE-SKU", "archive-warehouse",
+					"Archive warehouse", changeType, i, 1, i + 1, "ref-" + i, "ADJUSTMENT", "archive-user", "Archive user");
+			// The last HOT entries stay inside the hot window
+			entry.setCreatedAt(i < ARCHIVED ? oldest.plusMinutes(i) : LocalDateTime.now().minusMinutes(HOT - i));
+			entries.add(entry);
+		}
+		mongoTemplate.insertAll(entries);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		mongoTemplate.remove(new Query(Criteria.where("productId").is(productId)), StockLedger.class);
+		mongoTemplate.remove(new Query(Criteria.where("productId").is(productId)), StockLedgerBucket.class);
+	}
+
+	@Test
+	void fullBucketsRollOverAndReRunsAreIdempotent() {
+		archiveService.archive();
+		archiveService.archive();
+
+		List<StockLedgerBucket> buckets = mongoTemplate.find(new Query(Criteria.where("productId").is(productId))
+				.with(Sort.by("seq")), StockLedgerBucket.class);
+		assertEquals(List.of(10, 10, 5), buckets.stream().map(StockLedgerBucket::getCount).toList());
+		for (StockLedgerBucket bucket : buckets) {
+			assertNotNull(bucket.getCompressedEntries());
+			assertEquals(bucket.getCount(), bucket.getEntryIds().size());
+		}
+		assertEquals(HOT, mongoTemplate.count(new Query(Criteria.where("productId").is(productId)), StockLedger.class));
+	}
+
+	@Test
+	void pagesWalkFromTheHotTierIntoTheArchive() {
+		archiveService.archive();
+
+		List<StockLedger> walked = new ArrayList<>();
+		String cursor = null;
+		do {
+			LedgerPageDTO page = ledgerService.getLedgerPage(new LedgerFilter().product(productId), cursor, 7);
+			walked.addAll(page.getEntries());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertEquals(ARCHIVED + HOT, walked.size());
+		assertEquals(ARCHIVED + HOT, walked.stream().map(StockLedger::getId).distinct().count());
+		for (int i = 1; i < walked.size(); i++) {
+			assertTrue(LedgerArchiveService.ENTRY_ORDER.compare(walked.get(i - 1), walked.get(i)) > 0);
+		}
+	}
+
+	@Test
+	void exportStreamsArchivedThenHotEntriesOldestFirst() {
+		archiveService.archive();
+
+		List<Integer> quantities;
+		try (Stream<StockLedger> entries = ledgerService.streamLedgerEntries(oldest, null)) {
+			quantities = entries.filter(entry -> productId.equals(entry.getProductId()))
+					.map(StockLedger::getQuantityBefore)
+					.collect(Collectors.toList());
+		}
+
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < ARCHIVED + HOT; i++) {
+			expected.add(i);
+		}
+		assertEquals(expected, quantities);
+	}
+
+	@Test
+	void changeTypeLookupsReadTheArchive() {
+		archiveService.archive();
+
+		LedgerPageDTO page = ledgerService.getLedgerEntriesByChangeType(changeType);
+		assertEquals(ARCHIVED + HOT, page.getEntries().size());
+		assertFalse(page.isHasMore());
+	}
+}
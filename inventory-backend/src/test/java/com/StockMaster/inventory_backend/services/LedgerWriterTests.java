@@ -0,0 +1,160 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.StockLedger;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LedgerWriterTests {
+
+	private static final Path WAL_DIR = createWalDir();
+	private static final String LEFTOVER_SEGMENT = "segment-0000000000000000007.log";
+	private static final String REFERENCE = "WAL-" + UUID.randomUUID();
+	private static final String REPLAYED_REFERENCE = REFERENCE + "-replayed";
+
+	@Autowired
+	private LedgerWriter ledgerWriter;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@DynamicPropertySource
+	static void asyncLedger(DynamicPropertyRegistry registry) {
+		registry.add("ledger.async.enabled", () -> "true");
+		registry.add("ledger.async.wal-dir", WAL_DIR::toString);
+		registry.add("ledger.async.wal-segment-bytes", () -> "4096");
+		registry.add("ledger.async.batch-size", () -> "50");
+	}
+
+	/**
+	 * A segment left by a crashed run, ending in a torn line; the context started for this
+	 * class replays it
+	 */
+	@BeforeAll
+	static void leaveSegmentBehind() throws IOException {
+		String entry = "{\"_id\": {\"$oid\": \"" + new ObjectId().toHexString() + "\"}, \"changeType\": \"ADJUSTMENT\", "
+				+ "\"referenceId\": \"" + REPLAYED_REFERENCE + "\", \"quantityChange\": 1}\n";
+		Files.writeString(WAL_DIR.resolve(LEFTOVER_SEGMENT), entry + "{\"_id\": {\"$oid\": \"65");
+	}
+
+	@AfterEach
+	void cleanUp() {
+		mongoTemplate.remove(new Query(Criteria.where("referenceId").is(REFERENCE)), StockLedger.class);
+	}
+
+	@AfterAll
+	static void removeWalDir() throws IOException {
+		try (Stream<Path> files = Files.list(WAL_DIR)) {
+			for (Path file : files.toList()) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(WAL_DIR);
+	}
+
+	@Test
+	void leftoverSegmentsAreReplayedAndDeleted() throws Exception {
+		// The flusher replays them in the background once the context is up
+		Query replayed = new Query(Criteria.where("referenceId").is(REPLAYED_REFERENCE));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (Files.exists(WAL_DIR.resolve(LEFTOVER_SEGMENT)) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertEquals(1, mongoTemplate.count(replayed, StockLedger.class));
+		mongoTemplate.remove(replayed, StockLedger.class);
+
+		assertFalse(Files.exists(WAL_DIR.resolve(LEFTOVER_SEGMENT)));
+		assertTrue(segments().stream().allMatch(name -> name.compareTo(LEFTOVER_SEGMENT) > 0));
+	}
+
+	@Test
+	void flushedSegmentsAreDeleted() throws Exception {
+		for (int i = 0; i < 20; i++) {
+			ledgerWriter.write(entries(10));
+		}
+		ledgerWriter.flush();
+
+		assertEquals(200, mongoTemplate.count(new Query(Criteria.where("referenceId").is(REFERENCE)), StockLedger.class));
+		// 200 entries span several 4 KB segments; once drained only an empty active one is left
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!drained() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertTrue(drained(), "Segments left behind: " + segments());
+	}
+
+	@Test
+	void aWriteTheLogCannotTakeIsNeitherQueuedNorLeftBehind() throws Exception {
+		// Appends and fsyncs to a closed channel fail like those to a failing disk
+		Object active = ReflectionTestUtils.getField(ledgerWriter, "active");
+		((FileChannel) ReflectionTestUtils.getField(active, "channel")).close();
+
+		assertThrows(RuntimeException.class, () -> ledgerWriter.write(entries(5)));
+		ledgerWriter.write(entries(3));
+		ledgerWriter.flush();
+
+		assertEquals(3, mongoTemplate.count(new Query(Criteria.where("referenceId").is(REFERENCE)), StockLedger.class));
+		assertNotSame(active, ReflectionTestUtils.getField(ledgerWriter, "active"));
+	}
+
+	private static List<StockLedger> entries(int count) {
+		List<StockLedger> entries = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			StockLedger entry = new StockLedger();
+			entry.setChangeType("ADJUSTMENT");
+			entry.setReferenceId(REFERENCE);
+			entry.setQuantityChange(i);
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	private static boolean drained() throws IOException {
+		List<String> left = segments();
+		return left.size() == 1 && Files.size(WAL_DIR.resolve(left.get(0))) == 0;
+	}
+
+	private static List<String> segments() throws IOException {
+		try (Stream<Path> files = Files.list(WAL_DIR)) {
+			return files.map(path -> path.getFileName().toString())
+					.filter(name -> name.startsWith("segment-"))
+					.toList();
+		}
+	}
+
+	private static Path createWalDir() {
+		try {
+			return Files.createTempDirectory("ledger-wal");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.dto.ProductDTO;
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductSearchServiceTests {
+
+	@Autowired
+	private ProductSearchService productSearchService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	// One token no other product shares, so results only contain what a test put in
+	private final String tag = "t" + UUID.randomUUID().toString().replace("-", "");
+	private final List<String> ids = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() {
+		if (ReflectionTestUtils.getField(productSearchService, "productRepository") != productRepository) {
+			ReflectionTestUtils.setField(productSearchService, "productRepository", productRepository);
+			productSearchService.rebuild();
+		}
+		ids.forEach(productSearchService::remove);
+	}
+
+	@Test
+	void resultsAreRankedByWhereTheMatchFalls() {
+		ProductDTO other = put("pre" + tag + " washer", "SUB-1", true);
+		ProductDTO words = put("Big " + tag, "WORDS-1", true);
+		ProductDTO skuPrefix = put("Unrelated thing", tag + "-9", true);
+		ProductDTO namePrefix = put(tag + " bolt", "PREFIX-1", true);
+		ProductDTO name = put(tag, "NAME-1", true);
+		ProductDTO sku = put("Zinc plate", tag, true);
+
+		assertEquals(List.of(sku, name, namePrefix, skuPrefix, words, other), search(tag, 0));
+		assertEquals(List.of(sku, name, namePrefix), search(tag, 3));
+	}
+
+	@Test
+	void activeProductsRankBeforeInactiveOnesInTheSameTier() {
+		ProductDTO inactive = put(tag + " anchor", "ACTIVE-1", false);
+		ProductDTO active = put(tag + " bracket", "ACTIVE-2", true);
+
+		assertEquals(List.of(active, inactive), search(tag, 0));
+		assertEquals(List.of(active, inactive), search(tag, 2));
+	}
+
+	@Test
+	void everyWordHasToMatch() {
+		ProductDTO bolt = put(tag + " hex bolt", "WORD-1", true);
+		put(tag + " hex nut", "WORD-2", true);
+
+		assertEquals(List.of(bolt), search(tag + " bolt", 0));
+		assertEquals(List.of(bolt), search("BOL " + tag.toUpperCase(), 0));
+	}
+
+	@Test
+	void substringsNeedThreeCharacters() {
+		ProductDTO product = put("x" + tag, "GRAM-1", true);
+
+		assertEquals(List.of(product), search(tag.substring(4, 7), 0).stream()
+				.filter(found -> found.getId().equals(product.getId())).toList());
+		assertTrue(search(tag.substring(4, 6), 0).stream().noneMatch(found -> found.getId().equals(product.getId())));
+	}
+
+	@Test
+	void updatesAndRemovalsReplaceTheIndexedCopy() {
+		ProductDTO product = put(tag + " before", "EDIT-1", true);
+		product.setName(tag + " after");
+		productSearchService.put(product);
+
+		assertTrue(search(tag + " before", 0).isEmpty());
+		assertEquals(List.of(product), search(tag + " after", 0));
+
+		productSearchService.remove(product.getId());
+		assertTrue(search(tag, 0).isEmpty());
+	}
+
+	@Test
+	void writesDuringARebuildWinOverTheCursorsCopy() {
+		Product stale = new Product(tag + " stale", "REBUILD-1", "Test", "pcs", 0);
+		stale.setId(UUID.randomUUID().toString());
+		ids.add(stale.getId());
+		ProductDTO updated = dto(stale.getId(), tag + " updated", "REBUILD-1", true);
+
+		ProductRepository repository = mock(ProductRepository.class);
+		// The update lands after the cursor was opened but before it returns the old document
+		when(repository.streamAllBy()).thenReturn(Stream.of(stale).peek(product -> productSearchService.put(updated)));
+		ReflectionTestUtils.setField(productSearchService, "productRepository", repository);
+
+		productSearchService.rebuild();
+
+		assertEquals(List.of(updated), search(tag, 0));
+		assertTrue(search(tag + " stale", 0).isEmpty());
+	}
+
+	private ProductDTO put(String name, String sku, boolean active) {
+		ProductDTO product = dto(UUID.randomUUID().toString(), name, sku, active);
+		ids.add(product.getId());
+		productSearchService.put(product);
+		return product;
+	}
+
+	private static ProductDTO dto(String id, String name, String sku, boolean active) {
+		ProductDTO product = new ProductDTO();
+		product.setId(id);
+		product.setName(name);
+		product.setSku(sku);
+		product.setCategory("Search test");
+		product.setUnit("pcs");
+		product.setActive(active);
+		return product;
+	}
+
+	private List<ProductDTO> search(String query, int limit) {
+		return productSearchService.search(query, limit);
+	}
+}
@@ -0,0 +1,88 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReferenceDataCacheTests {
+
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private final ProductRepository slowRepository = mock(ProductRepository.class);
+	private Product stale;
+	private Product updated;
+
+	@BeforeEach
+	void createProducts() {
+		String id = UUID.randomUUID().toString();
+		stale = new Product("Cache probe", "CACHE-" + id, "Test", "pcs", 0);
+		stale.setId(id);
+		updated = new Product("Cache probe renamed", "CACHE-" + id, "Test", "pcs", 0);
+		updated.setId(id);
+		ReflectionTestUtils.setField(referenceDataCache, "productRepository", slowRepository);
+	}
+
+	@AfterEach
+	void restoreRepository() {
+		ReflectionTestUtils.setField(referenceDataCache, "productRepository", productRepository);
+		referenceDataCache.evictProduct(stale.getId());
+	}
+
+	@Test
+	void aLoadDoesNotOverwriteAPutMadeWhileItRan() {
+		// The write lands after the load read the old document but before it is cached
+		when(slowRepository.findById(stale.getId())).thenAnswer(invocation -> {
+			referenceDataCache.putProduct(updated);
+			return Optional.of(stale);
+		});
+
+		assertEquals("Cache probe", referenceDataCache.findProduct(stale.getId()).orElseThrow().getName());
+		assertEquals("Cache probe renamed", referenceDataCache.findProduct(stale.getId()).orElseThrow().getName());
+	}
+
+	@Test
+	void aBatchLoadDoesNotOverwriteAPutMadeWhileItRan() {
+		when(slowRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+			referenceDataCache.putProduct(updated);
+			return List.of(stale);
+		});
+
+		referenceDataCache.findProducts(List.of(stale.getId()));
+		assertEquals("Cache probe renamed", referenceDataCache.findProduct(stale.getId()).orElseThrow().getName());
+	}
+
+	@Test
+	void aLoadDoesNotResurrectAnEvictedEntry() {
+		when(slowRepository.findById(stale.getId()))
+				.thenAnswer(invocation -> {
+					referenceDataCache.evictProduct(stale.getId());
+					return Optional.of(stale);
+				})
+				.thenReturn(Optional.empty());
+
+		referenceDataCache.findProduct(stale.getId());
+		assertTrue(referenceDataCache.findProduct(stale.getId()).isEmpty());
+	}
+}
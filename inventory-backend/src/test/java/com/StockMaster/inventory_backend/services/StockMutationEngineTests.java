@@ -0,0 +1,191 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.repositories.StockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StockMutationEngineTests {
+
+	private static final int THREADS = 16;
+	private static final int OPERATIONS_PER_THREAD = 200;
+
+	@Autowired
+	private StockMutationEngine stockMutationEngine;
+
+	@Autowired
+	private StockRepository stockRepository;
+
+	@Autowired
+	private DashboardRollupService dashboardRollupService;
+
+	private final String productId = "stress-product-" + UUID.randomUUID();
+	private final String scarceProductId = "stress-product-" + UUID.randomUUID();
+	private final String warehouseId = "stress-warehouse-" + UUID.randomUUID();
+
+	@AfterEach
+	void cleanUp() {
+		stockRepository.findByProductId(productId).forEach(stockRepository::delete);
+		stockRepository.findByProductId(scarceProductId).forEach(stockRepository::delete);
+		dashboardRollupService.rebuild();
+	}
+
+	@Test
+	void concurrentIncreasesAreNeverLost() throws Exception {
+		runConcurrently(() -> stockMutationEngine.increase(productId, warehouseId, 1), new AtomicInteger());
+
+		Stock stock = stockRepository.findByProductIdAndWarehouseId(productId, warehouseId).orElseThrow();
+		assertEquals(THREADS * OPERATIONS_PER_THREAD, stock.getQuantity());
+	}
+
+	@Test
+	void concurrentDecreasesNeverGoBelowZero() throws Exception {
+		int onHand = THREADS * OPERATIONS_PER_THREAD / 4;
+		stockMutationEngine.increase(productId, warehouseId, onHand);
+
+		AtomicInteger rejected = new AtomicInteger();
+		runConcurrently(() -> stockMutationEngine.decrease(productId, warehouseId, 1), rejected);
+
+		Stock stock = stockRepository.findByProductIdAndWarehouseId(productId, warehouseId).orElseThrow();
+		assertEquals(0, stock.getQuantity());
+		assertEquals(THREADS * OPERATIONS_PER_THREAD - onHand, rejected.get());
+	}
+
+	@Test
+	void concurrentBulkDecreasesAreAllOrNothingWithExactPreImages() throws Exception {
+		int scarce = 50;
+		stockMutationEngine.increase(productId, warehouseId, 100);
+		stockMutationEngine.increase(scarceProductId, warehouseId, scarce);
+		// The plentiful line goes first, so a short second line has to put it back
+		List<StockMutationEngine.StockLine> lines = List.of(
+				new StockMutationEngine.StockLine(productId, 1),
+				new StockMutationEngine.StockLine(scarceProductId, 1));
+
+		List<StockMutationEngine.StockMutation> applied = Collections.synchronizedList(new ArrayList<>());
+		AtomicInteger rejected = new AtomicInteger();
+		runConcurrently(() -> applied.addAll(stockMutationEngine.decreaseAll(warehouseId, "stress-" + UUID.randomUUID(), lines)), rejected);
+
+		assertEquals(THREADS * OPERATIONS_PER_THREAD - scarce, rejected.get());
+		assertEquals(0, stockRepository.findByProductIdAndWarehouseId(scarceProductId, warehouseId).orElseThrow().getQuantity());
+		assertEquals(100 - scarce, stockRepository.findByProductIdAndWarehouseId(productId, warehouseId).orElseThrow().getQuantity());
+
+		// Every successful decrease saw its own before quantity, as a ledger replay needs
+		Set<Integer> before = applied.stream()
+				.filter(mutation -> scarceProductId.equals(mutation.getStock().getProductId()))
+				.map(StockMutationEngine.StockMutation::getQuantityBefore)
+				.collect(Collectors.toSet());
+		assertEquals(scarce, before.size());
+		assertEquals(1, Collections.min(before));
+		assertEquals(scarce, Collections.max(before));
+	}
+
+	@Test
+	void aBatchListingAProductTwiceChainsItsBeforeAndAfterValues() {
+		stockMutationEngine.increase(productId, warehouseId, 10);
+		List<StockMutationEngine.StockLine> lines = List.of(
+				new StockMutationEngine.StockLine(productId, 3),
+				new StockMutationEngine.StockLine(scarceProductId, 2),
+				new StockMutationEngine.StockLine(productId, 4));
+
+		String reference = "batch-" + UUID.randomUUID();
+		List<StockMutationEngine.StockMutation> applied = stockMutationEngine.increaseAll(warehouseId, reference, lines);
+
+		assertEquals(10, applied.get(0).getQuantityBefore());
+		assertEquals(13, applied.get(0).getQuantityAfter());
+		assertEquals(0, applied.get(1).getQuantityBefore());
+		assertEquals(13, applied.get(2).getQuantityBefore());
+		assertEquals(17, applied.get(2).getQuantityAfter());
+		Stock stock = stockRepository.findByProductIdAndWarehouseId(productId, warehouseId).orElseThrow();
+		assertEquals(17, stock.getQuantity());
+		assertEquals(2, stock.getApplied().size());
+
+		// Applying the batch again, as a recovery does, returns what is already on the rows
+		List<StockMutationEngine.StockMutation> again = stockMutationEngine.increaseAll(warehouseId, reference, lines);
+		assertEquals(ledgerIds(applied), ledgerIds(again));
+		assertEquals(17, again.get(2).getQuantityAfter());
+		assertEquals(17, stockRepository.findByProductIdAndWarehouseId(productId, warehouseId).orElseThrow().getQuantity());
+
+		stockMutationEngine.clearApplied(warehouseId, reference, lines);
+		assertFalse(stockMutationEngine.anyApplied(warehouseId, reference, lines));
+	}
+
+	@Test
+	void countsNeverOverwriteAMovementMadeSinceTheRead() {
+		stockMutationEngine.increase(productId, warehouseId, 100);
+		stockMutationEngine.increase(scarceProductId, warehouseId, 100);
+		List<StockMutationEngine.StockMutation> counts = List.of(
+				new StockMutationEngine.StockMutation(new Stock(productId, warehouseId, 60), 100, -40, 60, false),
+				new StockMutationEngine.StockMutation(new Stock(scarceProductId, warehouseId, 70), 100, -30, 70, false));
+
+		// A receipt lands between the count's read and its write
+		stockMutationEngine.increase(scarceProductId, warehouseId, 5);
+		StockMutationEngine.CountedWrite write = stockMutationEngine.setCounted(warehouseId, counts);
+
+		assertEquals(List.of(counts.get(0)), write.getApplied());
+		assertEquals(List.of(counts.get(1)), write.getConflicts());
+		assertEquals(60, stockRepository.findByProductIdAndWarehouseId(productId, warehouseId).orElseThrow().getQuantity());
+		assertEquals(105, stockRepository.findByProductIdAndWarehouseId(scarceProductId, warehouseId).orElseThrow().getQuantity());
+	}
+
+	@Test
+	void aCountedNewRowConflictsWithOneCreatedSinceTheRead() {
+		StockMutationEngine.StockMutation count = new StockMutationEngine.StockMutation(
+				new Stock(productId, warehouseId, 10), 0, 10, 10, true);
+
+		stockMutationEngine.increase(productId, warehouseId, 3);
+		StockMutationEngine.CountedWrite write = stockMutationEngine.setCounted(warehouseId, List.of(count));
+
+		assertEquals(List.of(count), write.getConflicts());
+		assertEquals(3, stockRepository.findByProductIdAndWarehouseId(productId, warehouseId).orElseThrow().getQuantity());
+	}
+
+	private static List<String> ledgerIds(List<StockMutationEngine.StockMutation> mutations) {
+		return mutations.stream().map(StockMutationEngine.StockMutation::getLedgerId).collect(Collectors.toList());
+	}
+
+	private void runConcurrently(Runnable operation, AtomicInteger rejected) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int i = 0; i < THREADS; i++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+					try {
+						operation.run();
+					} catch (RuntimeException e) {
+						rejected.incrementAndGet();
+					}
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,89 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.dto.StockDTO;
+import com.StockMaster.inventory_backend.metrics.MongoOperationCounter;
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.Warehouse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StockServiceTests {
+
+	// One find for the stock rows, one $in each for their products and warehouses
+	private static final int LIST_QUERIES = 3;
+
+	@Autowired
+	private StockService stockService;
+
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final String prefix = "QUERY-COUNT-" + UUID.randomUUID() + "-";
+	private final List<String> warehouseIds = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() {
+		mongoTemplate.remove(new Query(Criteria.where("warehouseId").in(warehouseIds)), Stock.class);
+		mongoTemplate.remove(new Query(Criteria.where("id").in(warehouseIds)), Warehouse.class);
+		mongoTemplate.remove(new Query(Criteria.where("sku").regex("^" + prefix)), Product.class);
+	}
+
+	@Test
+	void listingStockTakesTheSameQueriesForAnyNumberOfRows() {
+		int few = queriesToList(10);
+		int many = queriesToList(100);
+
+		assertEquals(LIST_QUERIES, few);
+		assertEquals(LIST_QUERIES, many);
+	}
+
+	/**
+	 * Commands issued to list a warehouse with the given number of rows, each for its own
+	 * product, with nothing cached. Row counts stay within the driver's first batch.
+	 */
+	private int queriesToList(int rows) {
+		Warehouse warehouse = mongoTemplate.insert(new Warehouse(prefix + rows, "Test"));
+		warehouseIds.add(warehouse.getId());
+
+		List<Product> products = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			products.add(new Product("Query count " + i, prefix + rows + "-" + i, "Test", "pcs", 0));
+		}
+		List<Stock> stock = new ArrayList<>(rows);
+		for (Product product : mongoTemplate.insertAll(products)) {
+			stock.add(new Stock(product.getId(), warehouse.getId(), 1));
+		}
+		mongoTemplate.insertAll(stock);
+		referenceDataCache.clear();
+
+		MongoOperationCounter.reset();
+		List<StockDTO> listed = stockService.getStockByWarehouse(warehouse.getId());
+		int queries = MongoOperationCounter.get();
+
+		assertEquals(rows, listed.size());
+		for (StockDTO dto : listed) {
+			assertNotNull(dto.getProductSku());
+			assertEquals(warehouse.getName(), dto.getWarehouseName());
+		}
+		return queries;
+	}
+}
@@ -0,0 +1,118 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.dto.StockDTO;
+import com.StockMaster.inventory_backend.models.Product;
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.StockLedger;
+import com.StockMaster.inventory_backend.models.StockSnapshot;
+import com.StockMaster.inventory_backend.models.StockSnapshotLine;
+import com.StockMaster.inventory_backend.models.Warehouse;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StockSnapshotServiceTests {
+
+	@Autowired
+	private StockSnapshotService stockSnapshotService;
+
+	@Autowired
+	private StockService stockService;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final String sku = "SNAPSHOT-" + UUID.randomUUID();
+	private Warehouse warehouse;
+	private Product product;
+
+	@BeforeEach
+	void createStock() {
+		warehouse = mongoTemplate.insert(new Warehouse("Snapshot " + sku, "Test"));
+		product = mongoTemplate.insert(new Product("Snapshot probe", sku, "Test", "pcs", 0));
+		mongoTemplate.insert(new Stock(product.getId(), warehouse.getId(), 10));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		Query byWarehouse = new Query(Criteria.where("warehouseId").is(warehouse.getId()));
+		for (StockSnapshot snapshot : mongoTemplate.find(byWarehouse, StockSnapshot.class)) {
+			mongoTemplate.remove(new Query(Criteria.where("snapshotId").is(snapshot.getId())), StockSnapshotLine.class);
+		}
+		mongoTemplate.remove(byWarehouse, StockSnapshot.class);
+		mongoTemplate.remove(byWarehouse, Stock.class);
+		mongoTemplate.remove(byWarehouse, StockLedger.class);
+		mongoTemplate.remove(product);
+		mongoTemplate.remove(warehouse);
+	}
+
+	@Test
+	void setQuantitiesAfterASnapshotAreReplayedFromTheLedger() throws InterruptedException {
+		stockSnapshotService.takeSnapshots();
+		Thread.sleep(5);
+		LocalDateTime beforeSet = LocalDateTime.now();
+
+		StockDTO update = new StockDTO();
+		update.setProductId(product.getId());
+		update.setWarehouseId(warehouse.getId());
+		update.setQuantity(25);
+		stockService.createOrUpdateStock(update);
+
+		Map<String, Integer> then = stockSnapshotService.getQuantitiesAsOf(warehouse.getId(), beforeSet);
+		Map<String, Integer> now = stockSnapshotService.getQuantitiesAsOf(warehouse.getId(), LocalDateTime.now());
+		assertEquals(10, then.get(product.getId()));
+		assertEquals(25, now.get(product.getId()));
+	}
+
+	@Test
+	void changesAreSummedWhateverOrderTheyWereStampedIn() throws InterruptedException {
+		stockSnapshotService.takeSnapshots();
+		Thread.sleep(5);
+
+		// Logged in one batch: the same timestamp, with ids that sort against the order applied
+		LocalDateTime loggedAt = LocalDateTime.now();
+		String first = new ObjectId().toHexString();
+		String second = new ObjectId().toHexString();
+		mongoTemplate.insert(ledgerEntry(second, 10, 3, 13, loggedAt));
+		mongoTemplate.insert(ledgerEntry(first, 13, -2, 11, loggedAt));
+
+		assertEquals(11, stockSnapshotService.getQuantitiesAsOf(warehouse.getId(), LocalDateTime.now()).get(product.getId()));
+	}
+
+	@Test
+	void snapshotsPastRetentionAreRemoved() {
+		LocalDateTime expired = LocalDateTime.now().minusDays(365);
+		StockSnapshot old = mongoTemplate.insert(new StockSnapshot(null, warehouse.getId(), expired, 1));
+		mongoTemplate.insert(new StockSnapshotLine(null, old.getId(), expired, product.getId(), 3));
+
+		stockSnapshotService.takeSnapshots();
+
+		assertFalse(mongoTemplate.exists(new Query(Criteria.where("id").is(old.getId())), StockSnapshot.class));
+		assertFalse(mongoTemplate.exists(new Query(Criteria.where("snapshotId").is(old.getId())), StockSnapshotLine.class));
+		assertEquals(10, stockSnapshotService.getQuantitiesAsOf(warehouse.getId(), LocalDateTime.now()).get(product.getId()));
+	}
+
+	private StockLedger ledgerEntry(String id, int before, int change, int after, LocalDateTime createdAt) {
+		StockLedger entry = new StockLedger(product.getId(), product.getName(), sku, warehouse.getId(), warehouse.getName(),
+				"ADJUSTMENT", before, change, after, "snapshot-test", "ADJUSTMENT", "test", "test");
+		entry.setId(id);
+		entry.setCreatedAt(createdAt);
+		return entry;
+	}
+}
@@ -0,0 +1,210 @@
+package com.StockMaster.inventory_backend.services;
+
+import com.StockMaster.inventory_backend.models.Delivery;
+import com.StockMaster.inventory_backend.models.InternalTransfer;
+import com.StockMaster.inventory_backend.models.Receipt;
+import com.StockMaster.inventory_backend.models.Stock;
+import com.StockMaster.inventory_backend.models.StockLedger;
+import com.StockMaster.inventory_backend.repositories.ReceiptRepository;
+import com.StockMaster.inventory_backend.repositories.StockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class WorkflowRecoveryServiceTests {
+
+	@Autowired
+	private WorkflowRecoveryService workflowRecoveryService;
+
+	@Autowired
+	private ReceiptRepository receiptRepository;
+
+	@Autowired
+	private StockRepository stockRepository;
+
+	@Autowired
+	private StockMutationEngine stockMutationEngine;
+
+	@Autowired
+	private DashboardRollupService dashboardRollupService;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final String productId = "recovery-product-" + UUID.randomUUID();
+	private final String otherProductId = "recovery-product-" + UUID.randomUUID();
+	private final String fromWarehouseId = "recovery-from-" + UUID.randomUUID();
+	private final String toWarehouseId = "recovery-to-" + UUID.randomUUID();
+	private final List<String> receiptIds = new ArrayList<>();
+	private final List<String> deliveryIds = new ArrayList<>();
+	private final List<String> transferIds = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() {
+		receiptRepository.deleteAllById(receiptIds);
+		mongoTemplate.remove(new Query(Criteria.where("id").in(deliveryIds)), Delivery.class);
+		mongoTemplate.remove(new Query(Criteria.where("id").in(transferIds)), InternalTransfer.class);
+		mongoTemplate.remove(new Query(Criteria.where("productId").in(productId, otherProductId)), Stock.class);
+		mongoTemplate.remove(new Query(Criteria.where("productId").in(productId, otherProductId)), StockLedger.class);
+		dashboardRollupService.rebuild();
+	}
+
+	@Test
+	void staleClaimsWithoutStockChangesGoBackToDraft() {
+		Receipt receipt = claimedReceipt(LocalDateTime.now().minusHours(1));
+
+		workflowRecoveryService.recoverStaleClaims();
+
+		Receipt stored = receiptRepository.findById(receipt.getId()).orElseThrow();
+		assertEquals("DRAFT", stored.getStatus());
+		assertNull(stored.getClaimedAt());
+		assertNull(stored.getClaimedBy());
+		assertTrue(stockRepository.findByProductIdAndWarehouseId(productId, fromWarehouseId).isEmpty());
+	}
+
+	@Test
+	void staleClaimsWithStockAppliedAreFinishedForTheClaimantWithoutApplyingItTwice() {
+		Receipt receipt = claimedReceipt(LocalDateTime.now().minusHours(1));
+		// The instance died after the stock write, and after logging the first line
+		List<StockMutationEngine.StockMutation> applied = stockMutationEngine.increaseAll(fromWarehouseId,
+				ReceiptService.stockReference(receipt.getId()), lines());
+		StockLedger logged = new StockLedger(productId, "Recovery", "REC", fromWarehouseId, "From", "RECEIPT",
+				0, 5, 5, receipt.getId(), "RECEIPT", "clerk", "clerk");
+		logged.setId(applied.get(0).getLedgerId());
+		mongoTemplate.insert(logged);
+
+		workflowRecoveryService.recoverStaleClaims();
+
+		Receipt stored = receiptRepository.findById(receipt.getId()).orElseThrow();
+		assertEquals("VALIDATED", stored.getStatus());
+		assertEquals("clerk", stored.getValidatedBy());
+		assertEquals(5, quantity(productId, fromWarehouseId));
+		assertEquals(3, quantity(otherProductId, fromWarehouseId));
+		assertEquals(2, mongoTemplate.count(new Query(Criteria.where("referenceId").is(receipt.getId())), StockLedger.class));
+		assertEquals(List.of(), stock(productId, fromWarehouseId).getApplied());
+	}
+
+	@Test
+	void claimsStillInProgressAreLeftAlone() {
+		Receipt receipt = claimedReceipt(LocalDateTime.now());
+
+		workflowRecoveryService.recoverStaleClaims();
+
+		assertEquals("VALIDATING", receiptRepository.findById(receipt.getId()).orElseThrow().getStatus());
+	}
+
+	@Test
+	void aDeliveryThatCanNoLongerBeFinishedIsTakenBackAndHandedBack() {
+		stockMutationEngine.increase(productId, fromWarehouseId, 10);
+		stockMutationEngine.increase(otherProductId, fromWarehouseId, 10);
+		Delivery delivery = new Delivery();
+		delivery.setWarehouseId(fromWarehouseId);
+		delivery.setStatus("VALIDATING");
+		delivery.setItems(List.of(
+				new Delivery.DeliveryItem(productId, 4, "Recovery", "REC"),
+				new Delivery.DeliveryItem(otherProductId, 8, "Other", "OTH")));
+		delivery.setCreatedAt(LocalDateTime.now());
+		delivery.setClaimedAt(LocalDateTime.now().minusHours(1));
+		delivery.setClaimedBy("clerk");
+		delivery = mongoTemplate.insert(delivery);
+		deliveryIds.add(delivery.getId());
+		// Only the first line made it before the instance died, and the second can't be met any more
+		stockMutationEngine.decreaseAll(fromWarehouseId, DeliveryService.stockReference(delivery.getId()),
+				List.of(new StockMutationEngine.StockLine(productId, 4)));
+		stockMutationEngine.decrease(otherProductId, fromWarehouseId, 5);
+
+		workflowRecoveryService.recoverStaleClaims();
+
+		assertEquals("DRAFT", mongoTemplate.findById(delivery.getId(), Delivery.class).getStatus());
+		assertEquals(10, quantity(productId, fromWarehouseId));
+		assertEquals(List.of(), stock(productId, fromWarehouseId).getApplied());
+	}
+
+	@Test
+	void aTransferThatOnlyLeftItsSourceIsCompletedAtItsDestination() {
+		stockMutationEngine.increase(productId, fromWarehouseId, 10);
+		InternalTransfer transfer = new InternalTransfer();
+		transfer.setProductId(productId);
+		transfer.setFromWarehouseId(fromWarehouseId);
+		transfer.setToWarehouseId(toWarehouseId);
+		transfer.setQuantity(4);
+		transfer.setStatus("COMPLETING");
+		transfer.setClaimedAt(LocalDateTime.now().minusHours(1));
+		transfer.setClaimedBy("clerk");
+		transfer = mongoTemplate.insert(transfer);
+		transferIds.add(transfer.getId());
+		// The instance died after taking the stock out of the source warehouse
+		stockMutationEngine.decreaseAll(fromWarehouseId, InternalTransferService.stockReference(transfer.getId(), "out"),
+				List.of(new StockMutationEngine.StockLine(productId, 4)));
+
+		workflowRecoveryService.recoverStaleClaims();
+
+		InternalTransfer stored = mongoTemplate.findById(transfer.getId(), InternalTransfer.class);
+		assertEquals("COMPLETED", stored.getStatus());
+		assertEquals("clerk", stored.getCompletedBy());
+		assertEquals(6, quantity(productId, fromWarehouseId));
+		assertEquals(4, quantity(productId, toWarehouseId));
+		assertEquals(2, mongoTemplate.count(new Query(Criteria.where("referenceId").is(transfer.getId())), StockLedger.class));
+	}
+
+	@Test
+	void tagsLeftByAFinishedDocumentAreCleared() {
+		Receipt receipt = claimedReceipt(LocalDateTime.now());
+		stockMutationEngine.increaseAll(fromWarehouseId, ReceiptService.stockReference(receipt.getId()), lines());
+		mongoTemplate.updateFirst(new Query(Criteria.where("id").is(receipt.getId())),
+				new Update().set("status", "VALIDATED"), Receipt.class);
+		mongoTemplate.updateFirst(new Query(Criteria.where("productId").is(productId)),
+				new Update().set("applied.0.appliedAt", LocalDateTime.now().minusHours(1)), Stock.class);
+
+		workflowRecoveryService.recoverStaleClaims();
+
+		assertEquals(List.of(), stock(productId, fromWarehouseId).getApplied());
+		assertEquals(1, stock(otherProductId, fromWarehouseId).getApplied().size());
+	}
+
+	private List<StockMutationEngine.StockLine> lines() {
+		return List.of(
+				new StockMutationEngine.StockLine(productId, 5),
+				new StockMutationEngine.StockLine(otherProductId, 3));
+	}
+
+	private Receipt claimedReceipt(LocalDateTime claimedAt) {
+		Receipt receipt = new Receipt();
+		receipt.setWarehouseId(fromWarehouseId);
+		receipt.setStatus("VALIDATING");
+		receipt.setItems(List.of(
+				new Receipt.ReceiptItem(productId, 5, "Recovery", "REC"),
+				new Receipt.ReceiptItem(otherProductId, 3, "Other", "OTH")));
+		receipt.setCreatedAt(LocalDateTime.now());
+		receipt.setClaimedAt(claimedAt);
+		receipt.setClaimedBy("clerk");
+		receipt = receiptRepository.save(receipt);
+		receiptIds.add(receipt.getId());
+		return receipt;
+	}
+
+	private Stock stock(String product, String warehouse) {
+		return stockRepository.findByProductIdAndWarehouseId(product, warehouse).orElseThrow();
+	}
+
+	private int quantity(String product, String warehouse) {
+		return stock(product, warehouse).getQuantity();
+	}
+}
@@ -8,7 +8,8 @@ import { FileText, Download, TrendingUp, TrendingDown, RefreshCw } from 'lucide-
 
 export default function LedgerPage() {
     const [ledger, setLedger] = useState<StockLedger[]>([]);
-    const [filteredLedger, setFilteredLedger] = useState<StockLedger[]>([]);
+    const [nextCursor, setNextCursor] = useState<string | null>(null);
+    const [loadingMore, setLoadingMore] = useState(false);
     const [products, setProducts] = useState<Product[]>([]);
     const [warehouses, setWarehouses] = useState<Warehouse[]>([]);
     const [loading, setLoading] = useState(true);
@@ -21,64 +22,67 @@ export default function LedgerPage() {
     });
 
     useEffect(() => {
-        fetchData();
+        fetchReferenceData();
     }, []);
 
+    // Filters are applied by the server, so a new filter starts again from the newest page
     useEffect(() => {
-        applyFilters();
-    }, [ledger, filters]);
+        fetchLedger();
+    }, [filters]);
 
-    const fetchData = async () => {
+    const fetchReferenceData = async () => {
         try {
-            setLoading(true);
-            const [ledgerData, productsData, warehousesData] = await Promise.all([
-                ledgerAPI.getAll(),
+            const [productsData, warehousesData] = await Promise.all([
                 productsAPI.getAll(),
                 warehousesAPI.getAll(),
             ]);
-            setLedger(ledgerData);
             setProducts(productsData);
             setWarehouses(warehousesData);
         } catch (error) {
             console.error('Failed to load data:', error);
-        } finally {
-            setLoading(false);
         }
     };
 
-    const applyFilters = () => {
-        let filtered = [...ledger];
-
-        if (filters.productId) {
-            filtered = filtered.filter((entry) => entry.productId === filters.productId);
-        }
-
-        if (filters.warehouseId) {
-            filtered = filtered.filter((entry) => entry.warehouseId === filters.warehouseId);
-        }
+    const ledgerQuery = (cursor?: string) => ({
+        cursor,
+        productId: filters.productId || undefined,
+        warehouseId: filters.warehouseId || undefined,
+        changeType: filters.changeType || undefined,
+        startDate: filters.startDate ? `${filters.startDate}T00:00:00` : undefined,
+        endDate: filters.endDate ? `${filters.endDate}T23:59:59.999` : undefined,
+    });
 
-        if (filters.changeType) {
-            filtered = filtered.filter((entry) => entry.changeType === filters.changeType);
+    const fetchLedger = async () => {
+        try {
+            const page = await ledgerAPI.getPage(ledgerQuery());
+            setLedger(page.entries);
+            setNextCursor(page.hasMore ? page.nextCursor : null);
+        } catch (error) {
+            console.error('Failed to load stock ledger:', error);
+        } finally {
+            setLoading(false);
         }
+    };
 
-        if (filters.startDate) {
-            filtered = filtered.filter(
-                (entry) => new Date(entry.createdAt) >= new Date(filters.startDate)
-            );
+    const loadMore = async () => {
+        if (!nextCursor) {
+            return;
         }
-
-        if (filters.endDate) {
-            filtered = filtered.filter(
-                (entry) => new Date(entry.createdAt) <= new Date(filters.endDate)
-            );
+        try {
+            setLoadingMore(true);
+            const page = await ledgerAPI.getPage(ledgerQuery(nextCursor));
+            setLedger((loaded) => [...loaded, ...page.entries]);
+            setNextCursor(page.hasMore ? page.nextCursor : null);
+        } catch (error) {
+            console.error('Failed to load more ledger entries:', error);
+        } finally {
+            setLoadingMore(false);
         }
-
-        setFilteredLedger(filtered);
     };
 
     const exportToCSV = () => {
         const headers = ['Date', 'Product', 'SKU', 'Warehouse', 'Change Type', 'Before', 'Change', 'After', 'User', 'Notes'];
-        const rows = filteredLedger.map(entry => [
+        const rows = ledger.map(entry => [
             new Date(entry.createdAt).toLocaleString(),
             entry.productName,
             entry.productSku,
@@ -237,14 +241,14 @@ export default function LedgerPage() {
                                 </tr>
                             </thead>
                             <tbody className="bg-white divide-y divide-gray-200">
-                                {filteredLedger.length === 0 ? (
+                                {ledger.length === 0 ? (
                                     <tr>
                                         <td colSpan={8} className="px-6 py-8 text-center text-gray-500">
                                             No ledger entries found.
                                         </td>
                                     </tr>
                                 ) : (
-                                    filteredLedger.map((entry) => (
+                                    ledger.map((entry) => (
                                         <tr key={entry.id} className="hover:bg-gray-50">
                                             <td className="px-4 py-3 text-sm text-gray-900">
                                                 {new Date(entry.createdAt).toLocaleString()}
@@ -276,6 +280,17 @@ export default function LedgerPage() {
                             </tbody>
                         </table>
                     </div>
+                    {nextCursor && (
+                        <div className="p-4 text-center border-t border-gray-200">
+                            <button
+                                onClick={loadMore}
+                                disabled={loadingMore}
+                                className="px-4 py-2 bg-gray-100 text-gray-700 rounded-lg hover:bg-gray-200 disabled:opacity-50"
+                            >
+                                {loadingMore ? 'Loading...' : 'Load more'}
+                            </button>
+                        </div>
+                    )}
                 </div>
 
                 <div className="bg-blue-50 border border-blue-200 rounded-lg p-4">
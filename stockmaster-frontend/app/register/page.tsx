@@ -11,7 +11,6 @@ interface RegisterForm {
     email: string;
     password: string;
     confirmPassword: string;
-    role: string;
 }
 
 export default function RegisterPage() {
@@ -27,7 +26,7 @@ export default function RegisterPage() {
         setError('');
 
         try {
-            await authAPI.register(data.email, data.password, data.role);
+            await authAPI.register(data.email, data.password);
             router.push('/login?registered=true');
         } catch (err: any) {
             setError(err.response?.data?.message || 'Registration failed. Email may already exist.');
@@ -122,23 +121,9 @@ export default function RegisterPage() {
                         )}
                     </div>
 
-                    <div>
-                        <label htmlFor="role" className="block text-sm font-medium text-gray-700 mb-2">
-                            Role
-                        </label>
-                        <select
-                            id="role"
-                            {...register('role', { required: 'Please select a role' })}
-                            className="w-full px-4 py-2 border border-gray-300 rounded-lg focus:ring-2 focus:ring-indigo-500 focus:border-transparent"
-                        >
-                            <option value="">Select Role</option>
-                            <option value="USER">User</option>
-                            <option value="ADMIN">Admin</option>
-                        </select>
-                        {errors.role && (
-                            <p className="mt-1 text-sm text-red-600">{errors.role.message}</p>
-                        )}
-                    </div>
+                    <p className="text-sm text-gray-500">
+                        New accounts start as users; an admin can grant the admin role.
+                    </p>
 
                     <button
                         type="submit"
@@ -1,4 +1,5 @@
 import axios, { AxiosInstance, InternalAxiosRequestConfig, AxiosResponse, AxiosError } from 'axios';
+import { LedgerPage } from '@/types';
 
 const API_URL = process.env.NEXT_PUBLIC_API_URL || 'http://localhost:8080/api';
 
@@ -48,10 +49,19 @@ export const authAPI = {
         const response = await apiClient.post('/auth/login', { email, password });
         return response.data;
     },
-    register: async (email: string, password: string, role: string) => {
-        const response = await apiClient.post('/auth/register', { email, password, role });
+    register: async (email: string, password: string) => {
+        const response = await apiClient.post('/auth/register', { email, password });
         return response.data;
     },
+    // Returns a new token; tokens issued before the change stop working
+    changePassword: async (currentPassword: string, newPassword: string) => {
+        const response = await apiClient.put('/auth/password', { currentPassword, newPassword });
+        return response.data;
+    },
+    // Admins only; the user has to log in again to pick up the new role
+    changeRole: async (email: string, role: 'USER' | 'ADMIN') => {
+        await apiClient.put(`/auth/users/${encodeURIComponent(email)}/role`, { role });
+    },
 };
 
 // Products API
@@ -267,31 +277,26 @@ export const transfersAPI = {
 };
 
 // Stock Ledger API
+export interface LedgerQuery {
+    cursor?: string;
+    limit?: number;
+    productId?: string;
+    warehouseId?: string;
+    changeType?: string;
+    startDate?: string;
+    endDate?: string;
+}
+
 export const ledgerAPI = {
-    getAll: async () => {
-        const response = await apiClient.get('/ledger');
+    // Keyset page, newest first; pass nextCursor back as cursor for the next one
+    getPage: async (query: LedgerQuery = {}): Promise<LedgerPage> => {
+        const response = await apiClient.get('/ledger/page', { params: query });
         return response.data;
     },
     getById: async (id: string) => {
         const response = await apiClient.get(`/ledger/${id}`);
         return response.data;
     },
-    getByProduct: async (productId: string) => {
-        const response = await apiClient.get(`/ledger/product/${productId}`);
-        return response.data;
-    },
-    getByWarehouse: async (warehouseId: string) => {
-        const response = await apiClient.get(`/ledger/warehouse/${warehouseId}`);
-        return response.data;
-    },
-    getByChangeType: async (changeType: string) => {
-        const response = await apiClient.get(`/ledger/change-type/${changeType}`);
-        return response.data;
-    },
-    getByDateRange: async (startDate: string, endDate: string) => {
-        const response = await apiClient.get(`/ledger/date-range?startDate=${startDate}&endDate=${endDate}`);
-        return response.data;
-    },
 };
 
 export default apiClient;
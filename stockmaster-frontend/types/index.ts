@@ -163,3 +163,9 @@ export interface StockLedger {
     notes?: string;
     createdAt: string;
 }
+
+export interface LedgerPage {
+    entries: StockLedger[];
+    nextCursor: string | null;
+    hasMore: boolean;
+}